@@ -0,0 +1,91 @@
+package dev.throwlytics.ThrowlyticsBackend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Configuration for background media work (thumbnails, packaging, storage GC, etc.)
+ */
+@Configuration
+@EnableAsync
+@EnableScheduling
+public class AsyncConfig {
+    
+    @Value("${app.media.executor.pool-size:2}")
+    private int poolSize;
+    
+    @Value("${app.media.executor.queue-capacity:100}")
+    private int queueCapacity;
+    
+    @Value("${app.packaging.executor.pool-size:1}")
+    private int packagingPoolSize;
+    
+    @Value("${app.packaging.executor.queue-capacity:50}")
+    private int packagingQueueCapacity;
+    
+    /**
+     * Executor for FFmpeg-bound media jobs
+     * Kept small so media work cannot starve request threads of CPU.
+     * When the queue is full submissions are rejected (TaskRejectedException) instead of
+     * running on the submitting request thread; callers fall back to lazy rendering.
+     */
+    @Bean(name = "mediaTaskExecutor")
+    public Executor mediaTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("media-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+    
+    /**
+     * Executor for long-running packaging jobs (HLS encoding)
+     * Jobs that do not fit in the queue are dropped and logged rather than
+     * run on the submitting (request) thread.
+     */
+    @Bean(name = "packagingTaskExecutor")
+    public Executor packagingTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(packagingPoolSize);
+        executor.setMaxPoolSize(packagingPoolSize);
+        executor.setQueueCapacity(packagingQueueCapacity);
+        executor.setThreadNamePrefix("packaging-");
+        executor.setRejectedExecutionHandler((task, pool) ->
+            System.err.println("Packaging queue full, skipping job"));
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+    
+    /**
+     * Executor for background storage-saving transcodes
+     * A single minimum-priority thread; FFmpeg itself is also started under nice.
+     * A run that is already queued makes further submissions no-ops.
+     */
+    @Bean(name = "transcodeTaskExecutor")
+    public Executor transcodeTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.setThreadPriority(Thread.MIN_PRIORITY);
+        executor.setThreadNamePrefix("transcode-");
+        executor.setRejectedExecutionHandler((task, pool) ->
+            System.err.println("Transcode run already queued, skipping"));
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,91 @@
+package dev.throwlytics.ThrowlyticsBackend.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import dev.throwlytics.ThrowlyticsBackend.datasource.ReadYourWritesTracker;
+import dev.throwlytics.ThrowlyticsBackend.datasource.ReplicaRoutingDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration that routes read-only transactions to PostgreSQL read replicas
+ * 
+ * Enabled with app.datasource.replica.enabled=true. The primary keeps using the
+ * spring.datasource.* settings; replicas share its credentials unless overridden.
+ * Without this flag the auto-configured single datasource is used unchanged.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.replica.enabled", havingValue = "true")
+public class DataSourceRoutingConfig {
+    
+    // Comma-separated JDBC URLs
+    @Value("${app.datasource.replica.urls}")
+    private List<String> replicaUrls;
+    
+    @Value("${app.datasource.replica.username:${spring.datasource.username}}")
+    private String replicaUsername;
+    
+    @Value("${app.datasource.replica.password:${spring.datasource.password}}")
+    private String replicaPassword;
+    
+    // Replicas further behind than this are taken out of rotation
+    @Value("${app.datasource.replica.max-lag-seconds:5}")
+    private double maxLagSeconds;
+    
+    @Value("${app.datasource.replica.pool-size:10}")
+    private int replicaPoolSize;
+    
+    private ReplicaRoutingDataSource routingDataSource;
+    
+    /**
+     * Application DataSource: lazy proxy around the routing datasource
+     * The proxy defers fetching a connection until the first statement, after the
+     * transaction manager has marked the transaction read-only.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties, ReadYourWritesTracker readYourWritesTracker) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+        
+        List<DataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            HikariDataSource replica = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(replicaUrls.get(i).trim())
+                    .username(replicaUsername)
+                    .password(replicaPassword)
+                    .build();
+            replica.setPoolName("replica-" + i);
+            replica.setMaximumPoolSize(replicaPoolSize);
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+        
+        routingDataSource = new ReplicaRoutingDataSource(primary, replicas, readYourWritesTracker, maxLagSeconds);
+        routingDataSource.afterPropertiesSet();
+        routingDataSource.refreshLag();
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+    
+    /**
+     * Re-check replica lag so lagging or unreachable replicas drop out of (and rejoin) rotation
+     */
+    @Scheduled(fixedDelayString = "${app.datasource.replica.lag-check-ms:5000}")
+    public void refreshReplicaLag() {
+        if (routingDataSource != null) {
+            routingDataSource.refreshLag();
+        }
+    }
+}
@@ -1,12 +1,14 @@
 package dev.throwlytics.ThrowlyticsBackend.config;
 
 import dev.throwlytics.ThrowlyticsBackend.service.FileStorageService;
+import dev.throwlytics.ThrowlyticsBackend.service.StorageMaintenanceService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Configuration;
 
 /**
- * Configuration to initialize file storage directories on startup
+ * Configuration to initialize file storage on startup
  */
 @Configuration
 public class FileStorageConfig implements CommandLineRunner {
@@ -14,10 +16,26 @@ public class FileStorageConfig implements CommandLineRunner {
     @Autowired
     private FileStorageService fileStorageService;
     
+    @Autowired
+    private StorageMaintenanceService storageMaintenanceService;
+    
+    // One-off migration of media from the flat per-user layout to the sharded layout
+    @Value("${app.storage.layout-migration.enabled:false}")
+    private boolean layoutMigrationEnabled;
+    
     @Override
     public void run(String... args) throws Exception {
-        fileStorageService.initializeDirectories();
-        System.out.println("✓ Upload directories initialized");
+        fileStorageService.initializeStorage();
+        System.out.println("✓ Upload storage initialized");
+        
+        if (layoutMigrationEnabled) {
+            int migrated = storageMaintenanceService.migrateLayout();
+            if (migrated < 0) {
+                System.out.println("Storage layout migration skipped: another node is running storage maintenance");
+            } else {
+                System.out.println("✓ Migrated " + migrated + " throws to the sharded storage layout");
+            }
+        }
     }
 }
 
@@ -0,0 +1,25 @@
+package dev.throwlytics.ThrowlyticsBackend.config;
+
+import dev.throwlytics.ThrowlyticsBackend.service.PercentileSketchService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration to load the population percentile sketches on startup
+ * (seeded from throw history the first time)
+ */
+@Configuration
+public class PercentileSketchConfig implements CommandLineRunner {
+    
+    @Autowired
+    private PercentileSketchService percentileSketchService;
+    
+    @Override
+    public void run(String... args) {
+        long scanned = percentileSketchService.loadOrSeed();
+        if (scanned > 0) {
+            System.out.println("✓ Built percentile sketches from " + scanned + " throws");
+        }
+    }
+}
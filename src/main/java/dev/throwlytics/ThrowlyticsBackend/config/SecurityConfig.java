@@ -43,9 +43,10 @@ public class SecurityConfig {
             .authorizeHttpRequests(auth -> auth
                 // Allow public access to auth endpoints
                 .requestMatchers("/api/auth/**").permitAll()
-                // Allow public access to static media (videos/thumbnails) and health
+                // Media needs no JWT: SignedMediaUrlFilter requires a valid signed URL instead
                 .requestMatchers(
                     "/videos/**",
+                    "/hls/**",
                     "/thumbnails/**",
                     "/uploads/**",
                     "/api/video/health"
@@ -92,6 +93,12 @@ public class SecurityConfig {
             "Accept"
         ));
         
+        // Let the frontend read the history pagination cursor and validator
+        configuration.setExposedHeaders(Arrays.asList(
+            "X-Next-Cursor",
+            "ETag"
+        ));
+        
         // Allow credentials (cookies, authorization headers)
         configuration.setAllowCredentials(true);
         
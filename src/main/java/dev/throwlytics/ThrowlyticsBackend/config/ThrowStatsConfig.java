@@ -0,0 +1,24 @@
+package dev.throwlytics.ThrowlyticsBackend.config;
+
+import dev.throwlytics.ThrowlyticsBackend.service.ThrowStatsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration to seed the throw statistics rollup from existing history on startup
+ */
+@Configuration
+public class ThrowStatsConfig implements CommandLineRunner {
+    
+    @Autowired
+    private ThrowStatsService throwStatsService;
+    
+    @Override
+    public void run(String... args) {
+        int buckets = throwStatsService.backfillIfEmpty();
+        if (buckets > 0) {
+            System.out.println("✓ Built " + buckets + " throw statistics buckets from history");
+        }
+    }
+}
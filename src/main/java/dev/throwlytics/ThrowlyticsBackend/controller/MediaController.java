@@ -0,0 +1,71 @@
+package dev.throwlytics.ThrowlyticsBackend.controller;
+
+import dev.throwlytics.ThrowlyticsBackend.exception.ResourceNotFoundException;
+import dev.throwlytics.ThrowlyticsBackend.service.MediaServingService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+/**
+ * Controller for serving stored videos and HLS packages
+ * Media is read through the configured storage backend, so any backend node can
+ * serve any upload. Access is checked by SignedMediaUrlFilter before these run.
+ */
+@RestController
+public class MediaController {
+    
+    @Autowired
+    private MediaServingService mediaServingService;
+    
+    /**
+     * Stored video endpoint
+     * GET /videos/{userId}/{ab}/{cd}/{uuid}.mp4 (Range supported)
+     */
+    @GetMapping("/videos/**")
+    public void getVideo(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        mediaServingService.streamVideo(storageKey(request, ""), request, response);
+    }
+    
+    /**
+     * HLS package endpoint
+     * GET /hls/{userId}/{videoId}/master.m3u8 and the variant playlists and segments it references
+     */
+    @GetMapping("/hls/**")
+    public void getHlsFile(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        mediaServingService.serveHls(storageKey(request, ""), request, response);
+    }
+    
+    /**
+     * Legacy endpoint for media addressed from the uploads root
+     * GET /uploads/videos/{userId}/{uuid}.mp4
+     */
+    @GetMapping("/uploads/**")
+    public void getUpload(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String key = storageKey(request, "uploads/");
+        if (key.startsWith("hls/")) {
+            mediaServingService.serveHls(key, request, response);
+        } else if (key.startsWith("thumbnails/")) {
+            mediaServingService.serveThumbnail(key, request, response);
+        } else {
+            mediaServingService.streamVideo(key, request, response);
+        }
+    }
+    
+    /**
+     * Storage key for the request path, with an optional URL prefix removed
+     */
+    private String storageKey(HttpServletRequest request, String prefix) {
+        String relativePath = request.getRequestURI().substring(request.getContextPath().length() + 1);
+        if (relativePath.startsWith(prefix)) {
+            relativePath = relativePath.substring(prefix.length());
+        }
+        if (relativePath.isEmpty() || relativePath.contains("..") || relativePath.contains("\\")) {
+            throw new ResourceNotFoundException("Media not found: " + relativePath);
+        }
+        return relativePath;
+    }
+}
@@ -0,0 +1,43 @@
+package dev.throwlytics.ThrowlyticsBackend.controller;
+
+import dev.throwlytics.ThrowlyticsBackend.dto.StorageUsageResponse;
+import dev.throwlytics.ThrowlyticsBackend.service.StorageQuotaService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Controller for storage usage endpoints
+ */
+@RestController
+@RequestMapping("/api/storage")
+public class StorageController {
+    
+    @Autowired
+    private StorageQuotaService storageQuotaService;
+    
+    /**
+     * Get the current user's storage usage
+     * GET /api/storage/usage
+     * 
+     * Headers:
+     *   Authorization: Bearer <JWT_TOKEN>
+     * 
+     * Success response (200 OK):
+     * {
+     *   "userId": 1,
+     *   "bytesUsed": 734003200,
+     *   "fileCount": 42,
+     *   "quotaBytes": 5368709120,
+     *   "bytesRemaining": 4634705920
+     * }
+     */
+    @GetMapping("/usage")
+    public ResponseEntity<StorageUsageResponse> getUsage(Authentication authentication) {
+        Long userId = (Long) authentication.getPrincipal();
+        return ResponseEntity.ok(storageQuotaService.getUsage(userId));
+    }
+}
@@ -0,0 +1,60 @@
+package dev.throwlytics.ThrowlyticsBackend.controller;
+
+import dev.throwlytics.ThrowlyticsBackend.exception.ResourceNotFoundException;
+import dev.throwlytics.ThrowlyticsBackend.service.MediaServingService;
+import dev.throwlytics.ThrowlyticsBackend.service.ThumbnailGenerationService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+/**
+ * Controller for serving thumbnails
+ */
+@RestController
+public class ThumbnailController {
+    
+    @Autowired
+    private ThumbnailGenerationService thumbnailGenerationService;
+    
+    @Autowired
+    private MediaServingService mediaServingService;
+    
+    /**
+     * On-demand thumbnail endpoint (lazy thumbnail mode)
+     * GET /thumbnails/lazy/{throwId}.jpg
+     * 
+     * The first request renders the thumbnail with FFmpeg and stores it on the throw;
+     * concurrent requests for the same throw wait for that single render.
+     * Later history loads return the stored thumbnail URL directly.
+     */
+    @GetMapping("/thumbnails/lazy/{throwId:\\d+}.jpg")
+    public void getLazyThumbnail(
+            @PathVariable Long throwId,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) throws IOException {
+        String thumbnailPath = thumbnailGenerationService.ensureThumbnail(throwId);
+        mediaServingService.serveThumbnail(thumbnailPath, request, response);
+    }
+    
+    /**
+     * Stored thumbnail endpoint
+     * GET /thumbnails/{userId}/{uuid}.jpg
+     * 
+     * Served from the in-memory hot media cache with a content-hash ETag.
+     * UUID-named files get Cache-Control: immutable; If-None-Match returns 304.
+     */
+    @GetMapping("/thumbnails/**")
+    public void getThumbnail(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String relativePath = request.getRequestURI().substring(request.getContextPath().length() + 1);
+        if (relativePath.contains("..") || relativePath.contains("\\")) {
+            throw new ResourceNotFoundException("Thumbnail not found: " + relativePath);
+        }
+        mediaServingService.serveThumbnail(relativePath, request, response);
+    }
+}
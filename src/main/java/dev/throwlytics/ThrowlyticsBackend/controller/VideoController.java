@@ -1,20 +1,45 @@
 package dev.throwlytics.ThrowlyticsBackend.controller;
 
+import dev.throwlytics.ThrowlyticsBackend.dto.CursorPage;
+import dev.throwlytics.ThrowlyticsBackend.dto.HistoryPageResponse;
+import dev.throwlytics.ThrowlyticsBackend.dto.MetricDistributionResponse;
+import dev.throwlytics.ThrowlyticsBackend.dto.PercentileRankResponse;
 import dev.throwlytics.ThrowlyticsBackend.dto.ReleaseDetectionResponse;
+import dev.throwlytics.ThrowlyticsBackend.dto.ThrowImportResponse;
+import dev.throwlytics.ThrowlyticsBackend.dto.ThrowSearchRequest;
+import dev.throwlytics.ThrowlyticsBackend.dto.ThrowStatsResponse;
 import dev.throwlytics.ThrowlyticsBackend.dto.VideoUploadResponse;
+import dev.throwlytics.ThrowlyticsBackend.exception.ResourceNotFoundException;
 import dev.throwlytics.ThrowlyticsBackend.model.ThowHistory;
 import dev.throwlytics.ThrowlyticsBackend.service.FileStorageService;
+import dev.throwlytics.ThrowlyticsBackend.service.MediaServingService;
+import dev.throwlytics.ThrowlyticsBackend.service.PercentileSketchService;
+import dev.throwlytics.ThrowlyticsBackend.service.ThrowExportService;
 import dev.throwlytics.ThrowlyticsBackend.service.ThrowHistoryService;
+import dev.throwlytics.ThrowlyticsBackend.service.ThrowImportService;
+import dev.throwlytics.ThrowlyticsBackend.service.ThrowStatsService;
+import dev.throwlytics.ThrowlyticsBackend.service.ThumbnailGenerationService;
+import dev.throwlytics.ThrowlyticsBackend.service.VideoIngestService;
 import dev.throwlytics.ThrowlyticsBackend.service.VideoProcessingService;
 import dev.throwlytics.ThrowlyticsBackend.service.VideoValidationService;
+import dev.throwlytics.ThrowlyticsBackend.storage.LocalFile;
+import dev.throwlytics.ThrowlyticsBackend.util.MediaUrlSigner;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Controller for video upload and processing endpoints
@@ -23,6 +48,11 @@ import java.util.List;
 @RequestMapping("/api/video")
 public class VideoController {
     
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    
+    // Clients may store history but must revalidate (cheap: 304 after one primary-key read)
+    private static final CacheControl HISTORY_CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+    
     @Autowired
     private FileStorageService fileStorageService;
     
@@ -35,6 +65,30 @@ public class VideoController {
     @Autowired
     private VideoValidationService videoValidationService;
     
+    @Autowired
+    private MediaServingService mediaServingService;
+    
+    @Autowired
+    private VideoIngestService videoIngestService;
+    
+    @Autowired
+    private MediaUrlSigner mediaUrlSigner;
+    
+    @Autowired
+    private ThrowStatsService throwStatsService;
+    
+    @Autowired
+    private PercentileSketchService percentileSketchService;
+    
+    @Autowired
+    private ThrowExportService throwExportService;
+    
+    @Autowired
+    private ThrowImportService throwImportService;
+    
+    @Autowired
+    private ThumbnailGenerationService thumbnailGenerationService;
+    
     /**
      * Upload video endpoint
      * POST /api/video/upload
@@ -56,8 +110,8 @@ public class VideoController {
      *   "videoWidth": 1080,
      *   "videoHeight": 1350,
      *   "fps": 60,
-     *   "videoUrl": "videos/1/uuid.mp4",
-     *   "thumbnailUrl": "thumbnails/1/uuid.jpg",
+     *   "videoUrl": "videos/1/3f/a2/uuid.mp4?exp=1736246400&uid=1&sig=...",
+     *   "thumbnailUrl": "thumbnails/placeholder.jpg?exp=1736246400&uid=1&sig=...",
      *   "uploadDate": "2025-01-07T10:30:00",
      *   "message": "Video processed successfully"
      * }
@@ -78,15 +132,18 @@ public class VideoController {
         // Throws FileStorageException if storage fails
         String videoPath = fileStorageService.storeVideo(file, userId);
         
+        // Move the MP4 index to the front so playback can start immediately
+        // (no-op if it is already there; failures keep the original file)
+        videoIngestService.prepareForPlayback(videoPath);
+        
         // Phase 3: Process video using Python service
         // Now we can process from the stored file location
         ReleaseDetectionResponse processingResult = null;
         String errorMessage = null;
         
-        try {
-            // Get the full path to the stored video file
-            java.nio.file.Path storedVideoPath = fileStorageService.getVideoPath(videoPath);
-            processingResult = videoProcessingService.processVideoFromFile(storedVideoPath);
+        try (LocalFile storedVideo = fileStorageService.fetchVideo(videoPath)) {
+            // Local copy of the stored video (the file itself on local storage)
+            processingResult = videoProcessingService.processVideoFromFile(storedVideo.getPath());
         } catch (RestClientException e) {
             // Python service unavailable or error
             errorMessage = "Video processing service unavailable: " + e.getMessage();
@@ -95,17 +152,19 @@ public class VideoController {
             errorMessage = "Error processing video: " + e.getMessage();
         }
         
-        // Phase 4: Save to ThrowHistory and generate thumbnail
-        // Throws ThumbnailGenerationException if thumbnail generation fails
+        // Phase 4: Save to ThrowHistory
+        // Thumbnail is generated asynchronously after commit; a placeholder is returned until then
         ThowHistory throwHistory = throwHistoryService.saveThrowHistory(userId, videoPath, processingResult);
         
         // Build response
         VideoUploadResponse response = new VideoUploadResponse();
         response.setUserId(userId);
-        response.setVideoUrl(videoPath);
+        response.setVideoUrl(mediaUrlSigner.sign(videoPath, userId));
         response.setThrowId(throwHistory.getThrowId());
         response.setUploadDate(throwHistory.getUploadDate());
-        response.setThumbnailUrl(throwHistory.getThumbnailUrl());
+        response.setThumbnailUrl(mediaUrlSigner.sign(
+            thumbnailGenerationService.resolveThumbnailUrl(throwHistory.getThrowId(), throwHistory.getThumbnailUrl()),
+            userId));
         response.setReleaseAngleDeg(throwHistory.getReleaseAngleDeg());
         response.setReleaseLateralOffsetNorm(throwHistory.getReleaseLateralOffsetNorm());
         response.setElbowAngleDeg(throwHistory.getElbowAngleDeg());
@@ -138,13 +197,21 @@ public class VideoController {
     }
     
     /**
-     * Get throw history for authenticated user
-     * GET /api/video/history
+     * Get throw history for authenticated user, newest first, one page at a time
+     * GET /api/video/history?limit=50&cursor=...
      * 
      * Headers:
      *   Authorization: Bearer <JWT_TOKEN>
      * 
+     * Query parameters:
+     *   limit  - page size (default app.history.page-size, capped at app.history.max-page-size)
+     *   cursor - value of X-Next-Cursor from the previous page (omit for the first page)
+     *   fields - comma-separated fields to return (default: all), e.g.
+     *            fields=throwId,uploadDate,thumbnailUrl,releaseAngleDeg
+     *            Only the selected columns are read from the database.
+     * 
      * Success response (200 OK):
+     * X-Next-Cursor: MjAyNS0wMS0wN1QxMDozMDowMCwx  (absent on the last page)
      * [
      *   {
      *     "throwId": 1,
@@ -154,18 +221,289 @@ public class VideoController {
      *     "videoWidth": 1080,
      *     "videoHeight": 1350,
      *     "fps": 60,
-     *     "videoUrl": "videos/1/uuid.mp4",
-     *     "thumbnailUrl": "thumbnails/1/uuid.jpg",
+     *     "videoUrl": "videos/1/3f/a2/uuid.mp4?exp=1736246400&uid=1&sig=...",
+     *     "thumbnailUrl": "thumbnails/1/uuid.jpg?exp=1736246400&uid=1&sig=...",
+     *     "hlsUrl": "hls/1/uuid/master.m3u8?exp=1736246400&uid=1&sig=...",
      *     "uploadDate": "2025-01-07T10:30:00"
      *   },
      *   ...
      * ]
+     * 
+     * 400 Bad Request - malformed cursor or unknown field
+     * 
+     * 304 Not Modified - If-None-Match matches the current ETag
+     * 
+     * Media URLs are HMAC-signed, scoped to the user and expire (app.media.url-ttl-seconds).
+     * The ETag changes when the user's throws change or the signed URLs roll over;
+     * recent pages are kept serialized in memory (app.history.cache.max-bytes).
      */
     @GetMapping("/history")
-    public ResponseEntity<List<ThowHistory>> getThrowHistory(Authentication authentication) {
+    public ResponseEntity<byte[]> getThrowHistory(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String fields,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            Authentication authentication
+    ) {
+        Long userId = (Long) authentication.getPrincipal();
+        HistoryPageResponse page = throwHistoryService.getThrowHistoryResponse(userId, cursor, limit, fields, ifNoneMatch);
+        if (page.isNotModified()) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(page.getEtag())
+                    .cacheControl(HISTORY_CACHE_CONTROL)
+                    .build();
+        }
+        
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(page.getEtag())
+                .cacheControl(HISTORY_CACHE_CONTROL)
+                .contentType(MediaType.APPLICATION_JSON);
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getJson());
+    }
+    
+    /**
+     * Search the authenticated user's throw history, newest first, one page at a time
+     * GET /api/video/history/search?releaseConfirmed=true&from=2025-03-01&to=2025-03-31
+     *                               &releaseAngleDegMin=35&releaseAngleDegMax=40
+     * 
+     * Headers:
+     *   Authorization: Bearer <JWT_TOKEN>
+     * 
+     * Query parameters (all optional, combined with AND):
+     *   from, to           - upload date range, ISO dates, both inclusive
+     *   releaseConfirmed   - true or false
+     *   {metric}Min, {metric}Max - inclusive range on releaseAngleDeg, releaseLateralOffsetNorm,
+     *                        elbowAngleDeg, shoulderAngleDeg or wristAngleDeg
+     *   limit, cursor, fields - as for /history; a cursor only continues the same search
+     * 
+     * Success response (200 OK): same rows and X-Next-Cursor header as /history
+     * 
+     * 400 Bad Request - inverted range, malformed value or cursor, or unknown field
+     */
+    @GetMapping("/history/search")
+    public ResponseEntity<List<Map<String, Object>>> searchThrowHistory(
+            @ModelAttribute ThrowSearchRequest filter,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String fields,
+            Authentication authentication
+    ) {
+        Long userId = (Long) authentication.getPrincipal();
+        CursorPage<Map<String, Object>> page = throwHistoryService.searchThrowHistory(userId, filter, cursor, limit, fields);
+        for (Map<String, Object> row : page.getItems()) {
+            for (String field : ThrowHistoryService.MEDIA_URL_FIELDS) {
+                if (row.containsKey(field)) {
+                    row.put(field, mediaUrlSigner.sign((String) row.get(field), userId));
+                }
+            }
+        }
+        
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
+    }
+    
+    /**
+     * Export the authenticated user's full throw history
+     * GET /api/video/history/export?format=ndjson|csv
+     * 
+     * Headers:
+     *   Authorization: Bearer <JWT_TOKEN>
+     * 
+     * Success response (200 OK), written while rows are read:
+     *   format=ndjson (default) - one JSON object per line
+     *   format=csv              - header row, then one row per throw
+     * Columns: throwId, uploadDate and all metrics (media URLs are not exported).
+     * 
+     * 400 Bad Request - unknown format
+     */
+    @GetMapping("/history/export")
+    public void exportThrowHistory(
+            @RequestParam(defaultValue = "ndjson") String format,
+            Authentication authentication,
+            HttpServletResponse response
+    ) throws IOException {
         Long userId = (Long) authentication.getPrincipal();
-        List<ThowHistory> history = throwHistoryService.getThrowHistoryByUserId(userId);
-        return ResponseEntity.ok(history);
+        boolean csv = "csv".equalsIgnoreCase(format);
+        if (!csv && !"ndjson".equalsIgnoreCase(format)) {
+            throw new IllegalArgumentException("Unsupported export format: " + format);
+        }
+        
+        response.setContentType(csv ? "text/csv;charset=UTF-8" : "application/x-ndjson");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+            "attachment; filename=\"throws-" + userId + (csv ? ".csv" : ".ndjson") + "\"");
+        if (csv) {
+            throwExportService.exportCsv(userId, response.getOutputStream());
+        } else {
+            throwExportService.exportNdjson(userId, response.getOutputStream());
+        }
+    }
+    
+    /**
+     * Bulk-import historical throws (metrics only, no videos) for the authenticated user
+     * POST /api/video/history/import
+     * 
+     * Headers:
+     *   Authorization: Bearer <JWT_TOKEN>
+     *   Content-Type: text/csv (header row first) or application/x-ndjson
+     * 
+     * Body: rows with the export's column names; uploadDate is required, metrics optional
+     *   uploadDate,releaseAngleDeg,elbowAngleDeg,...
+     *   2023-04-18T16:05:00,37.2,151.0,...
+     * 
+     * Success response (200 OK):
+     * {
+     *   "imported": 48213,
+     *   "rejected": 2,
+     *   "errors": ["line 17: releaseAngleDeg: For input string: \"n/a\"", ...]
+     * }
+     * 
+     * The body is spooled to scratch disk first (at most app.import.max-bytes), then
+     * parsed and inserted in JDBC batches in one transaction.
+     * 
+     * 503 Service Unavailable - not enough scratch space to spool the body
+     */
+    @PostMapping(value = "/history/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<ThrowImportResponse> importThrowHistory(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            Authentication authentication,
+            HttpServletRequest request
+    ) throws IOException {
+        Long userId = (Long) authentication.getPrincipal();
+        boolean csv = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType("text/csv"));
+        return ResponseEntity.ok(throwImportService.importThrows(userId, request.getInputStream(),
+            request.getContentLengthLong(), csv));
+    }
+    
+    /**
+     * Get throw statistics for authenticated user
+     * GET /api/video/stats
+     * 
+     * Headers:
+     *   Authorization: Bearer <JWT_TOKEN>
+     * 
+     * Success response (200 OK):
+     * {
+     *   "userId": 1,
+     *   "throwCount": 214,
+     *   "metrics": {
+     *     "releaseAngleDeg": { "count": 198, "mean": 36.4, "stdDev": 3.1, "min": 28.0, "max": 44.2 },
+     *     ...
+     *   },
+     *   "weekly": [
+     *     { "weekStart": "2025-01-06", "throwCount": 18, "metrics": { "releaseAngleDeg": { ... } } },
+     *     ...
+     *   ]
+     * }
+     * 
+     * Read from a per-user rollup, so latency does not depend on history size.
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<ThrowStatsResponse> getThrowStats(Authentication authentication) {
+        Long userId = (Long) authentication.getPrincipal();
+        return ResponseEntity.ok(throwStatsService.getStats(userId));
+    }
+    
+    /**
+     * Rank a metric value against other throwers
+     * GET /api/video/percentiles/rank?metric=releaseAngleDeg&value=37.5&cohort=all
+     * 
+     * Headers:
+     *   Authorization: Bearer <JWT_TOKEN>
+     * 
+     * Query parameters:
+     *   metric - releaseAngleDeg, releaseLateralOffsetNorm, elbowAngleDeg, shoulderAngleDeg or wristAngleDeg
+     *   value  - value to rank
+     *   cohort - all (default), plan:{planType} (e.g. plan:FREE) or year:{yyyy}
+     * 
+     * Success response (200 OK):
+     * {
+     *   "metric": "releaseAngleDeg",
+     *   "cohort": "all",
+     *   "value": 37.5,
+     *   "percentile": 68.2,
+     *   "sampleCount": 120345
+     * }
+     * percentile is null when the cohort has no samples.
+     * 
+     * 400 Bad Request - unknown metric
+     * 
+     * Answered from in-memory t-digest sketches (approximate, typically within 1%).
+     */
+    @GetMapping("/percentiles/rank")
+    public ResponseEntity<PercentileRankResponse> getPercentileRank(
+            @RequestParam String metric,
+            @RequestParam double value,
+            @RequestParam(defaultValue = PercentileSketchService.ALL) String cohort
+    ) {
+        return ResponseEntity.ok(percentileSketchService.getPercentileRank(metric, cohort, value));
+    }
+    
+    /**
+     * Distribution of a metric across other throwers
+     * GET /api/video/percentiles/distribution?metric=elbowAngleDeg&cohort=year:2025
+     * 
+     * Headers:
+     *   Authorization: Bearer <JWT_TOKEN>
+     * 
+     * Success response (200 OK):
+     * {
+     *   "metric": "elbowAngleDeg",
+     *   "cohort": "year:2025",
+     *   "sampleCount": 48211,
+     *   "min": 92.0,
+     *   "max": 178.5,
+     *   "quantiles": { "p5": 121.3, "p10": 126.0, "p25": 134.8, "p50": 143.1, "p75": 151.0, "p90": 158.2, "p95": 162.4 }
+     * }
+     * 
+     * 400 Bad Request - unknown metric
+     */
+    @GetMapping("/percentiles/distribution")
+    public ResponseEntity<MetricDistributionResponse> getMetricDistribution(
+            @RequestParam String metric,
+            @RequestParam(defaultValue = PercentileSketchService.ALL) String cohort
+    ) {
+        return ResponseEntity.ok(percentileSketchService.getDistribution(metric, cohort));
+    }
+    
+    /**
+     * Stream a throw video with HTTP Range support
+     * GET /api/video/throws/{throwId}/stream
+     * 
+     * Headers:
+     *   Authorization: Bearer <JWT_TOKEN>
+     *   Range: bytes=0-1048575 (optional, multiple ranges allowed)
+     *   If-Range: "etag" (optional)
+     * 
+     * Responses:
+     *   200 OK - full video
+     *   206 Partial Content - requested range(s)
+     *   404 Not Found - throw does not exist or belongs to another user
+     *   416 Range Not Satisfiable
+     */
+    @GetMapping("/throws/{throwId}/stream")
+    public void streamVideo(
+            @PathVariable Long throwId,
+            Authentication authentication,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) throws IOException {
+        Long userId = (Long) authentication.getPrincipal();
+        ThowHistory throwHistory = throwHistoryService.getThrowForUser(throwId, userId);
+        if (throwHistory.getVideoUrl() == null) {
+            // Imported throws carry metrics only
+            throw new ResourceNotFoundException("Throw has no video: " + throwId);
+        }
+        mediaServingService.streamVideo(
+            throwHistory.getVideoUrl(),
+            request,
+            response
+        );
     }
     
     /**
@@ -177,4 +515,3 @@ public class VideoController {
         return ResponseEntity.ok("Video service is running");
     }
 }
-
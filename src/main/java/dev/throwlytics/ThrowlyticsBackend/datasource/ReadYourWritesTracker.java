@@ -0,0 +1,58 @@
+package dev.throwlytics.ThrowlyticsBackend.datasource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers which users changed data in the last few seconds
+ * Their read-only transactions are routed to the primary until replicas have had time
+ * to replay the write, so a user never sees their own upload disappear.
+ * 
+ * The window is per process: only the node that handled the write knows about it.
+ * With several instances behind a load balancer, read-your-writes therefore needs
+ * session affinity (e.g. hashing on the Authorization header); a read that lands on
+ * another node within sticky-seconds may be served by a replica that has not replayed
+ * the write yet. History ETags do not depend on it (users.history_version is read in
+ * the same transaction as the page), so they stay consistent on every node.
+ */
+@Component
+public class ReadYourWritesTracker {
+    
+    @Value("${app.datasource.replica.sticky-seconds:10}")
+    private long stickySeconds;
+    
+    // Commit time of each user's latest write
+    private final ConcurrentHashMap<Long, Long> lastWrites = new ConcurrentHashMap<>();
+    
+    /**
+     * Note that a user's write has committed
+     */
+    public void recordWrite(Long userId) {
+        if (userId != null) {
+            lastWrites.put(userId, System.currentTimeMillis());
+        }
+    }
+    
+    /**
+     * Whether the user's reads must still go to the primary
+     */
+    public boolean isSticky(Long userId) {
+        if (userId == null) {
+            return false;
+        }
+        Long lastWrite = lastWrites.get(userId);
+        return lastWrite != null && System.currentTimeMillis() - lastWrite < stickySeconds * 1000;
+    }
+    
+    /**
+     * Drop entries whose window has passed
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void purgeExpired() {
+        long cutoff = System.currentTimeMillis() - stickySeconds * 1000;
+        lastWrites.values().removeIf(lastWrite -> lastWrite < cutoff);
+    }
+}
@@ -0,0 +1,145 @@
+package dev.throwlytics.ThrowlyticsBackend.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * DataSource that sends read-only transactions to a healthy replica
+ * 
+ * Routing happens when the physical connection is fetched, so this must sit behind a
+ * LazyConnectionDataSourceProxy (by then the transaction's read-only flag is known).
+ * Writes, non-transactional work and reads by users with a just-committed write
+ * (ReadYourWritesTracker) go to the primary, as does everything when no replica is
+ * within the lag limit.
+ * 
+ * Lag is measured against the primary's current WAL position, so a replica whose WAL
+ * receiver has disconnected falls out of rotation as soon as the primary moves on,
+ * even though it has replayed everything it received.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+    
+    public static final String PRIMARY = "primary";
+    
+    private static final String PRIMARY_LSN_QUERY = "SELECT pg_current_wal_lsn()::text";
+    
+    // Replay delay in seconds given the primary's LSN; 0 when the replica has replayed up
+    // to it (or is not a standby), -1 when it is behind and has replayed nothing yet
+    private static final String LAG_QUERY =
+        "SELECT CASE WHEN NOT pg_is_in_recovery() THEN 0 " +
+        "WHEN pg_last_wal_replay_lsn() >= CAST(? AS pg_lsn) THEN 0 " +
+        "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), -1) END";
+    
+    private final DataSource primary;
+    
+    private final List<String> replicaKeys;
+    private final Map<String, DataSource> replicas;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final double maxLagSeconds;
+    
+    // Replicas currently within the lag limit (replaced wholesale by refreshLag)
+    private volatile List<String> healthyReplicas = List.of();
+    private final AtomicInteger next = new AtomicInteger();
+    
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas,
+                                    ReadYourWritesTracker readYourWritesTracker, double maxLagSeconds) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        this.primary = primary;
+        this.replicas = new HashMap<>();
+        for (int i = 0; i < replicas.size(); i++) {
+            String key = "replica-" + i;
+            targets.put(key, replicas.get(i));
+            this.replicas.put(key, replicas.get(i));
+        }
+        this.replicaKeys = this.replicas.keySet().stream().sorted().toList();
+        this.readYourWritesTracker = readYourWritesTracker;
+        this.maxLagSeconds = maxLagSeconds;
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+    
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        if (readYourWritesTracker.isSticky(currentUserId())) {
+            return PRIMARY;
+        }
+        List<String> candidates = healthyReplicas;
+        if (candidates.isEmpty()) {
+            return PRIMARY;
+        }
+        return candidates.get(Math.floorMod(next.getAndIncrement(), candidates.size()));
+    }
+    
+    /**
+     * Measure each replica's replay lag and keep only those within the limit
+     * Unreachable replicas are dropped until a later check succeeds; if the primary's
+     * position cannot be read, all of them are.
+     */
+    public void refreshLag() {
+        String primaryLsn = primaryLsn();
+        List<String> healthy = replicaKeys.stream()
+                .filter(key -> {
+                    double lag = primaryLsn == null ? -1 : lagSeconds(key, primaryLsn);
+                    return lag >= 0 && lag <= maxLagSeconds;
+                })
+                .toList();
+        if (!healthy.equals(healthyReplicas)) {
+            System.out.println("Read replicas in rotation: " + (healthy.isEmpty() ? "none (primary only)" : healthy));
+        }
+        healthyReplicas = healthy;
+    }
+    
+    /**
+     * Current WAL position of the primary, or null if it cannot be queried
+     */
+    private String primaryLsn() {
+        try (Connection connection = primary.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(2);
+            try (ResultSet resultSet = statement.executeQuery(PRIMARY_LSN_QUERY)) {
+                return resultSet.next() ? resultSet.getString(1) : null;
+            }
+        } catch (SQLException e) {
+            System.err.println("Primary WAL position check failed: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Replay lag of one replica in seconds, or -1 if it cannot be queried
+     */
+    private double lagSeconds(String key, String primaryLsn) {
+        try (Connection connection = replicas.get(key).getConnection();
+             PreparedStatement statement = connection.prepareStatement(LAG_QUERY)) {
+            statement.setQueryTimeout(2);
+            statement.setString(1, primaryLsn);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getDouble(1) : -1;
+            }
+        } catch (SQLException e) {
+            System.err.println("Replica " + key + " lag check failed: " + e.getMessage());
+            return -1;
+        }
+    }
+    
+    private Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.getPrincipal() instanceof Long userId ? userId : null;
+    }
+}
@@ -0,0 +1,78 @@
+package dev.throwlytics.ThrowlyticsBackend.datasource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-thread tally of the SQL statements Hibernate runs while a request is handled
+ * 
+ * SqlStatementCountFilter opens a tally around each HTTP request; the Hibernate hooks
+ * (SqlStatementCountingInspector, SqlTimingSessionListener) add to it. Work on threads
+ * without an open tally (schedulers, async executors) is not counted.
+ */
+public final class SqlStatementCounter {
+    
+    private static final ThreadLocal<Tally> CURRENT = new ThreadLocal<>();
+    
+    private SqlStatementCounter() {
+    }
+    
+    /**
+     * Start counting on the current thread
+     */
+    public static Tally open() {
+        Tally tally = new Tally();
+        CURRENT.set(tally);
+        return tally;
+    }
+    
+    /**
+     * Stop counting on the current thread
+     */
+    public static void close() {
+        CURRENT.remove();
+    }
+    
+    static void recordStatement(String sql) {
+        Tally tally = CURRENT.get();
+        if (tally != null) {
+            tally.statements++;
+            tally.countsBySql.merge(sql, 1, Integer::sum);
+        }
+    }
+    
+    static void recordExecution(long nanos) {
+        Tally tally = CURRENT.get();
+        if (tally != null) {
+            tally.jdbcNanos += nanos;
+        }
+    }
+    
+    /**
+     * Statements and JDBC time for one request
+     */
+    public static class Tally {
+        
+        private int statements;
+        private long jdbcNanos;
+        private final Map<String, Integer> countsBySql = new HashMap<>();
+        
+        public int getStatements() {
+            return statements;
+        }
+        
+        public long getJdbcNanos() {
+            return jdbcNanos;
+        }
+        
+        /**
+         * The statement run most often, with its count (null if nothing ran)
+         * The same SELECT repeated many times in one request is the signature of an N+1 load.
+         */
+        public Map.Entry<String, Integer> mostRepeated() {
+            return countsBySql.entrySet().stream()
+                    .max(Map.Entry.comparingByValue())
+                    .orElse(null);
+        }
+    }
+}
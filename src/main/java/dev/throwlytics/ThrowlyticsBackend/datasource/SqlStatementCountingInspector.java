@@ -0,0 +1,17 @@
+package dev.throwlytics.ThrowlyticsBackend.datasource;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Hibernate statement inspector that counts every statement Hibernate prepares
+ * Registered through hibernate.session_factory.statement_inspector; the SQL is passed
+ * through unchanged.
+ */
+public class SqlStatementCountingInspector implements StatementInspector {
+    
+    @Override
+    public String inspect(String sql) {
+        SqlStatementCounter.recordStatement(sql);
+        return sql;
+    }
+}
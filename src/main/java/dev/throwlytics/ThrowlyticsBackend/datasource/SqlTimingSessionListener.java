@@ -0,0 +1,32 @@
+package dev.throwlytics.ThrowlyticsBackend.datasource;
+
+import org.hibernate.SessionEventListener;
+
+/**
+ * Hibernate session listener that adds JDBC execution time to the request's tally
+ * Registered through hibernate.session.events.auto, which creates one per session.
+ */
+public class SqlTimingSessionListener implements SessionEventListener {
+    
+    private long executionStart;
+    
+    @Override
+    public void jdbcExecuteStatementStart() {
+        executionStart = System.nanoTime();
+    }
+    
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        SqlStatementCounter.recordExecution(System.nanoTime() - executionStart);
+    }
+    
+    @Override
+    public void jdbcExecuteBatchStart() {
+        executionStart = System.nanoTime();
+    }
+    
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        SqlStatementCounter.recordExecution(System.nanoTime() - executionStart);
+    }
+}
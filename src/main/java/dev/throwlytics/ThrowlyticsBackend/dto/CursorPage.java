@@ -0,0 +1,18 @@
+package dev.throwlytics.ThrowlyticsBackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated list
+ * nextCursor is null on the last page.
+ */
+@Data
+@AllArgsConstructor
+public class CursorPage<T> {
+    
+    private List<T> items;
+    private String nextCursor;
+}
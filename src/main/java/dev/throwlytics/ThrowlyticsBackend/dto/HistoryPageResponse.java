@@ -0,0 +1,21 @@
+package dev.throwlytics.ThrowlyticsBackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Serialized throw history page and the ETag it was rendered under
+ * json and nextCursor are null when the client's copy is still current (304).
+ */
+@Data
+@AllArgsConstructor
+public class HistoryPageResponse {
+    
+    private String etag;
+    private byte[] json;
+    private String nextCursor;
+    
+    public boolean isNotModified() {
+        return json == null;
+    }
+}
@@ -0,0 +1,24 @@
+package dev.throwlytics.ThrowlyticsBackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Response DTO for the distribution of a metric within a cohort
+ * quantiles maps "p5", "p25", "p50", ... to values; empty if the cohort has no samples.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MetricDistributionResponse {
+    
+    private String metric;
+    private String cohort;
+    private long sampleCount;
+    private Double min;
+    private Double max;
+    private Map<String, Double> quantiles;
+}
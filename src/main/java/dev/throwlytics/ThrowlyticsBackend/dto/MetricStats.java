@@ -0,0 +1,20 @@
+package dev.throwlytics.ThrowlyticsBackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Aggregates of one throw metric over a period
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MetricStats {
+    
+    private long count;
+    private Double mean;
+    private Double stdDev;
+    private Double min;
+    private Double max;
+}
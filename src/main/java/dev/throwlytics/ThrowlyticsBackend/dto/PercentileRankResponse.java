@@ -0,0 +1,21 @@
+package dev.throwlytics.ThrowlyticsBackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Response DTO for where a value ranks within a cohort
+ * percentile is 0-100 (share of the cohort at or below value), null if the cohort is empty.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PercentileRankResponse {
+    
+    private String metric;
+    private String cohort;
+    private double value;
+    private Double percentile;
+    private long sampleCount;
+}
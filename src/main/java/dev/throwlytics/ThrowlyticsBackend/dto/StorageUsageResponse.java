@@ -0,0 +1,17 @@
+package dev.throwlytics.ThrowlyticsBackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StorageUsageResponse {
+    
+    private Long userId;
+    private long bytesUsed;
+    private long fileCount;
+    private long quotaBytes;
+    private long bytesRemaining;
+}
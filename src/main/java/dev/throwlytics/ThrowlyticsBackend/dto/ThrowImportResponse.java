@@ -0,0 +1,21 @@
+package dev.throwlytics.ThrowlyticsBackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Response DTO for a bulk throw import
+ * errors lists the first rejected rows ("line 12: uploadDate: ...").
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ThrowImportResponse {
+    
+    private long imported;
+    private long rejected;
+    private List<String> errors;
+}
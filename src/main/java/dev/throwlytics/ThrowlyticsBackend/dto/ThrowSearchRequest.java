@@ -0,0 +1,40 @@
+package dev.throwlytics.ThrowlyticsBackend.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+/**
+ * Filters for a throw history search, bound from query parameters
+ * Every filter is optional and they combine with AND. Date bounds are whole days
+ * (both inclusive); metric bounds are inclusive, in degrees (lateral offset normalized).
+ */
+@Data
+@NoArgsConstructor
+public class ThrowSearchRequest {
+    
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate from;
+    
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate to;
+    
+    private Boolean releaseConfirmed;
+    
+    private Double releaseAngleDegMin;
+    private Double releaseAngleDegMax;
+    
+    private Double releaseLateralOffsetNormMin;
+    private Double releaseLateralOffsetNormMax;
+    
+    private Double elbowAngleDegMin;
+    private Double elbowAngleDegMax;
+    
+    private Double shoulderAngleDegMin;
+    private Double shoulderAngleDegMax;
+    
+    private Double wristAngleDegMin;
+    private Double wristAngleDegMax;
+}
@@ -0,0 +1,23 @@
+package dev.throwlytics.ThrowlyticsBackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Response DTO for a user's throw statistics
+ * metrics holds all-time aggregates keyed by metric name; weekly is oldest first.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ThrowStatsResponse {
+    
+    private Long userId;
+    private long throwCount;
+    private Map<String, MetricStats> metrics;
+    private List<WeeklyThrowStats> weekly;
+}
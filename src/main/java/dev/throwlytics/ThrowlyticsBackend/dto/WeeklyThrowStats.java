@@ -0,0 +1,21 @@
+package dev.throwlytics.ThrowlyticsBackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Throw count and metric aggregates for one week (Monday to Sunday)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WeeklyThrowStats {
+    
+    private LocalDate weekStart;
+    private long throwCount;
+    private Map<String, MetricStats> metrics;
+}
@@ -0,0 +1,18 @@
+package dev.throwlytics.ThrowlyticsBackend.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Published when a throw history row is saved.
+ * Listeners that do slow work (FFmpeg, storage) should react after commit
+ * so they never hold the save transaction open.
+ */
+@Data
+@AllArgsConstructor
+public class ThrowSavedEvent {
+    private Long throwId;
+    private Long userId;
+    private String videoPath;
+    private Integer releaseFrame;
+}
@@ -96,6 +96,48 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
     }
     
+    /**
+     * Handle uploads that would exceed the user's storage quota
+     */
+    @ExceptionHandler(StorageQuotaExceededException.class)
+    public ResponseEntity<ErrorResponse> handleStorageQuotaExceededException(StorageQuotaExceededException ex) {
+        ErrorResponse errorResponse = new ErrorResponse(
+            ex.getMessage(),
+            LocalDateTime.now(),
+            null
+        );
+        
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(errorResponse);
+    }
+    
+    /**
+     * Handle requests refused because the node is short on scratch disk space
+     */
+    @ExceptionHandler(ScratchSpaceUnavailableException.class)
+    public ResponseEntity<ErrorResponse> handleScratchSpaceUnavailableException(ScratchSpaceUnavailableException ex) {
+        ErrorResponse errorResponse = new ErrorResponse(
+            ex.getMessage(),
+            LocalDateTime.now(),
+            null
+        );
+        
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(errorResponse);
+    }
+    
+    /**
+     * Handle missing throws or media files
+     */
+    @ExceptionHandler(ResourceNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleResourceNotFoundException(ResourceNotFoundException ex) {
+        ErrorResponse errorResponse = new ErrorResponse(
+            ex.getMessage(),
+            LocalDateTime.now(),
+            null
+        );
+        
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
+    }
+    
     /**
      * Handle runtime exceptions (e.g., "Email already exists")
      * This should be last among specific exception handlers
@@ -0,0 +1,15 @@
+package dev.throwlytics.ThrowlyticsBackend.exception;
+
+/**
+ * Exception thrown when a requested throw or media file does not exist
+ */
+public class ResourceNotFoundException extends RuntimeException {
+    
+    public ResourceNotFoundException(String message) {
+        super(message);
+    }
+    
+    public ResourceNotFoundException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,15 @@
+package dev.throwlytics.ThrowlyticsBackend.exception;
+
+/**
+ * Exception thrown when there is not enough local scratch space to start a job
+ */
+public class ScratchSpaceUnavailableException extends RuntimeException {
+    
+    public ScratchSpaceUnavailableException(String message) {
+        super(message);
+    }
+    
+    public ScratchSpaceUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
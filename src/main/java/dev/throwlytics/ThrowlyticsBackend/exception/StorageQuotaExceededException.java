@@ -0,0 +1,11 @@
+package dev.throwlytics.ThrowlyticsBackend.exception;
+
+/**
+ * Exception thrown when storing a file would take a user over their storage quota
+ */
+public class StorageQuotaExceededException extends RuntimeException {
+    
+    public StorageQuotaExceededException(String message) {
+        super(message);
+    }
+}
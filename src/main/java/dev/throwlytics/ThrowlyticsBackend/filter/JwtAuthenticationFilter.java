@@ -46,26 +46,21 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             // Extract token (remove "Bearer " prefix)
             final String token = authHeader.substring(7);
             
-            // Extract user ID from token
-            Long userId = jwtUtil.extractUserId(token);
-            String email = jwtUtil.extractEmail(token);
+            // Verify once (signature, expiry, user claims); repeat tokens come from the cache
+            JwtUtil.VerifiedToken verified = jwtUtil.verifyToken(token);
             
-            // Validate token
-            if (userId != null && email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                // Validate token
-                if (jwtUtil.validateToken(token, email)) {
-                    // Create authentication token
-                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userId,
-                            null,
-                            Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER"))
-                    );
-                    
-                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    
-                    // Set authentication in security context
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
-                }
+            if (verified != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+                // Create authentication token
+                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                        verified.userId(),
+                        null,
+                        Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER"))
+                );
+                
+                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                
+                // Set authentication in security context
+                SecurityContextHolder.getContext().setAuthentication(authToken);
             }
         } catch (Exception e) {
             // Token is invalid - continue without authentication
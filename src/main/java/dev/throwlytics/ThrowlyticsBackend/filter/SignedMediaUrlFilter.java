@@ -0,0 +1,120 @@
+package dev.throwlytics.ThrowlyticsBackend.filter;
+
+import dev.throwlytics.ThrowlyticsBackend.util.MediaUrlSigner;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Signed Media URL Filter
+ * Rejects media requests (/videos, /thumbnails, /hls, /uploads) that do not carry a
+ * valid, unexpired signature issued by MediaUrlSigner. Verification is a single HMAC
+ * with no database access, so media keeps static-file serving speed.
+ * 
+ * HLS players fetch playlists and segments by relative URL, which drops the query
+ * string. A valid signed request for an HLS package therefore also sets a cookie
+ * scoped to that package directory, which is accepted for the package's other files.
+ */
+@Component
+public class SignedMediaUrlFilter extends OncePerRequestFilter {
+    
+    private static final List<String> MEDIA_PREFIXES = List.of("/videos/", "/thumbnails/", "/hls/", "/uploads/");
+    
+    private static final String HLS_COOKIE = "media_token";
+    
+    @Autowired
+    private MediaUrlSigner mediaUrlSigner;
+    
+    @Value("${app.media.signed-urls.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${app.thumbnail.placeholder:thumbnails/placeholder.jpg}")
+    private String placeholderThumbnail;
+    
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!enabled) {
+            return true;
+        }
+        String path = mediaPath(request);
+        // The shared placeholder image is not user data
+        if (path.equals("/" + placeholderThumbnail)) {
+            return true;
+        }
+        return MEDIA_PREFIXES.stream().noneMatch(path::startsWith);
+    }
+    
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+        
+        String path = mediaPath(request);
+        String exp = request.getParameter("exp");
+        String uid = request.getParameter("uid");
+        String sig = request.getParameter("sig");
+        
+        if (mediaUrlSigner.verify(path, exp, uid, sig)) {
+            if (path.startsWith("/hls/")) {
+                setHlsCookie(path, exp, uid, sig, response);
+            }
+            filterChain.doFilter(request, response);
+            return;
+        }
+        
+        // Relative HLS fetches (variant playlists, segments) carry the package cookie instead
+        if (path.startsWith("/hls/") && hlsCookieValid(path, request)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        
+        response.sendError(HttpServletResponse.SC_FORBIDDEN, "Invalid or expired media URL");
+    }
+    
+    private boolean hlsCookieValid(String path, HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return false;
+        }
+        for (Cookie cookie : cookies) {
+            if (!HLS_COOKIE.equals(cookie.getName())) {
+                continue;
+            }
+            // Cookie value is exp.uid.sig (the signature is base64url, so it has no dots)
+            String[] parts = cookie.getValue().split("\\.");
+            if (parts.length == 3 && mediaUrlSigner.verify(path, parts[0], parts[1], parts[2])) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private void setHlsCookie(String path, String exp, String uid, String sig, HttpServletResponse response) {
+        String scope = "/" + mediaUrlSigner.scopeOf(path);
+        long maxAge = Math.max(0, Long.parseLong(exp) - System.currentTimeMillis() / 1000);
+        ResponseCookie cookie = ResponseCookie.from(HLS_COOKIE, exp + "." + uid + "." + sig)
+                .path(scope)
+                .maxAge(maxAge)
+                .httpOnly(true)
+                .sameSite("Lax")
+                .build();
+        response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+    }
+    
+    private String mediaPath(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+}
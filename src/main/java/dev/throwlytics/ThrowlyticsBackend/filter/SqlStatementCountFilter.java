@@ -0,0 +1,100 @@
+package dev.throwlytics.ThrowlyticsBackend.filter;
+
+import dev.throwlytics.ThrowlyticsBackend.datasource.SqlStatementCounter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SQL Statement Count Filter
+ * Counts the Hibernate statements and JDBC time of each request and records them as
+ *   http.server.requests.sql.statements  (distribution summary)
+ *   http.server.requests.sql.time        (timer)
+ * tagged with method and URI pattern, like http.server.requests.
+ * 
+ * Requests over the statement budget, or that repeat one statement more than the
+ * N+1 threshold, are logged. With app.sql.fail-on-violation (test profile) they fail
+ * instead, so N+1 regressions break the build.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class SqlStatementCountFilter extends OncePerRequestFilter {
+    
+    private static final Logger log = LoggerFactory.getLogger(SqlStatementCountFilter.class);
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${app.sql.statement-budget:20}")
+    private int statementBudget;
+    
+    // Same statement this many times in one request counts as an N+1 load
+    @Value("${app.sql.n-plus-one-threshold:5}")
+    private int nPlusOneThreshold;
+    
+    @Value("${app.sql.fail-on-violation:false}")
+    private boolean failOnViolation;
+    
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+        
+        SqlStatementCounter.Tally tally = SqlStatementCounter.open();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            SqlStatementCounter.close();
+        }
+        
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        DistributionSummary.builder("http.server.requests.sql.statements")
+                .description("SQL statements per request")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(tally.getStatements());
+        Timer.builder("http.server.requests.sql.time")
+                .description("JDBC execution time per request")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(tally.getJdbcNanos(), TimeUnit.NANOSECONDS);
+        
+        String violation = null;
+        Map.Entry<String, Integer> mostRepeated = tally.mostRepeated();
+        if (mostRepeated != null && mostRepeated.getValue() > nPlusOneThreshold) {
+            violation = "Possible N+1: " + request.getMethod() + " " + uri + " ran the same statement "
+                + mostRepeated.getValue() + " times: " + mostRepeated.getKey();
+        } else if (tally.getStatements() > statementBudget) {
+            violation = "Query budget exceeded: " + request.getMethod() + " " + uri + " ran "
+                + tally.getStatements() + " statements (budget " + statementBudget + ")";
+        }
+        if (violation != null) {
+            if (failOnViolation) {
+                throw new IllegalStateException(violation);
+            }
+            log.warn("{} in {} ms", violation, TimeUnit.NANOSECONDS.toMillis(tally.getJdbcNanos()));
+        }
+    }
+}
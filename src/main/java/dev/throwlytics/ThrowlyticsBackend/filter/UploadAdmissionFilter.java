@@ -0,0 +1,81 @@
+package dev.throwlytics.ThrowlyticsBackend.filter;
+
+import dev.throwlytics.ThrowlyticsBackend.exception.ScratchSpaceUnavailableException;
+import dev.throwlytics.ThrowlyticsBackend.service.ScratchSpaceService;
+import dev.throwlytics.ThrowlyticsBackend.service.StorageQuotaService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Upload Admission Filter
+ * Turns away video uploads before the multipart body is read, using the request's
+ * Content-Length:
+ *   413 - the user does not have enough storage quota left
+ *   503 - this node's scratch disk cannot hold the upload right now
+ * Runs after Spring Security, so the user is already authenticated. FileStorageService
+ * still makes the authoritative (atomic) quota reservation for the exact file size.
+ * The upload's size stays reserved against the scratch budget until the request ends
+ * and the container has deleted the spooled multipart files.
+ */
+@Component
+public class UploadAdmissionFilter extends OncePerRequestFilter {
+    
+    private static final String UPLOAD_PATH = "/api/video/upload";
+    
+    @Autowired
+    private StorageQuotaService storageQuotaService;
+    
+    @Autowired
+    private ScratchSpaceService scratchSpaceService;
+    
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod())
+            || !UPLOAD_PATH.equals(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+    
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+        
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        long contentLength = request.getContentLengthLong();
+        
+        if (authentication != null && authentication.getPrincipal() instanceof Long userId
+                && contentLength > 0 && !storageQuotaService.hasRoom(userId, contentLength)) {
+            response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, "Storage quota exceeded");
+            return;
+        }
+        
+        if (contentLength <= 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        
+        // The multipart body is spooled to scratch disk before the controller runs
+        ScratchSpaceService.Reservation spool;
+        try {
+            spool = scratchSpaceService.reserve("upload", contentLength);
+        } catch (ScratchSpaceUnavailableException e) {
+            response.setHeader("Retry-After", "60");
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Not enough scratch space, try again later");
+            return;
+        }
+        
+        try (spool) {
+            filterChain.doFilter(request, response);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package dev.throwlytics.ThrowlyticsBackend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lease on a cluster-wide job
+ * The node named in lockedBy may run the job until lockedUntil; after that any node
+ * can take the lease over, so a crashed holder never blocks the job for good.
+ */
+@Entity
+@Table(name = "jobLock")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobLock {
+    
+    @Id
+    @Column(length = 64)
+    private String name;
+    
+    @Column(nullable = false)
+    private LocalDateTime lockedUntil;
+    
+    @Column(length = 128)
+    private String lockedBy;
+}
@@ -0,0 +1,36 @@
+package dev.throwlytics.ThrowlyticsBackend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * Persisted t-digest of one throw metric over one cohort of throws
+ * Each node merges the samples it has seen since its last flush into this row, so the
+ * row is the population sketch across all nodes.
+ */
+@Entity
+@Table(name = "metricSketch")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MetricSketch {
+    
+    @EmbeddedId
+    private MetricSketchId id;
+    
+    // MergingDigest.asBytes()
+    @Column(nullable = false)
+    @ToString.Exclude
+    private byte[] digest;
+    
+    @Column(nullable = false)
+    private long sampleCount;
+    
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
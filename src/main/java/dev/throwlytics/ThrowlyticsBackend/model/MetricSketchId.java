@@ -0,0 +1,26 @@
+package dev.throwlytics.ThrowlyticsBackend.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Key of a population sketch: one metric for one cohort
+ */
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MetricSketchId implements Serializable {
+    
+    // "all", "plan:{PlanType}" or "year:{yyyy}"
+    @Column(nullable = false, length = 64)
+    private String cohort;
+    
+    @Column(nullable = false, length = 64)
+    private String metric;
+}
@@ -4,12 +4,20 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "throwHistory")
+@Table(
+    name = "throwHistory",
+    indexes = {
+        // Keyset pagination of a user's history (newest first)
+        @Index(name = "idx_throw_history_user_upload", columnList = "user_user_id, upload_date DESC, throw_id")
+    }
+)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -17,11 +25,14 @@ public class ThowHistory {
     
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "throw_id")
     private Long throwId;
     
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(nullable = false)
+    @JoinColumn(name = "user_user_id", nullable = false)
     @JsonIgnore  // Don't serialize user field in API responses
+    @ToString.Exclude  // Lazy: toString/equals/hashCode must not load the user
+    @EqualsAndHashCode.Exclude
     private User user;
     
     // Discus throw metrics (nullable - calculated later or from future analysis)
@@ -68,5 +79,31 @@ public class ThowHistory {
     // Video metadata
     private String thumbnailUrl;
     private String videoUrl;
+    
+    // Partition key of throw_history (monthly range partitions on PostgreSQL)
+    @Column(name = "upload_date", nullable = false)
     private LocalDateTime uploadDate;
+    
+    // HLS master playlist (null until background packaging finishes)
+    @Column(nullable = true)
+    private String hlsUrl;
+    
+    // Storage tiering: last time a user streamed the video (flushed periodically, not per read)
+    @Column(nullable = true)
+    private LocalDateTime lastAccessedAt;
+    
+    // True while the video file lives in the cold tier
+    @Column(nullable = true)
+    private Boolean videoArchived;
+    
+    // True once the background transcode has processed (or skipped) the video
+    @Column(nullable = true)
+    private Boolean videoTranscoded;
+    
+    // Failed background transcodes so far, and when the next attempt may run
+    @Column(nullable = true)
+    private Integer transcodeAttempts;
+    
+    @Column(nullable = true)
+    private LocalDateTime transcodeRetryAfter;
 }
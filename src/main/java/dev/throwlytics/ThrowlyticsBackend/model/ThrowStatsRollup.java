@@ -0,0 +1,43 @@
+package dev.throwlytics.ThrowlyticsBackend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Running aggregates of one throw metric for one user, all-time or for one week
+ * Updated by an atomic upsert in the transaction that saves the throw, so reading
+ * stats never scans the user's history.
+ */
+@Entity
+@Table(name = "throwStatsRollup")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ThrowStatsRollup {
+    
+    /**
+     * Bucket date used for the all-time aggregates
+     */
+    public static final LocalDate ALL_TIME = LocalDate.EPOCH;
+    
+    @EmbeddedId
+    private ThrowStatsRollupId id;
+    
+    @Column(nullable = false)
+    private long sampleCount;
+    
+    @Column(nullable = false)
+    private double valueSum;
+    
+    // For the standard deviation: sqrt(sumSquares / n - mean^2)
+    @Column(nullable = false)
+    private double valueSumSquares;
+    
+    private Double minValue;
+    
+    private Double maxValue;
+}
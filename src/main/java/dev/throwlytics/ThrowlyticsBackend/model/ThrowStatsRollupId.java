@@ -0,0 +1,30 @@
+package dev.throwlytics.ThrowlyticsBackend.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Key of a throw statistics bucket: one metric for one user over one period
+ */
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ThrowStatsRollupId implements Serializable {
+    
+    @Column(nullable = false)
+    private Long userId;
+    
+    @Column(nullable = false, length = 64)
+    private String metric;
+    
+    // Monday of the week, or ThrowStatsRollup.ALL_TIME for the all-time bucket
+    @Column(nullable = false)
+    private LocalDate bucket;
+}
@@ -41,6 +41,10 @@ public class User {
     
     private LocalDateTime updatedAt;
     
+    // Only changed by UserRepository.bumpHistoryVersion, never written back from the entity
+    @Column(nullable = false, insertable = false, updatable = false)
+    private long historyVersion;
+    
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -0,0 +1,38 @@
+package dev.throwlytics.ThrowlyticsBackend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Running totals of the bytes and files each user has in storage
+ * Updated with single conditional UPDATE statements, never read-modify-write.
+ */
+@Entity
+@Table(name = "userStorageUsage")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserStorageUsage {
+    
+    @Id
+    private Long userId;
+    
+    @Column(nullable = false)
+    private long bytesUsed;
+    
+    @Column(nullable = false)
+    private long fileCount;
+    
+    // Last time the counters were recomputed from storage
+    private LocalDateTime reconciledAt;
+    
+    // Uploads that reserved space but have not stored their file yet
+    @Column(nullable = false)
+    private int openReservations;
+    
+    private LocalDateTime lastReservedAt;
+}
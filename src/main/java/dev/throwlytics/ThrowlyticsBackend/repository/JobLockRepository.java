@@ -0,0 +1,39 @@
+package dev.throwlytics.ThrowlyticsBackend.repository;
+
+import dev.throwlytics.ThrowlyticsBackend.model.JobLock;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Repository for job leases
+ * Acquiring is a single conditional UPDATE, so two nodes can never both win.
+ */
+@Repository
+public interface JobLockRepository extends JpaRepository<JobLock, String> {
+    
+    /**
+     * Take the lease if it is free or has expired
+     * @return 1 if acquired, 0 if another node holds it (or the row does not exist)
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE JobLock l SET l.lockedUntil = :until, l.lockedBy = :owner " +
+           "WHERE l.name = :name AND l.lockedUntil <= :now")
+    int tryAcquire(@Param("name") String name, @Param("owner") String owner,
+                   @Param("now") LocalDateTime now, @Param("until") LocalDateTime until);
+    
+    /**
+     * Load a job's row and lock it until the transaction ends
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<JobLock> findForUpdateByName(String name);
+}
@@ -0,0 +1,24 @@
+package dev.throwlytics.ThrowlyticsBackend.repository;
+
+import dev.throwlytics.ThrowlyticsBackend.model.MetricSketch;
+import dev.throwlytics.ThrowlyticsBackend.model.MetricSketchId;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * Repository for persisted population sketches
+ */
+@Repository
+public interface MetricSketchRepository extends JpaRepository<MetricSketch, MetricSketchId> {
+    
+    /**
+     * Load a sketch and lock its row until the transaction ends, so concurrent flushes
+     * from several nodes merge one after another instead of overwriting each other
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<MetricSketch> findForUpdateById(MetricSketchId id);
+}
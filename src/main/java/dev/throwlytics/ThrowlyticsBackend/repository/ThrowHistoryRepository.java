@@ -1,20 +1,173 @@
 package dev.throwlytics.ThrowlyticsBackend.repository;
 
 import dev.throwlytics.ThrowlyticsBackend.model.ThowHistory;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Repository for ThrowHistory entity
  */
 @Repository
-public interface ThrowHistoryRepository extends JpaRepository<ThowHistory, Long> {
+public interface ThrowHistoryRepository extends JpaRepository<ThowHistory, Long>, ThrowHistoryRepositoryCustom {
     
     /**
      * Find all throws for a specific user, ordered by most recent first
      */
     List<ThowHistory> findByUserUserIdOrderByUploadDateDesc(Long userId);
+    
+    /**
+     * Stream all throws for a user, newest first, without materializing a list
+     * Must be consumed (and closed) inside a transaction so PostgreSQL uses a server-side
+     * cursor; rows arrive in fetch-size batches and are loaded read-only (no snapshots).
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT t FROM ThowHistory t WHERE t.user.userId = :userId ORDER BY t.uploadDate DESC, t.throwId ASC")
+    Stream<ThowHistory> streamByUserId(@Param("userId") Long userId);
+    
+    /**
+     * Find a throw only if it belongs to the given user
+     */
+    Optional<ThowHistory> findByThrowIdAndUserUserId(Long throwId, Long userId);
+    
+    /**
+     * Point a throw at its generated thumbnail
+     * Always runs in its own short transaction: callers include after-commit listeners,
+     * where joining the finished save transaction would leave the UPDATE uncommitted.
+     * @return number of rows updated (0 if the throw no longer exists)
+     */
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query("UPDATE ThowHistory t SET t.thumbnailUrl = :thumbnailUrl WHERE t.throwId = :throwId")
+    int updateThumbnailUrl(@Param("throwId") Long throwId, @Param("thumbnailUrl") String thumbnailUrl);
+    
+    /**
+     * Point a throw at its packaged HLS master playlist
+     * @return number of rows updated (0 if the throw no longer exists)
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ThowHistory t SET t.hlsUrl = :hlsUrl WHERE t.throwId = :throwId")
+    int updateHlsUrl(@Param("throwId") Long throwId, @Param("hlsUrl") String hlsUrl);
+    
+    /**
+     * Next batch of throws after the given ID, for walking the whole table in ID order
+     */
+    List<ThowHistory> findByThrowIdGreaterThanOrderByThrowIdAsc(Long throwId, Pageable pageable);
+    
+    /**
+     * Point a throw at moved media files
+     * @return number of rows updated (0 if the throw no longer exists)
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ThowHistory t SET t.videoUrl = :videoUrl, t.thumbnailUrl = :thumbnailUrl, t.hlsUrl = :hlsUrl " +
+           "WHERE t.throwId = :throwId")
+    int updateMediaUrls(@Param("throwId") Long throwId, @Param("videoUrl") String videoUrl,
+                        @Param("thumbnailUrl") String thumbnailUrl, @Param("hlsUrl") String hlsUrl);
+    
+    /**
+     * Which of the given video paths are referenced by a throw
+     */
+    @Query("SELECT t.videoUrl FROM ThowHistory t WHERE t.videoUrl IN :paths")
+    Set<String> findReferencedVideoUrls(@Param("paths") Collection<String> paths);
+    
+    /**
+     * Which of the given thumbnail paths are referenced by a throw
+     */
+    @Query("SELECT t.thumbnailUrl FROM ThowHistory t WHERE t.thumbnailUrl IN :paths")
+    Set<String> findReferencedThumbnailUrls(@Param("paths") Collection<String> paths);
+    
+    /**
+     * Which of the given HLS master playlist paths are referenced by a throw
+     */
+    @Query("SELECT t.hlsUrl FROM ThowHistory t WHERE t.hlsUrl IN :paths")
+    Set<String> findReferencedHlsUrls(@Param("paths") Collection<String> paths);
+    
+    /**
+     * Record the latest access to a video (never moves the timestamp backwards)
+     * @return number of rows updated
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ThowHistory t SET t.lastAccessedAt = :accessedAt " +
+           "WHERE t.videoUrl = :videoUrl AND (t.lastAccessedAt IS NULL OR t.lastAccessedAt < :accessedAt)")
+    int updateLastAccessedAt(@Param("videoUrl") String videoUrl, @Param("accessedAt") LocalDateTime accessedAt);
+    
+    /**
+     * Mark which tier a video lives in
+     * @return number of rows updated
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ThowHistory t SET t.videoArchived = :archived WHERE t.videoUrl = :videoUrl")
+    int updateVideoArchived(@Param("videoUrl") String videoUrl, @Param("archived") Boolean archived);
+    
+    /**
+     * Hot videos uploaded and last accessed before the given times, least recently used first
+     */
+    @Query("SELECT t FROM ThowHistory t " +
+           "WHERE t.videoUrl IS NOT NULL " +
+           "AND (t.videoArchived IS NULL OR t.videoArchived = false) " +
+           "AND t.uploadDate < :uploadedBefore " +
+           "AND (t.lastAccessedAt IS NULL OR t.lastAccessedAt < :accessedBefore) " +
+           "ORDER BY COALESCE(t.lastAccessedAt, t.uploadDate) ASC")
+    List<ThowHistory> findArchiveCandidates(@Param("uploadedBefore") LocalDateTime uploadedBefore,
+                                            @Param("accessedBefore") LocalDateTime accessedBefore,
+                                            Pageable pageable);
+    
+    /**
+     * Hot videos uploaded before the given time that have not been transcoded yet
+     * Videos that failed maxAttempts times, or are still backing off, are skipped.
+     */
+    @Query("SELECT t FROM ThowHistory t " +
+           "WHERE t.videoUrl IS NOT NULL " +
+           "AND (t.videoTranscoded IS NULL OR t.videoTranscoded = false) " +
+           "AND (t.videoArchived IS NULL OR t.videoArchived = false) " +
+           "AND t.uploadDate < :uploadedBefore " +
+           "AND (t.transcodeAttempts IS NULL OR t.transcodeAttempts < :maxAttempts) " +
+           "AND (t.transcodeRetryAfter IS NULL OR t.transcodeRetryAfter <= :now) " +
+           "ORDER BY t.throwId ASC")
+    List<ThowHistory> findTranscodeCandidates(@Param("uploadedBefore") LocalDateTime uploadedBefore,
+                                              @Param("maxAttempts") int maxAttempts,
+                                              @Param("now") LocalDateTime now,
+                                              Pageable pageable);
+    
+    /**
+     * Count a failed background transcode and hold the video back until retryAfter
+     * @return number of rows updated
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ThowHistory t SET t.transcodeAttempts = COALESCE(t.transcodeAttempts, 0) + 1, " +
+           "t.transcodeRetryAfter = :retryAfter WHERE t.throwId = :throwId")
+    int recordTranscodeFailure(@Param("throwId") Long throwId, @Param("retryAfter") LocalDateTime retryAfter);
+    
+    /**
+     * Mark a throw's video as processed by the background transcode
+     * @return number of rows updated
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ThowHistory t SET t.videoTranscoded = true WHERE t.throwId = :throwId")
+    int markVideoTranscoded(@Param("throwId") Long throwId);
 }
-
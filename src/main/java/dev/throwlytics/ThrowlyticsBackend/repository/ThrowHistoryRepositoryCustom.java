@@ -0,0 +1,29 @@
+package dev.throwlytics.ThrowlyticsBackend.repository;
+
+import dev.throwlytics.ThrowlyticsBackend.dto.ThrowSearchRequest;
+import dev.throwlytics.ThrowlyticsBackend.util.HistoryCursor;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Projection queries on ThrowHistory that need dynamically built JPQL
+ */
+public interface ThrowHistoryRepositoryCustom {
+    
+    /**
+     * One page of a user's history as plain rows containing only the selected fields
+     * Rows always include throwId and uploadDate (needed for the next cursor).
+     * 
+     * @param userId User ID
+     * @param filter Search filters (null for the whole history)
+     * @param after Cursor of the last row on the previous page (null for the first page)
+     * @param fields Field names from ThrowHistoryRepositoryImpl.HISTORY_FIELDS
+     * @param limit Maximum number of rows
+     * @return Rows ordered newest first, keyed by field name
+     * @throws IllegalArgumentException if a field is not selectable
+     */
+    List<Map<String, Object>> findHistoryRows(Long userId, ThrowSearchRequest filter, HistoryCursor after,
+                                              Collection<String> fields, int limit);
+}
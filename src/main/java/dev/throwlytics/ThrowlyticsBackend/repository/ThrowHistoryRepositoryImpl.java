@@ -0,0 +1,144 @@
+package dev.throwlytics.ThrowlyticsBackend.repository;
+
+import dev.throwlytics.ThrowlyticsBackend.dto.ThrowSearchRequest;
+import dev.throwlytics.ThrowlyticsBackend.util.HistoryCursor;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tuple-projection implementation of ThrowHistoryRepositoryCustom
+ * 
+ * Only the requested columns are selected, and results are plain tuples rather than
+ * managed entities: no entity hydration, no user proxy, no dirty-checking snapshot.
+ */
+public class ThrowHistoryRepositoryImpl implements ThrowHistoryRepositoryCustom {
+    
+    /**
+     * Fields a client may select, in response order
+     * Also the whitelist that keeps client input out of the JPQL.
+     */
+    public static final List<String> HISTORY_FIELDS = List.of(
+        "throwId",
+        "releaseAngle",
+        "releaseHeight",
+        "releaseFrame",
+        "releaseConfirmed",
+        "totalFrames",
+        "videoWidth",
+        "videoHeight",
+        "fps",
+        "releaseAngleDeg",
+        "releaseLateralOffsetNorm",
+        "elbowAngleDeg",
+        "shoulderAngleDeg",
+        "wristAngleDeg",
+        "thumbnailUrl",
+        "videoUrl",
+        "hlsUrl",
+        "uploadDate"
+    );
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Override
+    public List<Map<String, Object>> findHistoryRows(Long userId, ThrowSearchRequest filter, HistoryCursor after,
+                                                     Collection<String> fields, int limit) {
+        // Keyset columns are always selected; the rest in canonical order
+        Set<String> selected = new LinkedHashSet<>(List.of("throwId", "uploadDate"));
+        for (String field : HISTORY_FIELDS) {
+            if (fields.contains(field)) {
+                selected.add(field);
+            }
+        }
+        for (String field : fields) {
+            if (!HISTORY_FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Unknown history field: " + field);
+            }
+        }
+        
+        StringBuilder jpql = new StringBuilder("SELECT ");
+        String separator = "";
+        for (String field : selected) {
+            jpql.append(separator).append("t.").append(field).append(" AS ").append(field);
+            separator = ", ";
+        }
+        jpql.append(" FROM ThowHistory t WHERE t.user.userId = :userId");
+        Map<String, Object> filterParams = new HashMap<>();
+        if (filter != null) {
+            appendFilter(jpql, filterParams, filter);
+        }
+        if (after != null) {
+            // The redundant upper bound gives the planner an index range (and partition pruning) to seek to
+            jpql.append(" AND t.uploadDate <= :uploadDate"
+                + " AND (t.uploadDate < :uploadDate OR (t.uploadDate = :uploadDate AND t.throwId > :throwId))");
+        }
+        // Served from idx_throw_history_user_upload
+        jpql.append(" ORDER BY t.uploadDate DESC, t.throwId ASC");
+        
+        TypedQuery<Tuple> query = entityManager.createQuery(jpql.toString(), Tuple.class)
+                .setParameter("userId", userId)
+                .setMaxResults(limit);
+        filterParams.forEach(query::setParameter);
+        if (after != null) {
+            query.setParameter("uploadDate", after.uploadDate());
+            query.setParameter("throwId", after.throwId());
+        }
+        
+        return query.getResultList().stream()
+                .map(tuple -> {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    for (String field : selected) {
+                        row.put(field, tuple.get(field));
+                    }
+                    return row;
+                })
+                .toList();
+    }
+    
+    /**
+     * Append search conditions
+     * releaseConfirmed is inlined as a literal rather than bound, so PostgreSQL can match
+     * it against the partial index idx_throw_history_user_confirmed in any plan.
+     */
+    private void appendFilter(StringBuilder jpql, Map<String, Object> params, ThrowSearchRequest filter) {
+        if (filter.getFrom() != null) {
+            jpql.append(" AND t.uploadDate >= :fromDate");
+            params.put("fromDate", filter.getFrom().atStartOfDay());
+        }
+        if (filter.getTo() != null) {
+            jpql.append(" AND t.uploadDate < :toDate");
+            params.put("toDate", filter.getTo().plusDays(1).atStartOfDay());
+        }
+        if (filter.getReleaseConfirmed() != null) {
+            jpql.append(" AND t.releaseConfirmed = ").append(filter.getReleaseConfirmed() ? "true" : "false");
+        }
+        appendRange(jpql, params, "releaseAngleDeg", filter.getReleaseAngleDegMin(), filter.getReleaseAngleDegMax());
+        appendRange(jpql, params, "releaseLateralOffsetNorm",
+            filter.getReleaseLateralOffsetNormMin(), filter.getReleaseLateralOffsetNormMax());
+        appendRange(jpql, params, "elbowAngleDeg", filter.getElbowAngleDegMin(), filter.getElbowAngleDegMax());
+        appendRange(jpql, params, "shoulderAngleDeg", filter.getShoulderAngleDegMin(), filter.getShoulderAngleDegMax());
+        appendRange(jpql, params, "wristAngleDeg", filter.getWristAngleDegMin(), filter.getWristAngleDegMax());
+    }
+    
+    private void appendRange(StringBuilder jpql, Map<String, Object> params, String field, Double min, Double max) {
+        if (min != null) {
+            jpql.append(" AND t.").append(field).append(" >= :").append(field).append("Min");
+            params.put(field + "Min", min);
+        }
+        if (max != null) {
+            jpql.append(" AND t.").append(field).append(" <= :").append(field).append("Max");
+            params.put(field + "Max", max);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package dev.throwlytics.ThrowlyticsBackend.repository;
+
+import dev.throwlytics.ThrowlyticsBackend.model.ThrowStatsRollup;
+import dev.throwlytics.ThrowlyticsBackend.model.ThrowStatsRollupId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Repository for per-user throw statistics buckets
+ * Increments are single upserts (see ThrowStatsRollupRepositoryImpl), so concurrent
+ * uploads cannot lose samples.
+ */
+@Repository
+public interface ThrowStatsRollupRepository extends JpaRepository<ThrowStatsRollup, ThrowStatsRollupId>,
+        ThrowStatsRollupRepositoryCustom {
+    
+    /**
+     * A user's buckets for one period (e.g. ThrowStatsRollup.ALL_TIME)
+     */
+    List<ThrowStatsRollup> findByIdUserIdAndIdBucket(Long userId, LocalDate bucket);
+    
+    /**
+     * A user's weekly buckets from the given week on, oldest first
+     */
+    List<ThrowStatsRollup> findByIdUserIdAndIdBucketGreaterThanEqualOrderByIdBucketAsc(Long userId, LocalDate since);
+    
+    /**
+     * Remove all of a user's buckets
+     * @return number of buckets removed
+     */
+    @Modifying
+    @Query("DELETE FROM ThrowStatsRollup r WHERE r.id.userId = :userId")
+    int deleteByIdUserId(@Param("userId") Long userId);
+}
@@ -0,0 +1,35 @@
+package dev.throwlytics.ThrowlyticsBackend.repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Rollup writes that need database-specific SQL (PostgreSQL in production, H2 in tests)
+ */
+public interface ThrowStatsRollupRepositoryCustom {
+    
+    /**
+     * Add one sample per metric to each of the given buckets in a single statement,
+     * creating buckets as needed
+     * Joins the caller's transaction; the row locks are held until it commits.
+     * 
+     * @param userId Owner of the buckets
+     * @param buckets Bucket dates (e.g. ThrowStatsRollup.ALL_TIME and the throw's week)
+     * @param samples Sample value per metric
+     * @return number of bucket rows written
+     */
+    int accumulate(Long userId, Collection<LocalDate> buckets, Map<String, Double> samples);
+    
+    /**
+     * Rebuild every bucket from throw history in one statement
+     * @return number of buckets written
+     */
+    int rebuildFromHistory();
+    
+    /**
+     * Rebuild one user's buckets from their throw history (after deleteByIdUserId)
+     * @return number of buckets written
+     */
+    int rebuildForUser(Long userId);
+}
@@ -0,0 +1,171 @@
+package dev.throwlytics.ThrowlyticsBackend.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Native-SQL implementation of ThrowStatsRollupRepositoryCustom
+ * 
+ * Sample increments are one multi-row upsert: INSERT ... ON CONFLICT DO UPDATE on
+ * PostgreSQL, MERGE ... USING (VALUES ...) on H2, which has no ON CONFLICT. Rebuilds
+ * unpivot the metric columns with a CASE over a cross join instead of LATERAL, so the
+ * same statement runs on both; only the week truncation differs.
+ */
+public class ThrowStatsRollupRepositoryImpl implements ThrowStatsRollupRepositoryCustom {
+    
+    // Rollup metrics and their throw_history columns (null: one per throw)
+    private static final Map<String, String> METRIC_COLUMNS = new LinkedHashMap<>();
+    
+    static {
+        METRIC_COLUMNS.put("throws", null);
+        METRIC_COLUMNS.put("releaseAngleDeg", "release_angle_deg");
+        METRIC_COLUMNS.put("releaseLateralOffsetNorm", "release_lateral_offset_norm");
+        METRIC_COLUMNS.put("elbowAngleDeg", "elbow_angle_deg");
+        METRIC_COLUMNS.put("shoulderAngleDeg", "shoulder_angle_deg");
+        METRIC_COLUMNS.put("wristAngleDeg", "wrist_angle_deg");
+    }
+    
+    private static final String COLUMNS =
+        "(user_id, metric, bucket, sample_count, value_sum, value_sum_squares, min_value, max_value)";
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    private Boolean postgres;
+    
+    @Override
+    public int accumulate(Long userId, Collection<LocalDate> buckets, Map<String, Double> samples) {
+        if (buckets.isEmpty() || samples.isEmpty()) {
+            return 0;
+        }
+        
+        List<Object> params = new ArrayList<>();
+        StringBuilder rows = new StringBuilder();
+        for (LocalDate bucket : buckets) {
+            for (Map.Entry<String, Double> sample : samples.entrySet()) {
+                double value = sample.getValue();
+                if (!rows.isEmpty()) {
+                    rows.append(", ");
+                }
+                rows.append('(');
+                // H2 infers VALUES column types from the first row, so those are cast explicitly
+                boolean cast = params.isEmpty() && !isPostgres();
+                appendParam(rows, params, userId, cast ? "bigint" : null).append(", ");
+                appendParam(rows, params, sample.getKey(), cast ? "varchar(64)" : null).append(", ");
+                appendParam(rows, params, bucket, cast ? "date" : null).append(", ");
+                if (isPostgres()) {
+                    rows.append("1, ");
+                }
+                appendParam(rows, params, value, cast ? "double precision" : null).append(", ");
+                appendParam(rows, params, value * value, cast ? "double precision" : null).append(", ");
+                appendParam(rows, params, value, cast ? "double precision" : null).append(", ");
+                appendParam(rows, params, value, cast ? "double precision" : null);
+                rows.append(')');
+            }
+        }
+        
+        String sql;
+        if (isPostgres()) {
+            sql = "INSERT INTO throw_stats_rollup " + COLUMNS + " VALUES " + rows + " " +
+                  "ON CONFLICT (user_id, metric, bucket) DO UPDATE SET " +
+                  "sample_count = throw_stats_rollup.sample_count + EXCLUDED.sample_count, " +
+                  "value_sum = throw_stats_rollup.value_sum + EXCLUDED.value_sum, " +
+                  "value_sum_squares = throw_stats_rollup.value_sum_squares + EXCLUDED.value_sum_squares, " +
+                  "min_value = LEAST(throw_stats_rollup.min_value, EXCLUDED.min_value), " +
+                  "max_value = GREATEST(throw_stats_rollup.max_value, EXCLUDED.max_value)";
+        } else {
+            sql = "MERGE INTO throw_stats_rollup r USING (VALUES " + rows + ") " +
+                  "AS s(user_id, metric, bucket, value_sum, value_sum_squares, min_value, max_value) " +
+                  "ON r.user_id = s.user_id AND r.metric = s.metric AND r.bucket = s.bucket " +
+                  "WHEN MATCHED THEN UPDATE SET " +
+                  "sample_count = r.sample_count + 1, " +
+                  "value_sum = r.value_sum + s.value_sum, " +
+                  "value_sum_squares = r.value_sum_squares + s.value_sum_squares, " +
+                  "min_value = LEAST(r.min_value, s.min_value), " +
+                  "max_value = GREATEST(r.max_value, s.max_value) " +
+                  "WHEN NOT MATCHED THEN INSERT " + COLUMNS + " VALUES " +
+                  "(s.user_id, s.metric, s.bucket, 1, s.value_sum, s.value_sum_squares, s.min_value, s.max_value)";
+        }
+        
+        Query query = entityManager.createNativeQuery(sql);
+        for (int i = 0; i < params.size(); i++) {
+            query.setParameter(i + 1, params.get(i));
+        }
+        return query.executeUpdate();
+    }
+    
+    @Override
+    public int rebuildFromHistory() {
+        return entityManager.createNativeQuery(rebuildSql(false)).executeUpdate();
+    }
+    
+    @Override
+    public int rebuildForUser(Long userId) {
+        return entityManager.createNativeQuery(rebuildSql(true))
+                .setParameter(1, userId)
+                .executeUpdate();
+    }
+    
+    /**
+     * Aggregate throw history into buckets: every throw contributes each non-null metric
+     * to its all-time bucket and to the bucket for its week (Monday)
+     */
+    private String rebuildSql(boolean singleUser) {
+        String week = isPostgres()
+            ? "CAST(date_trunc('week', t.upload_date) AS date)"
+            : "CAST(DATE_TRUNC('ISO_WEEK', t.upload_date) AS DATE)";
+        
+        StringBuilder metrics = new StringBuilder();
+        StringBuilder values = new StringBuilder("CASE m.metric");
+        for (Map.Entry<String, String> metric : METRIC_COLUMNS.entrySet()) {
+            metrics.append(metrics.isEmpty() ? "" : " UNION ALL ")
+                   .append("SELECT '").append(metric.getKey()).append("' AS metric");
+            values.append(" WHEN '").append(metric.getKey()).append("' THEN ")
+                  .append(metric.getValue() != null ? "t." + metric.getValue() : "CAST(1 AS double precision)");
+        }
+        values.append(" END");
+        
+        return "INSERT INTO throw_stats_rollup " + COLUMNS + " " +
+               "SELECT v.user_id, v.metric, v.bucket, COUNT(*), SUM(v.sample_value), " +
+               "SUM(v.sample_value * v.sample_value), MIN(v.sample_value), MAX(v.sample_value) " +
+               "FROM (SELECT t.user_user_id AS user_id, m.metric AS metric, " +
+               "CASE WHEN b.weekly = 1 THEN " + week + " ELSE DATE '1970-01-01' END AS bucket, " +
+               values + " AS sample_value " +
+               "FROM throw_history t " +
+               "CROSS JOIN (" + metrics + ") m " +
+               "CROSS JOIN (SELECT 0 AS weekly UNION ALL SELECT 1) b " +
+               "WHERE t.upload_date IS NOT NULL" + (singleUser ? " AND t.user_user_id = ?1" : "") + ") v " +
+               "WHERE v.sample_value IS NOT NULL " +
+               "GROUP BY v.user_id, v.metric, v.bucket";
+    }
+    
+    private StringBuilder appendParam(StringBuilder sql, List<Object> params, Object value, String castType) {
+        params.add(value);
+        String placeholder = "?" + params.size();
+        return castType != null
+            ? sql.append("CAST(").append(placeholder).append(" AS ").append(castType).append(')')
+            : sql.append(placeholder);
+    }
+    
+    private boolean isPostgres() {
+        if (postgres == null) {
+            postgres = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName()));
+        }
+        return postgres;
+    }
+}
@@ -2,7 +2,11 @@ package dev.throwlytics.ThrowlyticsBackend.repository;
 
 import dev.throwlytics.ThrowlyticsBackend.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
@@ -22,5 +26,23 @@ public interface UserRepository extends JpaRepository<User, Long> {
      * @return true if user exists, false otherwise
      */
     boolean existsByEmail(String email);
+    
+    /**
+     * Bump a user's history version
+     * Joins the caller's transaction, so the new version commits together with the change.
+     * @param userId The user whose throws changed
+     * @return number of rows updated
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.historyVersion = u.historyVersion + 1 WHERE u.userId = :userId")
+    int bumpHistoryVersion(@Param("userId") Long userId);
+    
+    /**
+     * Current history version of a user
+     * @param userId The user ID
+     * @return the version, empty if the user does not exist
+     */
+    @Query("SELECT u.historyVersion FROM User u WHERE u.userId = :userId")
+    Optional<Long> findHistoryVersion(@Param("userId") Long userId);
 }
-
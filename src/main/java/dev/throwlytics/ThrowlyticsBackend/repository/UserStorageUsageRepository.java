@@ -0,0 +1,91 @@
+package dev.throwlytics.ThrowlyticsBackend.repository;
+
+import dev.throwlytics.ThrowlyticsBackend.model.UserStorageUsage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Repository for per-user storage counters
+ * All updates are single atomic statements, so concurrent uploads cannot lose increments.
+ */
+@Repository
+public interface UserStorageUsageRepository extends JpaRepository<UserStorageUsage, Long> {
+    
+    /**
+     * Add bytes to a user's usage only if the result stays within the quota
+     * The reservation stays open until settle or cancelReservation.
+     * @return 1 if reserved, 0 if the quota would be exceeded (or the row does not exist)
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE UserStorageUsage u SET u.bytesUsed = u.bytesUsed + :bytes, u.fileCount = u.fileCount + 1, " +
+           "u.openReservations = u.openReservations + 1, u.lastReservedAt = :now " +
+           "WHERE u.userId = :userId AND u.bytesUsed + :bytes <= :quota")
+    int reserve(@Param("userId") Long userId, @Param("bytes") long bytes, @Param("quota") long quota,
+                @Param("now") LocalDateTime now);
+    
+    /**
+     * Close a reservation whose file has been stored; the bytes stay charged
+     * @return number of rows updated
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE UserStorageUsage u SET u.openReservations = u.openReservations - 1 " +
+           "WHERE u.userId = :userId AND u.openReservations > 0")
+    int settle(@Param("userId") Long userId);
+    
+    /**
+     * Close a reservation whose file was not stored and give its bytes back
+     * @return number of rows updated
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE UserStorageUsage u SET u.bytesUsed = u.bytesUsed - :bytes, u.fileCount = u.fileCount - 1, " +
+           "u.openReservations = CASE WHEN u.openReservations > 0 THEN u.openReservations - 1 ELSE 0 END " +
+           "WHERE u.userId = :userId")
+    int cancelReservation(@Param("userId") Long userId, @Param("bytes") long bytes);
+    
+    /**
+     * Adjust a user's counters unconditionally (negative values release space)
+     * @return number of rows updated
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE UserStorageUsage u SET u.bytesUsed = u.bytesUsed + :bytes, u.fileCount = u.fileCount + :files " +
+           "WHERE u.userId = :userId")
+    int adjust(@Param("userId") Long userId, @Param("bytes") long bytes, @Param("files") long files);
+    
+    /**
+     * Add bytes to a user's usage without opening a reservation, only if the result stays within the quota
+     * @return 1 if charged, 0 if the quota would be exceeded (or the row does not exist)
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE UserStorageUsage u SET u.bytesUsed = u.bytesUsed + :bytes " +
+           "WHERE u.userId = :userId AND u.bytesUsed + :bytes <= :quota")
+    int adjustWithinQuota(@Param("userId") Long userId, @Param("bytes") long bytes, @Param("quota") long quota);
+    
+    /**
+     * Replace a user's counters with values recomputed from storage
+     * Only applies if the counters still hold the values read before storage was listed
+     * (nothing was charged or released meanwhile) and no upload is in flight, apart from
+     * reservations older than staleBefore, which are assumed abandoned and cleared.
+     * @return 1 if replaced, 0 if the user was skipped
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE UserStorageUsage u SET u.bytesUsed = :bytes, u.fileCount = :files, u.reconciledAt = :reconciledAt, " +
+           "u.openReservations = 0 " +
+           "WHERE u.userId = :userId AND u.bytesUsed = :expectedBytes AND u.fileCount = :expectedFiles " +
+           "AND (u.openReservations = 0 OR u.lastReservedAt < :staleBefore)")
+    int overwriteIfUnchanged(@Param("userId") Long userId, @Param("bytes") long bytes, @Param("files") long files,
+                             @Param("expectedBytes") long expectedBytes, @Param("expectedFiles") long expectedFiles,
+                             @Param("staleBefore") LocalDateTime staleBefore,
+                             @Param("reconciledAt") LocalDateTime reconciledAt);
+}
@@ -1,149 +1,113 @@
 package dev.throwlytics.ThrowlyticsBackend.service;
 
 import dev.throwlytics.ThrowlyticsBackend.exception.FileStorageException;
+import dev.throwlytics.ThrowlyticsBackend.exception.StorageQuotaExceededException;
+import dev.throwlytics.ThrowlyticsBackend.storage.LocalFile;
+import dev.throwlytics.ThrowlyticsBackend.storage.StorageBackend;
+import dev.throwlytics.ThrowlyticsBackend.storage.StorageObject;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
 import java.util.UUID;
 
 /**
  * Service for handling file storage operations
+ * Files are written through the configured StorageBackend (local disk or S3-compatible)
+ * and counted against the owner's storage quota;
+ * the returned relative paths (videos/{userId}/{ab}/{cd}/{uuid}.mp4, ...) are the storage keys.
  */
 @Service
 public class FileStorageService {
     
-    @Value("${app.upload.dir:uploads}")
-    private String uploadDir;
+    @Autowired
+    private StorageBackend storageBackend;
     
-    @Value("${app.upload.videos:uploads/videos}")
-    private String videosDir;
+    @Autowired
+    private VideoTieringService videoTieringService;
     
-    @Value("${app.upload.thumbnails:uploads/thumbnails}")
-    private String thumbnailsDir;
+    @Autowired
+    private StorageQuotaService storageQuotaService;
+    
+    @Autowired
+    private ScratchSpaceService scratchSpaceService;
+    
+    @Value("${app.thumbnail.placeholder:thumbnails/placeholder.jpg}")
+    private String placeholderThumbnail;
     
     /**
      * Store uploaded video file
      * @param file Multipart file
      * @param userId User ID for organizing files
-     * @return Path to stored file (relative to uploads directory)
+     * @return Path to stored file (relative storage key)
      * @throws FileStorageException if file storage fails
+     * @throws StorageQuotaExceededException if the user does not have room for the file
      */
     public String storeVideo(MultipartFile file, Long userId) {
-        Path filePath = null;
+        String key = null;
+        boolean reserved = false;
         try {
             // Validate file
             if (file == null || file.isEmpty()) {
                 throw new FileStorageException("File is null or empty");
             }
             
-            // Create user-specific directory
-            Path userVideoDir = Paths.get(videosDir, userId.toString());
-            Files.createDirectories(userVideoDir);
-            
-            // Verify directory was created and is writable
-            if (!Files.exists(userVideoDir)) {
-                throw new FileStorageException("Failed to create video directory: " + userVideoDir.toAbsolutePath());
-            }
-            if (!Files.isWritable(userVideoDir)) {
-                throw new FileStorageException("Video directory is not writable: " + userVideoDir.toAbsolutePath());
-            }
-            
             // Generate unique filename
             String originalFilename = file.getOriginalFilename();
             String extension = originalFilename != null && originalFilename.contains(".") 
                 ? originalFilename.substring(originalFilename.lastIndexOf("."))
                 : ".mp4";
             String filename = UUID.randomUUID().toString() + extension;
-            
-            // Store file
-            filePath = userVideoDir.resolve(filename);
+            key = shardedKey("videos", userId, filename);
             
             // Verify the multipart file is readable before attempting copy
             if (!file.getResource().isReadable()) {
                 throw new FileStorageException("Multipart file is not readable. File may have been deleted or corrupted.");
             }
             
-            // Verify we can get an input stream
-            try {
-                file.getInputStream().close(); // Test if we can open the stream
-            } catch (IOException e) {
-                throw new FileStorageException("Cannot read from uploaded file. File may be corrupted or already deleted.", e);
-            }
-            
-            // Check available disk space (optional, but helpful)
+            // Reserve quota before any bytes are written
             long fileSize = file.getSize();
-            long availableSpace = userVideoDir.toFile().getUsableSpace();
-            if (fileSize > availableSpace) {
-                throw new FileStorageException(
-                    String.format("Insufficient disk space. Required: %d bytes, Available: %d bytes", 
-                        fileSize, availableSpace)
-                );
-            }
+            storageQuotaService.reserve(userId, fileSize);
+            reserved = true;
             
-            // Copy file using buffered stream for better performance with large files
+            // Stream the upload to the storage backend
             // This handles both in-memory and disk-based multipart files
-            try (var inputStream = file.getInputStream();
-                 var outputStream = Files.newOutputStream(filePath)) {
-                
-                // Use a larger buffer (64KB) for better performance with large files
-                byte[] buffer = new byte[65536]; // 64KB buffer
-                long totalBytesRead = 0;
-                int bytesRead;
-                
-                while ((bytesRead = inputStream.read(buffer)) != -1) {
-                    outputStream.write(buffer, 0, bytesRead);
-                    totalBytesRead += bytesRead;
-                }
-                
-                outputStream.flush();
-                
-                // Verify we read the expected amount
-                if (totalBytesRead != fileSize) {
-                    throw new IOException(
-                        String.format("File size mismatch during copy. Expected: %d bytes, Read: %d bytes", 
-                            fileSize, totalBytesRead)
-                    );
-                }
+            try (InputStream inputStream = file.getInputStream()) {
+                storageBackend.put(key, inputStream, fileSize, file.getContentType());
             }
             
             // Verify file was written
-            if (!Files.exists(filePath)) {
-                throw new FileStorageException("File was not created: " + filePath.toAbsolutePath());
-            }
-            
-            long writtenSize = Files.size(filePath);
-            if (writtenSize == 0) {
-                Files.deleteIfExists(filePath);
+            final String storedKey = key;
+            StorageObject stored = storageBackend.stat(key)
+                    .orElseThrow(() -> new FileStorageException("File was not created: " + storedKey));
+            if (stored.getSize() != fileSize) {
+                storageBackend.delete(key);
                 throw new FileStorageException(
-                    String.format("File was written but is empty. Expected: %d bytes, Written: %d bytes", 
-                        fileSize, writtenSize)
+                    String.format("File size mismatch. Expected: %d bytes, Written: %d bytes", 
+                        fileSize, stored.getSize())
                 );
             }
             
-            if (writtenSize != fileSize) {
-                // Log warning but don't fail - file might be partially written
-                System.err.println(String.format(
-                    "Warning: File size mismatch. Expected: %d bytes, Written: %d bytes", 
-                    fileSize, writtenSize
-                ));
-            }
-            
-            // Return relative path for URL generation
-            return Paths.get("videos", userId.toString(), filename).toString().replace("\\", "/");
+            storageQuotaService.settle(userId);
+            return key;
         } catch (IOException e) {
-            // Clean up partial file if it exists
-            if (filePath != null) {
-                try {
-                    Files.deleteIfExists(filePath);
-                } catch (IOException cleanupEx) {
-                    // Ignore cleanup errors
-                }
-            }
+            discardVideo(key, userId, file, reserved);
             
             // Get more detailed error information
             String errorMessage = e.getMessage();
@@ -152,9 +116,8 @@ public class FileStorageService {
             }
             
             String errorDetails = String.format(
-                "Failed to store video file. Directory: %s, Target: %s, File size: %d bytes (%.2f MB), Error: %s", 
-                videosDir, 
-                filePath != null ? filePath.toAbsolutePath() : "unknown",
+                "Failed to store video file. Target: %s, File size: %d bytes (%.2f MB), Error: %s", 
+                key != null ? key : "unknown",
                 file != null ? file.getSize() : 0,
                 file != null ? file.getSize() / (1024.0 * 1024.0) : 0.0,
                 errorMessage
@@ -166,15 +129,11 @@ public class FileStorageService {
             e.printStackTrace();
             
             throw new FileStorageException(errorDetails, e);
+        } catch (FileStorageException | StorageQuotaExceededException e) {
+            discardVideo(key, userId, file, reserved);
+            throw e;
         } catch (Exception e) {
-            // Clean up partial file if it exists
-            if (filePath != null) {
-                try {
-                    Files.deleteIfExists(filePath);
-                } catch (IOException cleanupEx) {
-                    // Ignore cleanup errors
-                }
-            }
+            discardVideo(key, userId, file, reserved);
             
             throw new FileStorageException(
                 String.format("Unexpected error storing video file: %s", e.getMessage()), 
@@ -191,44 +150,145 @@ public class FileStorageService {
      * @throws FileStorageException if storage fails
      */
     public String storeThumbnail(byte[] thumbnailBytes, Long userId) {
+        String key = shardedKey("thumbnails", userId, UUID.randomUUID() + ".jpg");
         try {
-            // Create user-specific directory
-            Path userThumbnailDir = Paths.get(thumbnailsDir, userId.toString());
-            Files.createDirectories(userThumbnailDir);
-            
-            // Generate unique filename
-            String filename = UUID.randomUUID().toString() + ".jpg";
-            
-            // Store file
-            Path filePath = userThumbnailDir.resolve(filename);
-            Files.write(filePath, thumbnailBytes);
-            
-            // Return relative path
-            return Paths.get("thumbnails", userId.toString(), filename).toString().replace("\\", "/");
+            storageBackend.put(key, new ByteArrayInputStream(thumbnailBytes), thumbnailBytes.length,
+                MediaType.IMAGE_JPEG_VALUE);
+            storageQuotaService.charge(userId, thumbnailBytes.length, 1);
+            return key;
         } catch (IOException e) {
             throw new FileStorageException("Failed to store thumbnail: " + e.getMessage(), e);
         }
     }
     
     /**
-     * Get full path to video file
+     * Make a stored video available as a local file (for FFmpeg or the Python service)
+     * Close the returned handle when done; remote backends download a temporary copy.
+     * Archived videos are moved back to the hot tier first.
      * @param relativePath Relative path from storeVideo
-     * @return Full path to file
+     * @return Local file handle
+     * @throws FileStorageException if the video cannot be read
      */
-    public Path getVideoPath(String relativePath) {
-        return Paths.get(videosDir).resolve(relativePath.replace("videos/", ""));
+    public LocalFile fetchVideo(String relativePath) {
+        try {
+            Optional<StorageObject> object = videoTieringService.ensureHot(relativePath);
+            Optional<Path> direct = storageBackend.localPath(relativePath);
+            if (direct.isPresent()) {
+                return new LocalFile(direct.get(), false);
+            }
+            
+            // Remote backend: download into a scratch job that is removed when the file is closed
+            long size = object.map(StorageObject::getSize).orElse(0L);
+            ScratchSpaceService.Job job = scratchSpaceService.openJob("fetch", size);
+            try {
+                String filename = relativePath.substring(relativePath.lastIndexOf('/') + 1);
+                Path target = job.getDirectory().resolve(filename);
+                storageBackend.download(relativePath, target);
+                return new LocalFile(target, job::close);
+            } catch (IOException | RuntimeException e) {
+                job.close();
+                throw e;
+            }
+        } catch (IOException e) {
+            throw new FileStorageException("Failed to read video " + relativePath + ": " + e.getMessage(), e);
+        }
     }
     
     /**
-     * Initialize upload directories
+     * Get the HLS package directory for a stored video
+     * Each video gets its own directory named after the video file (without extension),
+     * mirroring the video's own layout under hls/.
+     * @param videoRelativePath Relative path from storeVideo (videos/{userId}/{ab}/{cd}/{uuid}.mp4)
+     * @return Relative path of the package directory (hls/{userId}/{ab}/{cd}/{uuid})
      */
-    public void initializeDirectories() {
+    public String getHlsPackagePath(String videoRelativePath) {
+        String withinVideos = videoRelativePath.substring(videoRelativePath.indexOf('/') + 1);
+        int extensionStart = withinVideos.lastIndexOf('.');
+        if (extensionStart > withinVideos.lastIndexOf('/')) {
+            withinVideos = withinVideos.substring(0, extensionStart);
+        }
+        return "hls/" + withinVideos;
+    }
+    
+    /**
+     * Build a sharded storage key: {area}/{userId}/{ab}/{cd}/{filename}
+     * ab and cd are the first two bytes of SHA-256(filename) in hex, which spreads
+     * a user's files over up to 65536 directories of a few entries each.
+     * @param area Top-level area (videos, thumbnails)
+     * @param userId Owner
+     * @param filename File name (normally {uuid}.{ext})
+     * @return Storage key
+     */
+    public String shardedKey(String area, Long userId, String filename) {
+        byte[] digest;
         try {
-            Files.createDirectories(Paths.get(videosDir));
-            Files.createDirectories(Paths.get(thumbnailsDir));
+            digest = MessageDigest.getInstance("SHA-256").digest(filename.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        String prefix = HexFormat.of().formatHex(digest, 0, 2);
+        return area + "/" + userId + "/" + prefix.substring(0, 2) + "/" + prefix.substring(2, 4) + "/" + filename;
+    }
+    
+    /**
+     * Whether a key already uses the sharded layout
+     * @param key Storage key such as videos/{userId}/{uuid}.mp4
+     */
+    public boolean isSharded(String key) {
+        return key.split("/").length >= 5;
+    }
+    
+    /**
+     * Initialize upload storage
+     */
+    public void initializeStorage() {
+        try {
+            createPlaceholderThumbnail();
         } catch (IOException e) {
-            throw new RuntimeException("Failed to create upload directories", e);
+            throw new RuntimeException("Failed to initialize upload storage", e);
+        }
+    }
+    
+    /**
+     * Write the placeholder thumbnail served while real thumbnails are generated
+     * Skipped if the file already exists so it can be replaced with a custom image.
+     */
+    private void createPlaceholderThumbnail() throws IOException {
+        if (storageBackend.stat(placeholderThumbnail).isPresent()) {
+            return;
+        }
+        
+        BufferedImage image = new BufferedImage(320, 180, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(new Color(0x2b2b2b));
+        graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+        graphics.dispose();
+        
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", baos);
+        byte[] bytes = baos.toByteArray();
+        storageBackend.put(placeholderThumbnail, new ByteArrayInputStream(bytes), bytes.length,
+            MediaType.IMAGE_JPEG_VALUE);
+    }
+    
+    /**
+     * Remove a partially stored video and give back its quota reservation
+     */
+    private void discardVideo(String key, Long userId, MultipartFile file, boolean reserved) {
+        deleteQuietly(key);
+        if (reserved) {
+            storageQuotaService.cancelReservation(userId, file.getSize());
+        }
+    }
+    
+    private void deleteQuietly(String key) {
+        if (key == null) {
+            return;
+        }
+        try {
+            storageBackend.delete(key);
+        } catch (IOException cleanupEx) {
+            // Ignore cleanup errors
         }
     }
 }
-
@@ -0,0 +1,144 @@
+package dev.throwlytics.ThrowlyticsBackend.service;
+
+import dev.throwlytics.ThrowlyticsBackend.datasource.ReadYourWritesTracker;
+import dev.throwlytics.ThrowlyticsBackend.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Per-user history versions and a size-bounded LRU of serialized history pages
+ * 
+ * Every change to a user's throws bumps users.history_version in the same transaction.
+ * The history ETag combines the version with the signed-URL expiry bucket (signed URLs
+ * in the body change when the bucket rolls over), so If-None-Match is answered with one
+ * primary-key read, and every node hands out the same ETag for the same history.
+ */
+@Service
+public class HistoryResponseCache {
+    
+    @Autowired
+    private ReadYourWritesTracker readYourWritesTracker;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Value("${app.history.cache.max-bytes:16777216}")
+    private long maxBytes;
+    
+    // Access-ordered so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, CachedPage> pages = new LinkedHashMap<>(256, 0.75f, true);
+    
+    private long totalBytes = 0;
+    
+    /**
+     * Serialized history page plus the cursor header sent with it
+     */
+    public static class CachedPage {
+        private final byte[] json;
+        private final String nextCursor;
+        
+        public CachedPage(byte[] json, String nextCursor) {
+            this.json = json;
+            this.nextCursor = nextCursor;
+        }
+        
+        public byte[] getJson() {
+            return json;
+        }
+        
+        public String getNextCursor() {
+            return nextCursor;
+        }
+    }
+    
+    /**
+     * Current history ETag for a user
+     * Call it in the same read-only transaction that renders the page, so the version and
+     * the rows come from the same database and a page is never cached under a version
+     * newer than its rows.
+     * @param userId User ID
+     * @param urlExpiry Expiry (epoch seconds) the page's media URLs are signed with
+     */
+    public String etag(Long userId, long urlExpiry) {
+        long version = userRepository.findHistoryVersion(userId).orElse(0L);
+        return "\"h" + userId + "-" + version + "-" + urlExpiry + "\"";
+    }
+    
+    /**
+     * Whether an If-None-Match header matches the current ETag
+     */
+    public boolean notModified(String ifNoneMatch, String etag) {
+        return MediaServingService.etagMatches(ifNoneMatch, etag);
+    }
+    
+    /**
+     * Return a cached page or render and cache it
+     * @param etag ETag computed before rendering (so a page is never cached under a newer version)
+     * @param query Request parameters that select the page (cursor, limit, fields)
+     * @param renderer Builds the page on a miss
+     */
+    public CachedPage getOrRender(String etag, String query, Supplier<CachedPage> renderer) {
+        String key = etag + "|" + query;
+        synchronized (this) {
+            CachedPage cached = pages.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        
+        // Render outside the lock; concurrent misses may render twice, which is harmless
+        CachedPage page = renderer.get();
+        put(key, page);
+        return page;
+    }
+    
+    private synchronized void put(String key, CachedPage page) {
+        if (page.getJson().length > maxBytes) {
+            return;
+        }
+        CachedPage previous = pages.put(key, page);
+        if (previous != null) {
+            totalBytes -= previous.getJson().length;
+        }
+        totalBytes += page.getJson().length;
+        
+        Iterator<Map.Entry<String, CachedPage>> iterator = pages.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            totalBytes -= iterator.next().getValue().getJson().length;
+            iterator.remove();
+        }
+    }
+    
+    /**
+     * Record that a user's history changed
+     * The version is bumped in the caller's transaction, so it becomes visible together
+     * with the change (and not at all if the change rolls back). Pages cached under the
+     * old version are no longer reachable and age out of the LRU. After commit the user's
+     * reads on this node stick to the primary for a moment, so the new version is not
+     * filled from a replica that has not replayed the change yet.
+     */
+    public void invalidate(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        userRepository.bumpHistoryVersion(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    readYourWritesTracker.recordWrite(userId);
+                }
+            });
+        } else {
+            readYourWritesTracker.recordWrite(userId);
+        }
+    }
+}
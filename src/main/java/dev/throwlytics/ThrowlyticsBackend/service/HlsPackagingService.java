@@ -0,0 +1,271 @@
+package dev.throwlytics.ThrowlyticsBackend.service;
+
+import dev.throwlytics.ThrowlyticsBackend.event.ThrowSavedEvent;
+import dev.throwlytics.ThrowlyticsBackend.model.ThowHistory;
+import dev.throwlytics.ThrowlyticsBackend.repository.ThrowHistoryRepository;
+import dev.throwlytics.ThrowlyticsBackend.storage.LocalFile;
+import dev.throwlytics.ThrowlyticsBackend.storage.StorageBackend;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Service that packages stored videos as adaptive bitrate HLS
+ * Each upload is encoded into a ladder of renditions with segment playlists and a
+ * master playlist, so players can switch quality based on available bandwidth.
+ * 
+ * Layout (storage keys): hls/{userId}/{ab}/{cd}/{videoId}/master.m3u8
+ *                                                  /{rendition}/index.m3u8
+ *                                                  /{rendition}/seg_000.ts ...
+ */
+@Service
+public class HlsPackagingService {
+    
+    @Autowired
+    private ThrowHistoryRepository throwHistoryRepository;
+    
+    private static final String MASTER_PLAYLIST = "master.m3u8";
+    
+    @Autowired
+    private FileStorageService fileStorageService;
+    
+    @Autowired
+    private StorageBackend storageBackend;
+    
+    @Autowired
+    private StorageQuotaService storageQuotaService;
+    
+    @Autowired
+    private ScratchSpaceService scratchSpaceService;
+    
+    @Autowired
+    private HistoryResponseCache historyResponseCache;
+    
+    @Value("${ffmpeg.path:ffmpeg}")
+    private String ffmpegPath;
+    
+    @Value("${app.hls.enabled:true}")
+    private boolean enabled;
+    
+    // Ladder as height:videoBitrate pairs, lowest first
+    @Value("${app.hls.renditions:360:800k,540:1400k,720:2800k}")
+    private String renditions;
+    
+    @Value("${app.hls.segment-seconds:2}")
+    private int segmentSeconds;
+    
+    @Value("${app.hls.timeout-minutes:30}")
+    private long timeoutMinutes;
+    
+    /**
+     * Rendition in the bitrate ladder
+     */
+    private record Rendition(int height, String bitrate) {
+        
+        String name() {
+            return height + "p";
+        }
+        
+        // Peak rate a little above the target, buffer of ~1.5x target
+        String maxrate() {
+            return Math.round(kbps() * 1.07) + "k";
+        }
+        
+        String bufsize() {
+            return Math.round(kbps() * 1.5) + "k";
+        }
+        
+        private long kbps() {
+            String value = bitrate.toLowerCase();
+            if (value.endsWith("m")) {
+                return Long.parseLong(value.substring(0, value.length() - 1)) * 1000;
+            }
+            return Long.parseLong(value.replace("k", ""));
+        }
+    }
+    
+    /**
+     * Package a throw's video after it has been committed
+     */
+    @Async("packagingTaskExecutor")
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onThrowSaved(ThrowSavedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            packageThrow(event.getThrowId());
+        } catch (IOException | RuntimeException e) {
+            System.err.println("HLS packaging failed for throw " + event.getThrowId() + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Encode the throw's video as HLS and store the master playlist URL on the throw
+     * The package is built in a scratch job directory and then written to storage with
+     * the master playlist last, so a package that has a master playlist is complete.
+     * 
+     * @param throwId Throw history ID
+     * @return Relative path to master playlist, or null if the throw no longer exists
+     * @throws IOException if encoding fails
+     */
+    public String packageThrow(Long throwId) throws IOException {
+        ThowHistory throwHistory = throwHistoryRepository.findById(throwId).orElse(null);
+        if (throwHistory == null) {
+            return null;
+        }
+        
+        String packagePath = fileStorageService.getHlsPackagePath(throwHistory.getVideoUrl());
+        
+        try (LocalFile video = fileStorageService.fetchVideo(throwHistory.getVideoUrl());
+             // The ladder together is at most about the size of the source
+             ScratchSpaceService.Job job = scratchSpaceService.openJob("hls", Files.size(video.getPath()))) {
+            Path workDir = job.getDirectory();
+            List<Rendition> ladder = selectLadder(throwHistory.getVideoHeight());
+            for (Rendition rendition : ladder) {
+                Files.createDirectories(workDir.resolve(rendition.name()));
+            }
+            
+            runFfmpeg(buildCommand(video.getPath(), ladder), workDir);
+            
+            Path masterPath = workDir.resolve(MASTER_PLAYLIST);
+            if (!Files.exists(masterPath)) {
+                throw new IOException("FFmpeg did not write a master playlist");
+            }
+            
+            // Segments and variant playlists first, master playlist last
+            List<Path> files;
+            try (Stream<Path> paths = Files.walk(workDir)) {
+                files = paths.filter(Files::isRegularFile)
+                        .filter(path -> !path.equals(masterPath))
+                        .toList();
+            }
+            long packageBytes = Files.size(masterPath);
+            for (Path file : files) {
+                String key = packagePath + "/" + workDir.relativize(file).toString().replace("\\", "/");
+                packageBytes += Files.size(file);
+                storageBackend.importFile(key, file, contentType(file));
+            }
+            storageBackend.importFile(packagePath + "/" + MASTER_PLAYLIST, masterPath, contentType(masterPath));
+            storageQuotaService.charge(storageQuotaService.ownerOf(packagePath), packageBytes, files.size() + 1);
+        }
+        
+        String masterPlaylist = packagePath + "/" + MASTER_PLAYLIST;
+        throwHistoryRepository.updateHlsUrl(throwId, masterPlaylist);
+        historyResponseCache.invalidate(storageQuotaService.ownerOf(packagePath));
+        return masterPlaylist;
+    }
+    
+    private String contentType(Path file) {
+        return file.getFileName().toString().endsWith(".m3u8") ? "application/vnd.apple.mpegurl" : "video/mp2t";
+    }
+    
+    /**
+     * Renditions to produce for a source of the given height
+     * Never upscales; a source smaller than every rung gets the lowest rung only.
+     */
+    private List<Rendition> selectLadder(Integer sourceHeight) {
+        List<Rendition> ladder = new ArrayList<>();
+        for (String rung : renditions.split(",")) {
+            String[] parts = rung.trim().split(":");
+            ladder.add(new Rendition(Integer.parseInt(parts[0]), parts[1]));
+        }
+        ladder.sort(Comparator.comparingInt(Rendition::height));
+        
+        if (sourceHeight == null) {
+            return ladder;
+        }
+        List<Rendition> selected = ladder.stream()
+                .filter(rendition -> rendition.height() <= sourceHeight)
+                .toList();
+        return selected.isEmpty() ? List.of(ladder.get(0)) : selected;
+    }
+    
+    /**
+     * Build one FFmpeg invocation that decodes once and encodes every rendition
+     * ffmpeg -i in.mp4 -filter_complex "[0:v]split=N[v0]...;[v0]scale=-2:360[v0out]..."
+     *        -map [v0out] -c:v:0 libx264 -b:v:0 800k ... -f hls -var_stream_map "v:0,name:360p ..."
+     */
+    private List<String> buildCommand(Path videoPath, List<Rendition> ladder) {
+        StringBuilder filter = new StringBuilder("[0:v]split=").append(ladder.size());
+        for (int i = 0; i < ladder.size(); i++) {
+            filter.append("[v").append(i).append("]");
+        }
+        StringBuilder streamMap = new StringBuilder();
+        for (int i = 0; i < ladder.size(); i++) {
+            filter.append(";[v").append(i).append("]scale=-2:").append(ladder.get(i).height())
+                  .append("[v").append(i).append("out]");
+            if (i > 0) {
+                streamMap.append(" ");
+            }
+            streamMap.append("v:").append(i).append(",name:").append(ladder.get(i).name());
+        }
+        
+        List<String> command = new ArrayList<>(List.of(
+                ffmpegPath,
+                "-i", videoPath.toAbsolutePath().toString(),
+                "-filter_complex", filter.toString()
+        ));
+        for (int i = 0; i < ladder.size(); i++) {
+            Rendition rendition = ladder.get(i);
+            command.addAll(List.of(
+                    "-map", "[v" + i + "out]",
+                    "-c:v:" + i, "libx264",
+                    "-b:v:" + i, rendition.bitrate(),
+                    "-maxrate:v:" + i, rendition.maxrate(),
+                    "-bufsize:v:" + i, rendition.bufsize()
+            ));
+        }
+        command.addAll(List.of(
+                "-preset", "veryfast",
+                // Keyframe at every segment boundary so renditions switch cleanly
+                "-force_key_frames", "expr:gte(t,n_forced*" + segmentSeconds + ")",
+                "-sc_threshold", "0",
+                // Throw review does not need audio
+                "-an",
+                "-f", "hls",
+                "-hls_time", String.valueOf(segmentSeconds),
+                "-hls_playlist_type", "vod",
+                "-hls_segment_filename", "%v/seg_%03d.ts",
+                "-master_pl_name", MASTER_PLAYLIST,
+                "-var_stream_map", streamMap.toString(),
+                "-y",
+                "%v/index.m3u8"
+        ));
+        return command;
+    }
+    
+    private void runFfmpeg(List<String> command, Path workDir) throws IOException {
+        ProcessBuilder processBuilder = new ProcessBuilder(command);
+        processBuilder.directory(workDir.toFile());
+        processBuilder.redirectErrorStream(true);
+        processBuilder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        
+        Process process = processBuilder.start();
+        try {
+            if (!process.waitFor(timeoutMinutes, TimeUnit.MINUTES)) {
+                process.destroyForcibly();
+                throw new IOException("FFmpeg HLS packaging timed out after " + timeoutMinutes + " minutes");
+            }
+            if (process.exitValue() != 0) {
+                throw new IOException("FFmpeg HLS packaging failed with exit code: " + process.exitValue());
+            }
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new IOException("HLS packaging interrupted", e);
+        }
+    }
+}
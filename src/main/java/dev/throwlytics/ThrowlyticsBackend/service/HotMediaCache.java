@@ -0,0 +1,114 @@
+package dev.throwlytics.ThrowlyticsBackend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size-bounded LRU cache of small, frequently served media files (thumbnails)
+ * File bytes are held in direct (off-heap) buffers so a warm cache does not
+ * grow the garbage-collected heap; only the small index lives on-heap.
+ */
+@Service
+public class HotMediaCache {
+    
+    @Value("${app.media.cache.max-bytes:67108864}")
+    private long maxBytes;
+    
+    @Value("${app.media.cache.max-entry-bytes:1048576}")
+    private long maxEntryBytes;
+    
+    // Access-ordered so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, CachedMedia> entries = new LinkedHashMap<>(256, 0.75f, true);
+    
+    private long totalBytes = 0;
+    
+    /**
+     * Cached media bytes plus the validators served with them
+     */
+    public static class CachedMedia {
+        private final ByteBuffer data;
+        private final String etag;
+        private final long lastModified;
+        
+        public CachedMedia(byte[] bytes, String etag, long lastModified) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+            buffer.put(bytes);
+            buffer.flip();
+            this.data = buffer.asReadOnlyBuffer();
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+        
+        /**
+         * Independent view of the bytes, safe to consume from any thread
+         */
+        public ByteBuffer getData() {
+            return data.duplicate();
+        }
+        
+        public int getSize() {
+            return data.capacity();
+        }
+        
+        public String getEtag() {
+            return etag;
+        }
+        
+        public long getLastModified() {
+            return lastModified;
+        }
+    }
+    
+    /**
+     * Look up cached media
+     * @param key Relative media path (e.g. thumbnails/1/uuid.jpg)
+     * @return Cached media, or null on a miss
+     */
+    public synchronized CachedMedia get(String key) {
+        return entries.get(key);
+    }
+    
+    /**
+     * Whether a file of this size is small enough to cache
+     */
+    public boolean isCacheable(long size) {
+        return size <= maxEntryBytes && size <= maxBytes;
+    }
+    
+    /**
+     * Add media to the cache, evicting least recently used entries to stay within budget
+     */
+    public synchronized void put(String key, CachedMedia media) {
+        if (!isCacheable(media.getSize())) {
+            return;
+        }
+        
+        CachedMedia previous = entries.put(key, media);
+        if (previous != null) {
+            totalBytes -= previous.getSize();
+        }
+        totalBytes += media.getSize();
+        
+        Iterator<Map.Entry<String, CachedMedia>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, CachedMedia> eldest = iterator.next();
+            totalBytes -= eldest.getValue().getSize();
+            iterator.remove();
+        }
+    }
+    
+    /**
+     * Drop a cached entry (e.g. when the file is deleted or moved)
+     */
+    public synchronized void invalidate(String key) {
+        CachedMedia removed = entries.remove(key);
+        if (removed != null) {
+            totalBytes -= removed.getSize();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package dev.throwlytics.ThrowlyticsBackend.service;
+
+import dev.throwlytics.ThrowlyticsBackend.model.JobLock;
+import dev.throwlytics.ThrowlyticsBackend.repository.JobLockRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Service that keeps a scheduled job on one node at a time
+ * Every node fires the same @Scheduled methods; the one that wins the job's lease row
+ * runs it and the others skip. Leases expire, so a node that dies mid-run only holds
+ * the job until its lease runs out.
+ * 
+ * One-off work that must happen exactly once across the cluster (e.g. seeding a table)
+ * instead locks the job's row for the length of its transaction.
+ */
+@Service
+public class JobLockService {
+    
+    @Autowired
+    private JobLockRepository jobLockRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    // Identifies this process in job_lock.locked_by
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+    
+    /**
+     * Try to take a job's lease
+     * @param name Job name
+     * @param leaseTime Upper bound on how long the job runs
+     * @return true if this node now holds the lease and should run the job
+     */
+    public boolean tryLock(String name, Duration leaseTime) {
+        LocalDateTime now = LocalDateTime.now();
+        createIfAbsent(name, now);
+        return jobLockRepository.tryAcquire(name, owner, now, now.plus(leaseTime)) == 1;
+    }
+    
+    /**
+     * Lock a job's row until the current transaction ends
+     * Other nodes calling this for the same job block until the holder commits or rolls
+     * back, so they see whatever it wrote.
+     * @param name Job name
+     * @throws IllegalStateException if no transaction is active
+     */
+    public void lockForTransaction(String name) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("lockForTransaction needs an active transaction");
+        }
+        // Create the row outside the caller's transaction: a failed insert would abort it on PostgreSQL
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_NOT_SUPPORTED);
+        transactionTemplate.executeWithoutResult(status -> createIfAbsent(name, LocalDateTime.now()));
+        
+        jobLockRepository.findForUpdateByName(name);
+    }
+    
+    private void createIfAbsent(String name, LocalDateTime now) {
+        if (!jobLockRepository.existsById(name)) {
+            try {
+                // Already expired: locked_until is rounded to microseconds, so "now" could round past it
+                jobLockRepository.saveAndFlush(new JobLock(name, now.minusSeconds(1), null));
+            } catch (DataIntegrityViolationException e) {
+                // Another node created it first
+            }
+        }
+    }
+}
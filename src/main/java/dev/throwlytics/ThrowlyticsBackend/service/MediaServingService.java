@@ -0,0 +1,399 @@
+package dev.throwlytics.ThrowlyticsBackend.service;
+
+import dev.throwlytics.ThrowlyticsBackend.exception.ResourceNotFoundException;
+import dev.throwlytics.ThrowlyticsBackend.storage.StorageBackend;
+import dev.throwlytics.ThrowlyticsBackend.storage.StorageObject;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Service for serving stored media over HTTP
+ * Thumbnails are served from HotMediaCache with strong content-hash ETags,
+ * so repeat grid loads cost a 304 or a memory copy instead of a disk read.
+ * Videos and HLS files are streamed with full byte-range support, zero-copy when
+ * the storage backend keeps them on local disk.
+ */
+@Service
+public class MediaServingService {
+    
+    // UUID-named files are never rewritten, so clients may cache them forever
+    private static final Pattern IMMUTABLE_NAME = Pattern.compile(
+        ".*/[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}\\.[a-z0-9]+$"
+    );
+    
+    private static final String CACHE_IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final String CACHE_REVALIDATE = "public, no-cache";
+    
+    // Tomcat request attributes for handing a file region to the connector's sendfile
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    
+    @Autowired
+    private HotMediaCache hotMediaCache;
+    
+    @Autowired
+    private StorageBackend storageBackend;
+    
+    @Autowired
+    private VideoTieringService videoTieringService;
+    
+    /**
+     * Serve a thumbnail, answering conditional requests with 304
+     * 
+     * @param relativePath Relative thumbnail path (e.g. thumbnails/1/uuid.jpg)
+     * @param request Current request (for If-None-Match)
+     * @param response Response to write to
+     * @throws ResourceNotFoundException if the thumbnail does not exist
+     */
+    public void serveThumbnail(String relativePath, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        HotMediaCache.CachedMedia media = hotMediaCache.get(relativePath);
+        if (media == null) {
+            media = loadThumbnail(relativePath);
+        }
+        
+        response.setHeader(HttpHeaders.ETAG, media.getEtag());
+        response.setHeader(HttpHeaders.CACHE_CONTROL,
+            IMMUTABLE_NAME.matcher(relativePath).matches() ? CACHE_IMMUTABLE : CACHE_REVALIDATE);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, media.getLastModified());
+        
+        if (etagMatches(request.getHeader(HttpHeaders.IF_NONE_MATCH), media.getEtag())) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        
+        response.setContentType(MediaType.IMAGE_JPEG_VALUE);
+        response.setContentLength(media.getSize());
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+        
+        WritableByteChannel channel = Channels.newChannel(response.getOutputStream());
+        channel.write(media.getData());
+    }
+    
+    /**
+     * Stream a stored video with HTTP Range support
+     * 
+     * @param key Storage key of the video (e.g. videos/1/uuid.mp4)
+     * @param request Current request (Range, If-Range, If-None-Match)
+     * @param response Response to write to
+     * @throws ResourceNotFoundException if the video does not exist
+     */
+    public void streamVideo(String key, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        // Archived videos are moved back to the hot tier before the first byte is sent
+        videoTieringService.recordAccess(key);
+        StorageObject object = videoTieringService.ensureHot(key)
+                .orElseThrow(() -> new ResourceNotFoundException("Media not found: " + key));
+        streamObject(object, "private, max-age=3600", request, response);
+    }
+    
+    /**
+     * Serve a file from an HLS package
+     * Packages are written once with the master playlist last, so every file is immutable.
+     * 
+     * @param key Storage key (e.g. hls/1/uuid/720p/seg_000.ts)
+     * @param request Current request
+     * @param response Response to write to
+     * @throws ResourceNotFoundException if the file does not exist
+     */
+    public void serveHls(String key, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        StorageObject object = storageBackend.stat(key)
+                .orElseThrow(() -> new ResourceNotFoundException("Media not found: " + key));
+        streamObject(object, CACHE_IMMUTABLE, request, response);
+    }
+    
+    /**
+     * Stream any stored object with HTTP Range support
+     * Handles single ranges, multiple ranges (multipart/byteranges) and If-Range.
+     * When the backend keeps the object on local disk, single regions are handed to
+     * Tomcat's sendfile (or copied with FileChannel.transferTo); otherwise the requested
+     * ranges are streamed from the backend. Nothing is buffered on-heap.
+     */
+    private void streamObject(StorageObject object, String cacheControl, HttpServletRequest request,
+                              HttpServletResponse response) throws IOException {
+        String key = object.getKey();
+        Optional<Path> localPath = storageBackend.localPath(key);
+        
+        long length = object.getSize();
+        long lastModified = object.getLastModified();
+        String etag = fileEtag(length, lastModified);
+        String contentType = contentTypeOf(key);
+        
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        
+        if (etagMatches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        
+        boolean headOnly = "HEAD".equals(request.getMethod());
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        
+        // No range, or If-Range validator no longer matches: send the whole file
+        if (rangeHeader == null || !ifRangeMatches(request, etag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(contentType);
+            response.setContentLengthLong(length);
+            if (!headOnly) {
+                sendRegion(key, localPath, 0, length, request, response);
+            }
+            return;
+        }
+        
+        long[][] regions;
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+            regions = new long[ranges.size()][];
+            long requestedBytes = 0;
+            for (int i = 0; i < ranges.size(); i++) {
+                long start = ranges.get(i).getRangeStart(length);
+                long end = ranges.get(i).getRangeEnd(length);
+                if (start >= length || end < start) {
+                    throw new IllegalArgumentException("Range not satisfiable: " + ranges.get(i));
+                }
+                regions[i] = new long[] {start, end};
+                requestedBytes += end - start + 1;
+            }
+            // Reject overlapping range sets that ask for more than the whole file
+            if (requestedBytes > length && regions.length > 1) {
+                throw new IllegalArgumentException("Requested ranges exceed file length");
+            }
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            return;
+        }
+        
+        if (regions.length == 0) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(contentType);
+            response.setContentLengthLong(length);
+            if (!headOnly) {
+                sendRegion(key, localPath, 0, length, request, response);
+            }
+            return;
+        }
+        
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        
+        if (regions.length == 1) {
+            long start = regions[0][0];
+            long end = regions[0][1];
+            response.setContentType(contentType);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            response.setContentLengthLong(end - start + 1);
+            if (!headOnly) {
+                sendRegion(key, localPath, start, end - start + 1, request, response);
+            }
+            return;
+        }
+        
+        // Multiple ranges: multipart/byteranges body with one part per region
+        String boundary = UUID.randomUUID().toString();
+        byte[][] partHeaders = new byte[regions.length][];
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        long contentLength = closing.length;
+        for (int i = 0; i < regions.length; i++) {
+            partHeaders[i] = ("\r\n--" + boundary + "\r\n"
+                + "Content-Type: " + contentType + "\r\n"
+                + "Content-Range: bytes " + regions[i][0] + "-" + regions[i][1] + "/" + length + "\r\n"
+                + "\r\n").getBytes(StandardCharsets.US_ASCII);
+            contentLength += partHeaders[i].length + (regions[i][1] - regions[i][0] + 1);
+        }
+        
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        if (headOnly) {
+            return;
+        }
+        
+        OutputStream outputStream = response.getOutputStream();
+        if (localPath.isPresent()) {
+            WritableByteChannel target = Channels.newChannel(outputStream);
+            try (FileChannel source = FileChannel.open(localPath.get(), StandardOpenOption.READ)) {
+                for (int i = 0; i < regions.length; i++) {
+                    outputStream.write(partHeaders[i]);
+                    transfer(source, regions[i][0], regions[i][1] - regions[i][0] + 1, target);
+                }
+            }
+        } else {
+            for (int i = 0; i < regions.length; i++) {
+                outputStream.write(partHeaders[i]);
+                copyRange(key, regions[i][0], regions[i][1] - regions[i][0] + 1, outputStream);
+            }
+        }
+        outputStream.write(closing);
+        outputStream.flush();
+    }
+    
+    /**
+     * Send one contiguous region of an object as the response body
+     * Uses the connector's sendfile (kernel zero-copy) when the object is on local disk.
+     */
+    private void sendRegion(String key, Optional<Path> localPath, long start, long count,
+                            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (localPath.isEmpty()) {
+            copyRange(key, start, count, response.getOutputStream());
+            return;
+        }
+        
+        Path file = localPath.get();
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+        
+        WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+        try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+            transfer(source, start, count, target);
+        }
+    }
+    
+    /**
+     * Copy a byte range of a remote object to the output
+     */
+    private void copyRange(String key, long start, long count, OutputStream outputStream) throws IOException {
+        try (InputStream inputStream = storageBackend.getRange(key, start, count)) {
+            long copied = inputStream.transferTo(outputStream);
+            if (copied != count) {
+                throw new IOException("Unexpected end of object while streaming");
+            }
+        }
+    }
+    
+    private String contentTypeOf(String key) {
+        if (key.endsWith(".m3u8")) {
+            return "application/vnd.apple.mpegurl";
+        }
+        if (key.endsWith(".ts")) {
+            return "video/mp2t";
+        }
+        return MediaTypeFactory.getMediaType(key)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM)
+                .toString();
+    }
+    
+    private void transfer(FileChannel source, long position, long count, WritableByteChannel target)
+            throws IOException {
+        long remaining = count;
+        while (remaining > 0) {
+            long sent = source.transferTo(position, remaining, target);
+            if (sent <= 0) {
+                throw new IOException("Unexpected end of file while streaming");
+            }
+            position += sent;
+            remaining -= sent;
+        }
+    }
+    
+    /**
+     * Evaluate If-Range: ranges are honoured only if the validator still matches
+     */
+    private boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // If-Range requires strong comparison, so weak tags never match
+            return ifRange.equals(etag);
+        }
+        try {
+            long ifRangeDate = request.getDateHeader(HttpHeaders.IF_RANGE);
+            return ifRangeDate != -1 && lastModified / 1000 <= ifRangeDate / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Validator for large files derived from size and modification time
+     */
+    private String fileEtag(long length, long lastModified) {
+        return "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+    }
+    
+    /**
+     * Read a thumbnail from storage, hash it and cache it
+     */
+    private HotMediaCache.CachedMedia loadThumbnail(String relativePath) throws IOException {
+        StorageObject object = storageBackend.stat(relativePath)
+                .orElseThrow(() -> new ResourceNotFoundException("Thumbnail not found: " + relativePath));
+        
+        byte[] bytes;
+        try (InputStream inputStream = storageBackend.get(relativePath)) {
+            bytes = inputStream.readAllBytes();
+        }
+        HotMediaCache.CachedMedia media = new HotMediaCache.CachedMedia(
+            bytes,
+            contentEtag(bytes),
+            object.getLastModified()
+        );
+        hotMediaCache.put(relativePath, media);
+        return media;
+    }
+    
+    /**
+     * Strong ETag derived from the file contents
+     */
+    private String contentEtag(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    /**
+     * Check an If-None-Match header (which may list several tags) against an ETag
+     */
+    static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,400 @@
+package dev.throwlytics.ThrowlyticsBackend.service;
+
+import com.tdunning.math.stats.MergingDigest;
+import com.tdunning.math.stats.TDigest;
+import dev.throwlytics.ThrowlyticsBackend.dto.MetricDistributionResponse;
+import dev.throwlytics.ThrowlyticsBackend.dto.PercentileRankResponse;
+import dev.throwlytics.ThrowlyticsBackend.model.MetricSketch;
+import dev.throwlytics.ThrowlyticsBackend.model.MetricSketchId;
+import dev.throwlytics.ThrowlyticsBackend.model.PlanType;
+import dev.throwlytics.ThrowlyticsBackend.model.ThowHistory;
+import dev.throwlytics.ThrowlyticsBackend.repository.MetricSketchRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.ByteBuffer;
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Service that ranks throw metrics against the whole population using t-digest sketches
+ * 
+ * Every metric has one in-memory MergingDigest per cohort: all throws ("all"), throws by
+ * users on a plan ("plan:FREE") and throws from one year ("year:2025"). A saved throw is
+ * added to its sketches after commit, so percentile and distribution reads are answered
+ * from memory without touching throw_history.
+ * 
+ * Sketches are mergeable. Each node keeps the samples it has added since its last flush
+ * in a separate pending digest and periodically merges that into the persisted sketch
+ * under a row lock, then reloads the merged result. That way every node also picks up
+ * the throws saved on the others. An empty table is seeded once from history at startup,
+ * by whichever node first locks the seed job; the others wait for it and load the result.
+ */
+@Service
+public class PercentileSketchService {
+    
+    /**
+     * Cohort containing every throw
+     */
+    public static final String ALL = "all";
+    
+    // Quantiles reported by getDistribution
+    private static final double[] QUANTILES = {0.05, 0.10, 0.25, 0.50, 0.75, 0.90, 0.95};
+    
+    // Sketched metrics and their throw_history columns (for the seed scan)
+    private static final Map<String, String> METRIC_COLUMNS = new LinkedHashMap<>();
+    
+    static {
+        METRIC_COLUMNS.put("releaseAngleDeg", "release_angle_deg");
+        METRIC_COLUMNS.put("releaseLateralOffsetNorm", "release_lateral_offset_norm");
+        METRIC_COLUMNS.put("elbowAngleDeg", "elbow_angle_deg");
+        METRIC_COLUMNS.put("shoulderAngleDeg", "shoulder_angle_deg");
+        METRIC_COLUMNS.put("wristAngleDeg", "wrist_angle_deg");
+    }
+    
+    // job_lock row serializing the seed across nodes
+    private static final String SEED_JOB = "percentile-sketch-seed";
+    
+    private static final String SEED_QUERY =
+        "SELECT u.plan_type, t.upload_date, " + String.join(", ", METRIC_COLUMNS.values()) + " " +
+        "FROM throw_history t JOIN users u ON u.user_id = t.user_user_id";
+    
+    @Autowired
+    private MetricSketchRepository metricSketchRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    private JobLockService jobLockService;
+    
+    // t-digest compression: higher is more accurate and larger (~100 gives <1% rank error)
+    @Value("${app.percentiles.compression:100}")
+    private double compression;
+    
+    private final Map<MetricSketchId, Sketch> sketches = new ConcurrentHashMap<>();
+    
+    /**
+     * In-memory sketch of one metric and cohort
+     * merged answers queries; pending holds what this node added since its last flush.
+     * MergingDigest is not thread-safe (queries also compact it), so all access is synchronized.
+     */
+    private class Sketch {
+        
+        private MergingDigest merged;
+        private MergingDigest pending = newDigest();
+        
+        Sketch(MergingDigest merged) {
+            this.merged = merged;
+        }
+        
+        synchronized void add(TDigest digest) {
+            merged.add(digest);
+            pending.add(digest);
+        }
+        
+        /**
+         * Hand over the pending samples for a flush (null if there are none)
+         */
+        synchronized MergingDigest takePending() {
+            if (pending.size() == 0) {
+                return null;
+            }
+            MergingDigest taken = pending;
+            pending = newDigest();
+            return taken;
+        }
+        
+        /**
+         * Put back samples whose flush failed, so the next flush retries them
+         */
+        synchronized void restorePending(MergingDigest digest) {
+            pending.add(digest);
+        }
+        
+        /**
+         * Replace the local view with the persisted sketch plus what was added since the flush began
+         */
+        synchronized void resync(MergingDigest stored) {
+            stored.add(pending);
+            merged = stored;
+        }
+        
+        synchronized PercentileRankResponse rank(String metric, String cohort, double value) {
+            long count = merged.size();
+            Double percentile = count == 0 ? null : merged.cdf(value) * 100;
+            return new PercentileRankResponse(metric, cohort, value, percentile, count);
+        }
+        
+        synchronized MetricDistributionResponse distribution(String metric, String cohort) {
+            long count = merged.size();
+            if (count == 0) {
+                return emptyDistribution(metric, cohort);
+            }
+            Map<String, Double> quantiles = new LinkedHashMap<>();
+            for (double q : QUANTILES) {
+                quantiles.put("p" + Math.round(q * 100), merged.quantile(q));
+            }
+            return new MetricDistributionResponse(metric, cohort, count, merged.getMin(), merged.getMax(), quantiles);
+        }
+    }
+    
+    /**
+     * Samples collected for one throw or one import, applied to the sketches together
+     */
+    public class Batch {
+        
+        private final String planCohort;
+        private final Map<MetricSketchId, MergingDigest> digests = new HashMap<>();
+        
+        private Batch(String planCohort) {
+            this.planCohort = planCohort;
+        }
+        
+        /**
+         * Add one metric value of a throw (ignored if null or not finite)
+         */
+        public void add(LocalDateTime uploadDate, String metric, Double value) {
+            if (value == null || !Double.isFinite(value) || !METRIC_COLUMNS.containsKey(metric)) {
+                return;
+            }
+            for (String cohort : cohortsOf(planCohort, uploadDate)) {
+                digests.computeIfAbsent(new MetricSketchId(cohort, metric), id -> newDigest()).add(value);
+            }
+        }
+    }
+    
+    /**
+     * Start collecting samples for throws of a user on the given plan
+     */
+    public Batch newBatch(PlanType planType) {
+        return new Batch(planType != null ? "plan:" + planType.name() : null);
+    }
+    
+    /**
+     * Add a saved throw to the population sketches once its transaction commits
+     * @param throwHistory Saved throw (user and uploadDate set)
+     */
+    public void recordThrow(ThowHistory throwHistory) {
+        Batch batch = newBatch(throwHistory.getUser().getPlanType());
+        for (Map.Entry<String, Function<ThowHistory, Double>> metric : ThrowStatsService.METRICS.entrySet()) {
+            batch.add(throwHistory.getUploadDate(), metric.getKey(), metric.getValue().apply(throwHistory));
+        }
+        applyAfterCommit(batch);
+    }
+    
+    /**
+     * Apply a batch after the current transaction commits (immediately if there is none)
+     */
+    public void applyAfterCommit(Batch batch) {
+        if (batch.digests.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(batch);
+                }
+            });
+        } else {
+            apply(batch);
+        }
+    }
+    
+    private void apply(Batch batch) {
+        batch.digests.forEach((id, digest) ->
+            sketches.computeIfAbsent(id, key -> new Sketch(newDigest())).add(digest));
+    }
+    
+    /**
+     * Where a value ranks within a cohort
+     * 
+     * @param metric Metric name (e.g. releaseAngleDeg)
+     * @param cohort Cohort name: "all", "plan:{PlanType}" or "year:{yyyy}"
+     * @param value Value to rank
+     * @return Percentile (null if the cohort has no samples for the metric)
+     * @throws IllegalArgumentException if the metric is unknown
+     */
+    public PercentileRankResponse getPercentileRank(String metric, String cohort, double value) {
+        checkMetric(metric);
+        Sketch sketch = sketches.get(new MetricSketchId(cohort, metric));
+        if (sketch == null) {
+            return new PercentileRankResponse(metric, cohort, value, null, 0);
+        }
+        return sketch.rank(metric, cohort, value);
+    }
+    
+    /**
+     * Distribution of a metric within a cohort (min, max and common quantiles)
+     * 
+     * @param metric Metric name (e.g. elbowAngleDeg)
+     * @param cohort Cohort name: "all", "plan:{PlanType}" or "year:{yyyy}"
+     * @return Distribution (no quantiles if the cohort has no samples for the metric)
+     * @throws IllegalArgumentException if the metric is unknown
+     */
+    public MetricDistributionResponse getDistribution(String metric, String cohort) {
+        checkMetric(metric);
+        Sketch sketch = sketches.get(new MetricSketchId(cohort, metric));
+        if (sketch == null) {
+            return emptyDistribution(metric, cohort);
+        }
+        return sketch.distribution(metric, cohort);
+    }
+    
+    /**
+     * Merge this node's pending samples into the persisted sketches
+     * @return number of sketches written
+     */
+    @Scheduled(fixedDelayString = "${app.percentiles.flush-ms:60000}", initialDelayString = "${app.percentiles.flush-ms:60000}")
+    public int flush() {
+        int written = 0;
+        for (Map.Entry<MetricSketchId, Sketch> entry : sketches.entrySet()) {
+            MergingDigest pending = entry.getValue().takePending();
+            if (pending == null) {
+                continue;
+            }
+            try {
+                byte[] stored = transactionTemplate.execute(status -> mergeIntoStored(entry.getKey(), pending));
+                entry.getValue().resync(fromBytes(stored));
+                written++;
+            } catch (RuntimeException e) {
+                entry.getValue().restorePending(pending);
+                System.err.println("Failed to flush sketch " + entry.getKey() + ": " + e.getMessage());
+            }
+        }
+        return written;
+    }
+    
+    private byte[] mergeIntoStored(MetricSketchId id, MergingDigest pending) {
+        MetricSketch row = metricSketchRepository.findForUpdateById(id)
+                .orElseGet(() -> new MetricSketch(id, null, 0, null));
+        MergingDigest digest = row.getDigest() == null ? newDigest() : fromBytes(row.getDigest());
+        digest.add(pending);
+        
+        byte[] bytes = toBytes(digest);
+        row.setDigest(bytes);
+        row.setSampleCount(digest.size());
+        row.setUpdatedAt(LocalDateTime.now());
+        metricSketchRepository.save(row);
+        return bytes;
+    }
+    
+    /**
+     * Load the persisted sketches, or seed them from throw history if there are none
+     * The seed runs under the seed job's row lock and writes the sketches in the same
+     * transaction, so with several nodes starting at once exactly one seeds and the
+     * others find its sketches once they get the lock.
+     * @return number of throws scanned to seed the sketches (0 if they were loaded)
+     */
+    public long loadOrSeed() {
+        long scanned = transactionTemplate.execute(status -> {
+            jobLockService.lockForTransaction(SEED_JOB);
+            if (metricSketchRepository.count() > 0) {
+                return 0L;
+            }
+            return seed();
+        });
+        
+        for (MetricSketch row : metricSketchRepository.findAll()) {
+            // Keeps anything recorded before the load finished
+            sketches.compute(row.getId(), (id, existing) -> {
+                if (existing == null) {
+                    return new Sketch(fromBytes(row.getDigest()));
+                }
+                existing.resync(fromBytes(row.getDigest()));
+                return existing;
+            });
+        }
+        return scanned;
+    }
+    
+    /**
+     * Build every sketch from throw history and store it (caller holds the seed lock)
+     * @return number of throws scanned
+     */
+    private long seed() {
+        Map<String, Batch> batches = new HashMap<>();
+        long[] scanned = {0};
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SEED_QUERY);
+            statement.setFetchSize(1000);
+            return statement;
+        }, (RowCallbackHandler) resultSet -> {
+            String planType = resultSet.getString("plan_type");
+            Batch batch = batches.computeIfAbsent(planType == null ? "" : planType,
+                plan -> new Batch(plan.isEmpty() ? null : "plan:" + plan));
+            LocalDateTime uploadDate = resultSet.getTimestamp("upload_date").toLocalDateTime();
+            for (Map.Entry<String, String> metric : METRIC_COLUMNS.entrySet()) {
+                double value = resultSet.getDouble(metric.getValue());
+                if (!resultSet.wasNull()) {
+                    batch.add(uploadDate, metric.getKey(), value);
+                }
+            }
+            scanned[0]++;
+        });
+        
+        // Cohorts "all" and "year:..." collect samples from every plan's batch
+        Map<MetricSketchId, MergingDigest> digests = new HashMap<>();
+        for (Batch batch : batches.values()) {
+            batch.digests.forEach((id, digest) -> digests.computeIfAbsent(id, key -> newDigest()).add(digest));
+        }
+        LocalDateTime now = LocalDateTime.now();
+        digests.forEach((id, digest) ->
+            metricSketchRepository.save(new MetricSketch(id, toBytes(digest), digest.size(), now)));
+        return scanned[0];
+    }
+    
+    private List<String> cohortsOf(String planCohort, LocalDateTime uploadDate) {
+        List<String> cohorts = new ArrayList<>(3);
+        cohorts.add(ALL);
+        if (planCohort != null) {
+            cohorts.add(planCohort);
+        }
+        if (uploadDate != null) {
+            cohorts.add("year:" + uploadDate.getYear());
+        }
+        return cohorts;
+    }
+    
+    private void checkMetric(String metric) {
+        if (!METRIC_COLUMNS.containsKey(metric)) {
+            throw new IllegalArgumentException("Unknown metric: " + metric);
+        }
+    }
+    
+    private static MetricDistributionResponse emptyDistribution(String metric, String cohort) {
+        return new MetricDistributionResponse(metric, cohort, 0, null, null, Map.of());
+    }
+    
+    private MergingDigest newDigest() {
+        return new MergingDigest(compression);
+    }
+    
+    private static byte[] toBytes(MergingDigest digest) {
+        ByteBuffer buffer = ByteBuffer.allocate(digest.byteSize());
+        digest.asBytes(buffer);
+        return buffer.array();
+    }
+    
+    private static MergingDigest fromBytes(byte[] bytes) {
+        return MergingDigest.fromBytes(ByteBuffer.wrap(bytes));
+    }
+}
@@ -0,0 +1,229 @@
+package dev.throwlytics.ThrowlyticsBackend.service;
+
+import dev.throwlytics.ThrowlyticsBackend.exception.ScratchSpaceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Service that owns all local scratch space (temp copies, FFmpeg output, multipart spooling)
+ * 
+ * Layout: {app.scratch.dir}/jobs/{name}-{uuid}/...   one directory per job
+ *         {app.scratch.dir}/multipart/                Servlet multipart spool
+ * 
+ * Every job reserves its expected size against a byte budget and gets its own
+ * directory, which is deleted as a whole when the job is closed. New jobs are refused
+ * (ScratchSpaceUnavailableException, 503) when the budget is used up or the disk is
+ * nearly full. Multipart uploads hold a plain reservation while the container spools
+ * them. Anything left behind by a previous process is removed at startup.
+ */
+@Service
+public class ScratchSpaceService {
+    
+    @Value("${app.scratch.dir:${java.io.tmpdir}/throwlytics-scratch}")
+    private String scratchDir;
+    
+    // Total bytes all running jobs may reserve
+    @Value("${app.scratch.max-bytes:21474836480}")
+    private long maxBytes;
+    
+    // Refuse new jobs if the disk would drop below this much free space
+    @Value("${app.scratch.min-free-bytes:2147483648}")
+    private long minFreeBytes;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private Path root;
+    private Path jobsRoot;
+    
+    private final AtomicLong reservedBytes = new AtomicLong();
+    private final AtomicInteger activeJobs = new AtomicInteger();
+    private Counter rejectedJobs;
+    
+    @PostConstruct
+    void init() throws IOException {
+        root = Paths.get(scratchDir).toAbsolutePath().normalize();
+        jobsRoot = root.resolve("jobs");
+        
+        // Startup sweep: no job from a previous process can still be running
+        deleteRecursively(jobsRoot);
+        Files.createDirectories(jobsRoot);
+        Files.createDirectories(root.resolve("multipart"));
+        
+        Gauge.builder("scratch.reserved.bytes", reservedBytes, AtomicLong::get)
+                .description("Bytes reserved by running scratch jobs")
+                .register(meterRegistry);
+        Gauge.builder("scratch.jobs.active", activeJobs, AtomicInteger::get)
+                .description("Scratch jobs currently open")
+                .register(meterRegistry);
+        Gauge.builder("scratch.disk.free.bytes", this, ScratchSpaceService::usableSpace)
+                .description("Usable space on the scratch disk")
+                .register(meterRegistry);
+        rejectedJobs = Counter.builder("scratch.jobs.rejected")
+                .description("Scratch jobs refused for lack of space")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Open a scratch job with its own directory
+     * Use with try-with-resources; closing deletes the directory and releases the reservation.
+     * 
+     * @param name Short job name used in the directory name (e.g. "hls")
+     * @param expectedBytes Estimated peak disk use of the job
+     * @return Open job
+     * @throws ScratchSpaceUnavailableException if there is not enough scratch space
+     */
+    public Job openJob(String name, long expectedBytes) {
+        Reservation reservation = reserve(name + " job", expectedBytes);
+        try {
+            Path directory = Files.createDirectory(jobsRoot.resolve(name + "-" + UUID.randomUUID()));
+            activeJobs.incrementAndGet();
+            return new Job(directory, reservation);
+        } catch (IOException e) {
+            reservation.close();
+            throw new ScratchSpaceUnavailableException("Failed to create scratch directory: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Reserve scratch budget for bytes written outside a job directory
+     * (the multipart spool); close the reservation once they are gone.
+     * 
+     * @param purpose What the space is for, used in the error message
+     * @param bytes Bytes to reserve
+     * @return Open reservation
+     * @throws ScratchSpaceUnavailableException if there is not enough scratch space
+     */
+    public Reservation reserve(String purpose, long bytes) {
+        if (!hasCapacity(bytes)) {
+            rejectedJobs.increment();
+            throw new ScratchSpaceUnavailableException("Not enough scratch space for " + purpose);
+        }
+        
+        long reserved = reservedBytes.addAndGet(bytes);
+        if (reserved > maxBytes) {
+            reservedBytes.addAndGet(-bytes);
+            rejectedJobs.increment();
+            throw new ScratchSpaceUnavailableException("Scratch space budget exhausted");
+        }
+        return new Reservation(bytes);
+    }
+    
+    /**
+     * Whether a job of the given size could start right now
+     */
+    private boolean hasCapacity(long expectedBytes) {
+        return reservedBytes.get() + expectedBytes <= maxBytes
+            && usableSpace() - expectedBytes >= minFreeBytes;
+    }
+    
+    /**
+     * Directory the servlet container spools multipart uploads to
+     */
+    public Path getMultipartDir() {
+        return root.resolve("multipart");
+    }
+    
+    private double usableSpace() {
+        try {
+            return Files.getFileStore(jobsRoot).getUsableSpace();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+    
+    private static void deleteRecursively(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+    
+    /**
+     * Bytes held against the scratch budget until closed
+     */
+    public class Reservation implements AutoCloseable {
+        
+        private final long bytes;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        
+        private Reservation(long bytes) {
+            this.bytes = bytes;
+        }
+        
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                reservedBytes.addAndGet(-bytes);
+            }
+        }
+    }
+    
+    /**
+     * A running scratch job: a private directory plus a space reservation
+     */
+    public class Job implements AutoCloseable {
+        
+        private final Path directory;
+        private final Reservation reservation;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        
+        private Job(Path directory, Reservation reservation) {
+            this.directory = directory;
+            this.reservation = reservation;
+        }
+        
+        public Path getDirectory() {
+            return directory;
+        }
+        
+        /**
+         * Create an empty file in the job directory
+         */
+        public Path newFile(String prefix, String suffix) throws IOException {
+            return Files.createTempFile(directory, prefix, suffix);
+        }
+        
+        /**
+         * Create an empty subdirectory in the job directory
+         */
+        public Path newDirectory(String prefix) throws IOException {
+            return Files.createTempDirectory(directory, prefix);
+        }
+        
+        @Override
+        public void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                deleteRecursively(directory);
+            } catch (IOException e) {
+                System.err.println("Failed to delete scratch directory " + directory + ": " + e.getMessage());
+            } finally {
+                reservation.close();
+                activeJobs.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package dev.throwlytics.ThrowlyticsBackend.service;
+
+import dev.throwlytics.ThrowlyticsBackend.exception.FileStorageException;
+import dev.throwlytics.ThrowlyticsBackend.model.ThowHistory;
+import dev.throwlytics.ThrowlyticsBackend.repository.ThrowHistoryRepository;
+import dev.throwlytics.ThrowlyticsBackend.storage.StorageBackend;
+import dev.throwlytics.ThrowlyticsBackend.storage.StorageObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Service for storage housekeeping
+ * 
+ * Layout migration moves media stored in the old flat per-user layout
+ * (videos/{userId}/{uuid}.mp4) into the sharded layout (videos/{userId}/{ab}/{cd}/{uuid}.mp4).
+ * 
+ * Orphan collection deletes stored files that no throw references, such as videos from
+ * uploads whose history row was never saved. Files are only removed once they are older
+ * than the grace period, so uploads and packaging still in progress are never touched.
+ * 
+ * Both jobs take the same job_lock lease, so only one node runs either of them at a time
+ * and a file being moved is never collected halfway. Like quota reconciliation, the lease
+ * is not released early and simply expires.
+ */
+@Service
+public class StorageMaintenanceService {
+    
+    private static final String MAINTENANCE_JOB = "storage-maintenance";
+    
+    @Autowired
+    private StorageBackend storageBackend;
+    
+    @Autowired
+    private FileStorageService fileStorageService;
+    
+    @Autowired
+    private ThrowHistoryRepository throwHistoryRepository;
+    
+    @Autowired
+    private StorageQuotaService storageQuotaService;
+    
+    @Autowired
+    private HistoryResponseCache historyResponseCache;
+    
+    @Autowired
+    private JobLockService jobLockService;
+    
+    // Cached thumbnails must not outlive a move or delete of their file
+    @Autowired
+    private HotMediaCache hotMediaCache;
+    
+    @Value("${app.thumbnail.placeholder:thumbnails/placeholder.jpg}")
+    private String placeholderThumbnail;
+    
+    @Value("${app.storage.gc.enabled:true}")
+    private boolean gcEnabled;
+    
+    @Value("${app.storage.gc.grace-hours:24}")
+    private long graceHours;
+    
+    // Keys checked against the database per query
+    @Value("${app.storage.gc.batch-size:500}")
+    private int batchSize;
+    
+    // Log what would be deleted without deleting anything
+    @Value("${app.storage.gc.dry-run:false}")
+    private boolean dryRun;
+    
+    // Lease for one layout migration or collection run; should exceed the time either takes
+    @Value("${app.storage.gc.lease-minutes:120}")
+    private long leaseMinutes;
+    
+    /**
+     * Move every throw's media into the sharded layout and update its row
+     * Safe to re-run: throws that are already sharded are skipped, and files that were
+     * moved before an interrupted run are picked up at their new location.
+     * 
+     * @return number of throws migrated, or -1 if another node holds the maintenance lease
+     */
+    public int migrateLayout() {
+        if (!jobLockService.tryLock(MAINTENANCE_JOB, Duration.ofMinutes(leaseMinutes))) {
+            return -1;
+        }
+        int migrated = 0;
+        long lastThrowId = 0;
+        while (true) {
+            List<ThowHistory> batch = throwHistoryRepository.findByThrowIdGreaterThanOrderByThrowIdAsc(
+                lastThrowId, PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+            for (ThowHistory throwHistory : batch) {
+                lastThrowId = throwHistory.getThrowId();
+                try {
+                    if (migrateThrow(throwHistory)) {
+                        migrated++;
+                    }
+                } catch (IOException | FileStorageException e) {
+                    System.err.println("Layout migration failed for throw " + lastThrowId + ": " + e.getMessage());
+                }
+            }
+        }
+        return migrated;
+    }
+    
+    /**
+     * Move one throw's video, thumbnail and HLS package, then point the row at them
+     */
+    private boolean migrateThrow(ThowHistory throwHistory) throws IOException {
+        String videoUrl = throwHistory.getVideoUrl();
+        if (videoUrl == null || fileStorageService.isSharded(videoUrl)) {
+            return false;
+        }
+        
+        String[] segments = videoUrl.split("/");
+        Long userId = Long.parseLong(segments[1]);
+        String newVideoUrl = fileStorageService.shardedKey("videos", userId, segments[segments.length - 1]);
+        if (!moveIfPresent(videoUrl, newVideoUrl)) {
+            return false;
+        }
+        
+        String thumbnailUrl = throwHistory.getThumbnailUrl();
+        String newThumbnailUrl = thumbnailUrl;
+        if (thumbnailUrl != null && thumbnailUrl.startsWith("thumbnails/" + userId + "/")
+                && !fileStorageService.isSharded(thumbnailUrl)) {
+            String candidate = fileStorageService.shardedKey("thumbnails", userId,
+                thumbnailUrl.substring(thumbnailUrl.lastIndexOf('/') + 1));
+            if (moveIfPresent(thumbnailUrl, candidate)) {
+                newThumbnailUrl = candidate;
+            }
+        }
+        
+        String hlsUrl = throwHistory.getHlsUrl();
+        String newHlsUrl = hlsUrl;
+        if (hlsUrl != null) {
+            String oldPackage = hlsUrl.substring(0, hlsUrl.lastIndexOf('/'));
+            String newPackage = fileStorageService.getHlsPackagePath(newVideoUrl);
+            if (!oldPackage.equals(newPackage)) {
+                List<String> keys;
+                try (Stream<StorageObject> objects = storageBackend.list(oldPackage + "/")) {
+                    keys = objects.map(StorageObject::getKey).toList();
+                }
+                // Master playlist last, so a package with a master is always complete
+                String oldMaster = hlsUrl;
+                for (String key : keys) {
+                    if (!key.equals(oldMaster)) {
+                        storageBackend.move(key, newPackage + key.substring(oldPackage.length()));
+                        hotMediaCache.invalidate(key);
+                    }
+                }
+                String candidate = newPackage + hlsUrl.substring(oldPackage.length());
+                if (moveIfPresent(oldMaster, candidate)) {
+                    newHlsUrl = candidate;
+                }
+            }
+        }
+        
+        throwHistoryRepository.updateMediaUrls(throwHistory.getThrowId(), newVideoUrl, newThumbnailUrl, newHlsUrl);
+        historyResponseCache.invalidate(throwHistory.getUser().getUserId());
+        return true;
+    }
+    
+    /**
+     * Move an object unless a previous run already did
+     * @return true if the object now exists at the target key
+     */
+    private boolean moveIfPresent(String sourceKey, String targetKey) throws IOException {
+        if (storageBackend.stat(sourceKey).isPresent()) {
+            storageBackend.move(sourceKey, targetKey);
+            hotMediaCache.invalidate(sourceKey);
+            return true;
+        }
+        return storageBackend.stat(targetKey).isPresent();
+    }
+    
+    /**
+     * Nightly orphan collection
+     */
+    @Scheduled(cron = "${app.storage.gc.cron:0 30 3 * * *}")
+    public void scheduledCollectOrphans() {
+        if (!gcEnabled) {
+            return;
+        }
+        try {
+            int deleted = collectOrphans();
+            if (deleted < 0) {
+                return;
+            }
+            System.out.println("✓ Storage GC " + (dryRun ? "found " : "removed ") + deleted + " orphan files");
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Storage GC failed: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Delete stored files that are older than the grace period and referenced by no throw
+     * Storage listings are streamed and checked against the database in batches,
+     * so memory use does not grow with the number of stored files.
+     * 
+     * @return number of files deleted (or that would be deleted in dry-run mode),
+     *         or -1 if another node holds the maintenance lease
+     * @throws IOException if a listing fails
+     */
+    public int collectOrphans() throws IOException {
+        if (!jobLockService.tryLock(MAINTENANCE_JOB, Duration.ofMinutes(leaseMinutes))) {
+            return -1;
+        }
+        long cutoff = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(graceHours);
+        int deleted = 0;
+        deleted += sweep("videos/", cutoff, Function.identity(),
+            throwHistoryRepository::findReferencedVideoUrls);
+        deleted += sweep("thumbnails/", cutoff, Function.identity(),
+            throwHistoryRepository::findReferencedThumbnailUrls);
+        deleted += sweep("hls/", cutoff, this::hlsMasterFor,
+            throwHistoryRepository::findReferencedHlsUrls);
+        return deleted;
+    }
+    
+    /**
+     * Walk one area of storage and delete unreferenced files
+     * 
+     * @param prefix Area to list
+     * @param cutoff Only files last modified before this time are considered
+     * @param referenceOf Maps a stored key to the value a throw row would hold for it
+     * @param lookup Returns which of the given reference values exist in the database
+     */
+    private int sweep(String prefix, long cutoff, Function<String, String> referenceOf,
+                      Function<Set<String>, Set<String>> lookup) throws IOException {
+        int deleted = 0;
+        Map<StorageObject, String> pending = new LinkedHashMap<>();
+        try (Stream<StorageObject> objects = storageBackend.list(prefix)) {
+            Iterator<StorageObject> iterator = objects.iterator();
+            while (iterator.hasNext()) {
+                StorageObject object = iterator.next();
+                if (object.getLastModified() >= cutoff || object.getKey().equals(placeholderThumbnail)) {
+                    continue;
+                }
+                pending.put(object, referenceOf.apply(object.getKey()));
+                if (pending.size() >= batchSize) {
+                    deleted += deleteUnreferenced(pending, lookup);
+                    pending.clear();
+                }
+            }
+        }
+        if (!pending.isEmpty()) {
+            deleted += deleteUnreferenced(pending, lookup);
+        }
+        return deleted;
+    }
+    
+    private int deleteUnreferenced(Map<StorageObject, String> objectsToReferences,
+                                   Function<Set<String>, Set<String>> lookup) throws IOException {
+        Set<String> referenced = lookup.apply(new HashSet<>(objectsToReferences.values()));
+        List<StorageObject> orphans = new ArrayList<>();
+        objectsToReferences.forEach((object, reference) -> {
+            if (!referenced.contains(reference)) {
+                orphans.add(object);
+            }
+        });
+        
+        for (StorageObject orphan : orphans) {
+            if (dryRun) {
+                System.out.println("Storage GC (dry run) would delete: " + orphan.getKey());
+            } else {
+                storageBackend.delete(orphan.getKey());
+                hotMediaCache.invalidate(orphan.getKey());
+                storageQuotaService.release(storageQuotaService.ownerOf(orphan.getKey()), orphan.getSize(), 1);
+            }
+        }
+        return orphans.size();
+    }
+    
+    /**
+     * Master playlist path a throw would reference for a file in an HLS package
+     * hls/{userId}/{ab}/{cd}/{videoId}/720p/seg_000.ts -> hls/{userId}/{ab}/{cd}/{videoId}/master.m3u8
+     */
+    private String hlsMasterFor(String key) {
+        String[] segments = key.split("/");
+        // Shard directories are two characters; the first longer segment is the video ID
+        for (int i = 2; i < segments.length - 1; i++) {
+            if (segments[i].length() != 2) {
+                return String.join("/", List.of(segments).subList(0, i + 1)) + "/master.m3u8";
+            }
+        }
+        return key;
+    }
+}
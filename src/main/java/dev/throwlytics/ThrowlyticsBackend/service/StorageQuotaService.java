@@ -0,0 +1,263 @@
+package dev.throwlytics.ThrowlyticsBackend.service;
+
+import dev.throwlytics.ThrowlyticsBackend.dto.StorageUsageResponse;
+import dev.throwlytics.ThrowlyticsBackend.exception.StorageQuotaExceededException;
+import dev.throwlytics.ThrowlyticsBackend.model.UserStorageUsage;
+import dev.throwlytics.ThrowlyticsBackend.repository.UserStorageUsageRepository;
+import dev.throwlytics.ThrowlyticsBackend.storage.StorageBackend;
+import dev.throwlytics.ThrowlyticsBackend.storage.StorageObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Service for per-user storage accounting and quota enforcement
+ * 
+ * Counters in UserStorageUsage are adjusted with one atomic UPDATE whenever media is
+ * stored or deleted, so usage is always answered from a single row. Uploads reserve
+ * their size with a conditional UPDATE before any bytes are written; the reservation
+ * fails if it would take the user over quota.
+ * 
+ * A periodic reconciliation recomputes the counters from storage to correct drift
+ * (crashes between a write and its counter update, files removed by hand, etc.).
+ * It runs on one node at a time under a job lease. Users whose counters change while
+ * storage is being listed, or who have an upload in flight, are left for the next run.
+ */
+@Service
+public class StorageQuotaService {
+    
+    private static final String RECONCILE_JOB = "storage-quota-reconcile";
+    
+    // Storage areas whose keys start with {area}/{userId}/
+    private static final List<String> ACCOUNTED_AREAS = List.of("videos/", "thumbnails/", "hls/", "originals/");
+    
+    @Autowired
+    private UserStorageUsageRepository userStorageUsageRepository;
+    
+    @Autowired
+    private StorageBackend storageBackend;
+    
+    @Autowired
+    private VideoTieringService videoTieringService;
+    
+    @Autowired
+    private JobLockService jobLockService;
+    
+    @Value("${app.storage.quota.bytes-per-user:5368709120}")
+    private long quotaBytes;
+    
+    // Reservations older than this are treated as abandoned (the uploading node died)
+    @Value("${app.storage.quota.reservation-timeout-hours:6}")
+    private long reservationTimeoutHours;
+    
+    // Lease for one reconciliation run; should exceed the time it takes to list storage
+    @Value("${app.storage.quota.reconcile-lease-minutes:120}")
+    private long reconcileLeaseMinutes;
+    
+    // Users known to have a counter row, so the common path is a single UPDATE
+    private final Set<Long> knownUsers = ConcurrentHashMap.newKeySet();
+    
+    /**
+     * Cheap pre-check (one primary key read) used before an upload body is read
+     * @return true if the user has room for the given number of bytes
+     */
+    public boolean hasRoom(Long userId, long bytes) {
+        long used = userStorageUsageRepository.findById(userId).map(UserStorageUsage::getBytesUsed).orElse(0L);
+        return used + bytes <= quotaBytes;
+    }
+    
+    /**
+     * Atomically reserve space for a file that is about to be stored
+     * Follow with settle once the file is stored, or cancelReservation if it is not.
+     * 
+     * @param userId Owner
+     * @param bytes File size
+     * @throws StorageQuotaExceededException if the user does not have room
+     */
+    public void reserve(Long userId, long bytes) {
+        ensureRow(userId);
+        if (userStorageUsageRepository.reserve(userId, bytes, quotaBytes, LocalDateTime.now()) == 0) {
+            throw new StorageQuotaExceededException(String.format(
+                "Storage quota exceeded: %.1f MB upload, %.1f MB quota",
+                bytes / (1024.0 * 1024.0), quotaBytes / (1024.0 * 1024.0)));
+        }
+    }
+    
+    /**
+     * Mark a reservation's file as stored
+     */
+    public void settle(Long userId) {
+        userStorageUsageRepository.settle(userId);
+    }
+    
+    /**
+     * Give back a reservation whose file was not stored
+     */
+    public void cancelReservation(Long userId, long bytes) {
+        userStorageUsageRepository.cancelReservation(userId, bytes);
+    }
+    
+    /**
+     * Record stored files without a quota check (derived media such as thumbnails and HLS)
+     */
+    public void charge(Long userId, long bytes, long files) {
+        if (userId == null) {
+            return;
+        }
+        ensureRow(userId);
+        userStorageUsageRepository.adjust(userId, bytes, files);
+    }
+    
+    /**
+     * Atomically charge extra bytes for a file that is already accounted for (e.g. a
+     * rewrite that grows it), only if the owner stays within quota
+     * Shrinking is always allowed.
+     * 
+     * @return false if the owner does not have room; nothing is charged then
+     */
+    public boolean tryCharge(Long userId, long bytes) {
+        if (userId == null) {
+            return true;
+        }
+        ensureRow(userId);
+        if (bytes <= 0) {
+            userStorageUsageRepository.adjust(userId, bytes, 0);
+            return true;
+        }
+        return userStorageUsageRepository.adjustWithinQuota(userId, bytes, quotaBytes) == 1;
+    }
+    
+    /**
+     * Give back space for deleted files or failed uploads
+     */
+    public void release(Long userId, long bytes, long files) {
+        if (userId == null) {
+            return;
+        }
+        userStorageUsageRepository.adjust(userId, -bytes, -files);
+    }
+    
+    /**
+     * Current usage for a user, straight from the counter row
+     */
+    public StorageUsageResponse getUsage(Long userId) {
+        UserStorageUsage usage = userStorageUsageRepository.findById(userId)
+                .orElse(new UserStorageUsage(userId, 0, 0, null, 0, null));
+        return new StorageUsageResponse(
+            userId,
+            usage.getBytesUsed(),
+            usage.getFileCount(),
+            quotaBytes,
+            Math.max(0, quotaBytes - usage.getBytesUsed())
+        );
+    }
+    
+    /**
+     * Owner of a storage key ({area}/{userId}/...), or null if the key has none
+     */
+    public Long ownerOf(String key) {
+        String[] segments = key.split("/");
+        if (segments.length < 3) {
+            return null;
+        }
+        try {
+            return Long.parseLong(segments[1]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Recompute every user's counters from storage
+     * Skipped on nodes that do not win the reconcile lease. The lease is not released
+     * early, so a node whose clock fires a little later skips as well.
+     */
+    @Scheduled(cron = "${app.storage.quota.reconcile-cron:0 0 5 * * *}")
+    public void reconcile() {
+        if (!jobLockService.tryLock(RECONCILE_JOB, Duration.ofMinutes(reconcileLeaseMinutes))) {
+            return;
+        }
+        
+        // Counters before listing; a user is only rewritten if these are still current afterwards
+        Map<Long, long[]> before = new HashMap<>();
+        for (UserStorageUsage usage : userStorageUsageRepository.findAll()) {
+            before.put(usage.getUserId(), new long[] {usage.getBytesUsed(), usage.getFileCount()});
+        }
+        
+        Map<Long, long[]> totals = new HashMap<>();
+        try {
+            for (String area : ACCOUNTED_AREAS) {
+                try (Stream<StorageObject> objects = storageBackend.list(area)) {
+                    objects.forEach(object -> accumulate(totals, object));
+                }
+            }
+            // Archived videos still count against their owner
+            try (Stream<StorageObject> objects = videoTieringService.listArchived("videos/")) {
+                objects.forEach(object -> accumulate(totals, object));
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Storage usage reconciliation failed: " + e.getMessage());
+            return;
+        }
+        
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime staleBefore = now.minusHours(reservationTimeoutHours);
+        int skipped = 0;
+        for (Map.Entry<Long, long[]> entry : before.entrySet()) {
+            long[] total = totals.remove(entry.getKey());
+            if (userStorageUsageRepository.overwriteIfUnchanged(entry.getKey(),
+                    total != null ? total[0] : 0, total != null ? total[1] : 0,
+                    entry.getValue()[0], entry.getValue()[1], staleBefore, now) == 0) {
+                skipped++;
+            }
+        }
+        // Files without a counter row; if an upload created the row meanwhile, the next run covers it
+        for (Map.Entry<Long, long[]> entry : totals.entrySet()) {
+            ensureRow(entry.getKey());
+            if (userStorageUsageRepository.overwriteIfUnchanged(entry.getKey(), entry.getValue()[0],
+                    entry.getValue()[1], 0, 0, staleBefore, now) == 0) {
+                skipped++;
+            }
+        }
+        System.out.println("✓ Storage usage reconciled (" + skipped + " busy users skipped)");
+    }
+    
+    private void accumulate(Map<Long, long[]> totals, StorageObject object) {
+        Long userId = ownerOf(object.getKey());
+        if (userId == null) {
+            return;
+        }
+        long[] total = totals.computeIfAbsent(userId, id -> new long[2]);
+        total[0] += object.getSize();
+        total[1]++;
+    }
+    
+    /**
+     * Create the user's counter row if it does not exist yet
+     */
+    private void ensureRow(Long userId) {
+        if (knownUsers.contains(userId)) {
+            return;
+        }
+        if (!userStorageUsageRepository.existsById(userId)) {
+            try {
+                userStorageUsageRepository.saveAndFlush(new UserStorageUsage(userId, 0, 0, null, 0, null));
+            } catch (DataIntegrityViolationException e) {
+                // Another request created it first
+            }
+        }
+        knownUsers.add(userId);
+    }
+}
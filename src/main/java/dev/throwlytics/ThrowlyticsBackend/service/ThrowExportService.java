@@ -0,0 +1,145 @@
+package dev.throwlytics.ThrowlyticsBackend.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.throwlytics.ThrowlyticsBackend.model.ThowHistory;
+import dev.throwlytics.ThrowlyticsBackend.repository.ThrowHistoryRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Service that exports a user's full throw history as NDJSON or CSV
+ * 
+ * Rows are read through a server-side cursor and written to the output as they
+ * arrive; the persistence context is cleared every CLEAR_INTERVAL rows, so memory
+ * use stays flat regardless of how many throws are exported.
+ */
+@Service
+public class ThrowExportService {
+    
+    // Detach loaded rows this often so the persistence context does not grow
+    private static final int CLEAR_INTERVAL = 500;
+    
+    // Exported columns, in output order (media URLs are left out: signed URLs expire)
+    private static final Map<String, Function<ThowHistory, Object>> COLUMNS = new LinkedHashMap<>();
+    
+    static {
+        COLUMNS.put("throwId", ThowHistory::getThrowId);
+        COLUMNS.put("uploadDate", ThowHistory::getUploadDate);
+        COLUMNS.put("releaseAngle", ThowHistory::getReleaseAngle);
+        COLUMNS.put("releaseHeight", ThowHistory::getReleaseHeight);
+        COLUMNS.put("releaseFrame", ThowHistory::getReleaseFrame);
+        COLUMNS.put("releaseConfirmed", ThowHistory::getReleaseConfirmed);
+        COLUMNS.put("totalFrames", ThowHistory::getTotalFrames);
+        COLUMNS.put("videoWidth", ThowHistory::getVideoWidth);
+        COLUMNS.put("videoHeight", ThowHistory::getVideoHeight);
+        COLUMNS.put("fps", ThowHistory::getFps);
+        COLUMNS.put("releaseAngleDeg", ThowHistory::getReleaseAngleDeg);
+        COLUMNS.put("releaseLateralOffsetNorm", ThowHistory::getReleaseLateralOffsetNorm);
+        COLUMNS.put("elbowAngleDeg", ThowHistory::getElbowAngleDeg);
+        COLUMNS.put("shoulderAngleDeg", ThowHistory::getShoulderAngleDeg);
+        COLUMNS.put("wristAngleDeg", ThowHistory::getWristAngleDeg);
+    }
+    
+    @Autowired
+    private ThrowHistoryRepository throwHistoryRepository;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    /**
+     * Write every throw of a user as newline-delimited JSON, newest first
+     * 
+     * @param userId User ID
+     * @param outputStream Destination (not closed)
+     * @return Number of rows written
+     * @throws IOException if writing fails
+     */
+    @Transactional(readOnly = true)
+    public long exportNdjson(Long userId, OutputStream outputStream) throws IOException {
+        long rows = 0;
+        JsonGenerator generator = objectMapper.createGenerator(outputStream);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+        
+        try (Stream<ThowHistory> throwHistories = throwHistoryRepository.streamByUserId(userId)) {
+            Iterator<ThowHistory> iterator = throwHistories.iterator();
+            while (iterator.hasNext()) {
+                ThowHistory throwHistory = iterator.next();
+                generator.writeStartObject();
+                for (Map.Entry<String, Function<ThowHistory, Object>> column : COLUMNS.entrySet()) {
+                    generator.writePOJOField(column.getKey(), column.getValue().apply(throwHistory));
+                }
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+                rows = afterRow(rows);
+            }
+        }
+        generator.close();
+        return rows;
+    }
+    
+    /**
+     * Write every throw of a user as CSV with a header row, newest first
+     * 
+     * @param userId User ID
+     * @param outputStream Destination (not closed)
+     * @return Number of rows written
+     * @throws IOException if writing fails
+     */
+    @Transactional(readOnly = true)
+    public long exportCsv(Long userId, OutputStream outputStream) throws IOException {
+        long rows = 0;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        writer.write(String.join(",", COLUMNS.keySet()));
+        writer.write("\r\n");
+        
+        try (Stream<ThowHistory> throwHistories = throwHistoryRepository.streamByUserId(userId)) {
+            Iterator<ThowHistory> iterator = throwHistories.iterator();
+            while (iterator.hasNext()) {
+                ThowHistory throwHistory = iterator.next();
+                String separator = "";
+                for (Function<ThowHistory, Object> getter : COLUMNS.values()) {
+                    Object value = getter.apply(throwHistory);
+                    writer.write(separator);
+                    // Numbers, booleans and ISO timestamps never need quoting
+                    writer.write(value == null ? "" : value.toString());
+                    separator = ",";
+                }
+                writer.write("\r\n");
+                rows = afterRow(rows);
+            }
+        }
+        writer.flush();
+        return rows;
+    }
+    
+    /**
+     * Count a written row and periodically drop loaded entities
+     */
+    private long afterRow(long rows) {
+        rows++;
+        if (rows % CLEAR_INTERVAL == 0) {
+            entityManager.clear();
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,70 @@
+package dev.throwlytics.ThrowlyticsBackend.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.time.LocalDate;
+
+/**
+ * Service that keeps monthly throw_history partitions created ahead of time
+ * 
+ * On PostgreSQL throw_history is range-partitioned by upload_date (migration V2) and has
+ * no default partition, so a row for a month without a partition cannot be inserted.
+ * This creates the partitions for the current month and the next months-ahead months
+ * at startup and then daily. Does nothing on other databases (H2 in tests).
+ */
+@Service
+public class ThrowHistoryPartitionService {
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Value("${app.partitions.months-ahead:3}")
+    private int monthsAhead;
+    
+    private Boolean partitioned;
+    
+    /**
+     * Runs once at startup, then every check-ms
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${app.partitions.check-ms:86400000}")
+    public void ensurePartitions() {
+        try {
+            int created = createPartitions(monthsAhead);
+            if (created > 0) {
+                System.out.println("✓ Created " + created + " throw history partitions");
+            }
+        } catch (DataAccessException e) {
+            System.err.println("Failed to create throw history partitions: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Create any missing partitions from the current month through monthsAhead months ahead
+     * @return number of partitions created (0 if the database does not partition throw_history)
+     */
+    public int createPartitions(int monthsAhead) {
+        if (!isPartitioned()) {
+            return 0;
+        }
+        LocalDate thisMonth = LocalDate.now().withDayOfMonth(1);
+        Integer created = jdbcTemplate.queryForObject(
+            "SELECT create_throw_history_partitions(?, ?)", Integer.class,
+            Date.valueOf(thisMonth), Date.valueOf(thisMonth.plusMonths(monthsAhead)));
+        return created != null ? created : 0;
+    }
+    
+    private boolean isPartitioned() {
+        if (partitioned == null) {
+            partitioned = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName()));
+        }
+        return partitioned;
+    }
+}
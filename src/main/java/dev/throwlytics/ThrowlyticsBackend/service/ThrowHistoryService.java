@@ -1,19 +1,30 @@
 package dev.throwlytics.ThrowlyticsBackend.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.throwlytics.ThrowlyticsBackend.dto.CursorPage;
+import dev.throwlytics.ThrowlyticsBackend.dto.HistoryPageResponse;
 import dev.throwlytics.ThrowlyticsBackend.dto.ReleaseDetectionResponse;
-import dev.throwlytics.ThrowlyticsBackend.exception.ThumbnailGenerationException;
+import dev.throwlytics.ThrowlyticsBackend.dto.ThrowSearchRequest;
+import dev.throwlytics.ThrowlyticsBackend.event.ThrowSavedEvent;
+import dev.throwlytics.ThrowlyticsBackend.exception.ResourceNotFoundException;
 import dev.throwlytics.ThrowlyticsBackend.model.ThowHistory;
 import dev.throwlytics.ThrowlyticsBackend.model.User;
 import dev.throwlytics.ThrowlyticsBackend.repository.ThrowHistoryRepository;
+import dev.throwlytics.ThrowlyticsBackend.repository.ThrowHistoryRepositoryImpl;
 import dev.throwlytics.ThrowlyticsBackend.repository.UserRepository;
+import dev.throwlytics.ThrowlyticsBackend.util.HistoryCursor;
+import dev.throwlytics.ThrowlyticsBackend.util.MediaUrlSigner;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.io.IOException;
-import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service for managing throw history
@@ -21,6 +32,11 @@ import java.util.List;
 @Service
 public class ThrowHistoryService {
     
+    /**
+     * Row fields holding storage keys, which are signed before they leave the server
+     */
+    public static final List<String> MEDIA_URL_FIELDS = List.of("thumbnailUrl", "videoUrl", "hlsUrl");
+    
     @Autowired
     private ThrowHistoryRepository throwHistoryRepository;
     
@@ -28,19 +44,41 @@ public class ThrowHistoryService {
     private UserRepository userRepository;
     
     @Autowired
-    private FileStorageService fileStorageService;
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private ThumbnailGenerationService thumbnailGenerationService;
+    
+    @Autowired
+    private ThrowStatsService throwStatsService;
+    
+    @Autowired
+    private PercentileSketchService percentileSketchService;
+    
+    @Autowired
+    private HistoryResponseCache historyResponseCache;
+    
+    @Autowired
+    private MediaUrlSigner mediaUrlSigner;
     
     @Autowired
-    private ThumbnailService thumbnailService;
+    private ObjectMapper objectMapper;
+    
+    @Value("${app.history.page-size:50}")
+    private int defaultPageSize;
+    
+    @Value("${app.history.max-page-size:100}")
+    private int maxPageSize;
     
     /**
      * Save a throw history entry with video processing results
+     * The row is committed with a placeholder thumbnail; ThumbnailGenerationService renders
+     * it after commit (eager mode) or on first request (lazy mode).
      * 
      * @param userId User ID
      * @param videoPath Relative path to video file
      * @param processingResult Processing results from Python service (can be null)
      * @return Saved ThrowHistory entity
-     * @throws ThumbnailGenerationException if thumbnail generation fails
      */
     @Transactional
     public ThowHistory saveThrowHistory(
@@ -59,6 +97,9 @@ public class ThrowHistoryService {
         throwHistory.setVideoUrl(videoPath);
         throwHistory.setUploadDate(LocalDateTime.now());
         
+        // Placeholder until the thumbnail exists (lazy mode serves it as the on-demand render URL)
+        throwHistory.setThumbnailUrl(thumbnailGenerationService.pendingThumbnailUrl());
+        
         // Set processing results if available
         if (processingResult != null) {
             throwHistory.setReleaseFrame(processingResult.getReleaseFrame());
@@ -74,75 +115,183 @@ public class ThrowHistoryService {
             throwHistory.setWristAngleDeg(processingResult.getWristAngleDeg());
         }
         
-        // Generate thumbnail
-        String thumbnailPath = generateThumbnail(videoPath, userId, processingResult);
-        throwHistory.setThumbnailUrl(thumbnailPath);
-        
         // Save to database
-        return throwHistoryRepository.save(throwHistory);
+        ThowHistory saved = throwHistoryRepository.save(throwHistory);
+        
+        // Per-user stats rollup commits together with the row
+        throwStatsService.recordThrow(saved);
+        percentileSketchService.recordThrow(saved);
+        historyResponseCache.invalidate(userId);
+        
+        // Thumbnail generation runs after commit, outside this transaction
+        eventPublisher.publishEvent(new ThrowSavedEvent(
+            saved.getThrowId(),
+            userId,
+            videoPath,
+            saved.getReleaseFrame()
+        ));
+        
+        return saved;
     }
     
     /**
-     * Get throw history for a user, ordered by most recent first
+     * Get one page of throw history as served by GET /history: signed media URLs,
+     * serialized, with its ETag
+     * The validator is checked first, so unchanged history costs a single version read.
+     * Version and page are read in this one read-only transaction, i.e. from the same
+     * database, so a page is never cached under a version newer than its rows.
      * 
      * @param userId User ID
-     * @return List of throw history entries
+     * @param cursor Cursor from the previous page (null for the first page)
+     * @param limit Requested page size (null for the default)
+     * @param fields Comma-separated field names (null or blank for all fields)
+     * @param ifNoneMatch The client's If-None-Match header (may be null)
+     * @return The page, or only its ETag if the client's copy is current
+     * @throws IllegalArgumentException if the cursor is malformed or a field is unknown
+     */
+    @Transactional(readOnly = true)
+    public HistoryPageResponse getThrowHistoryResponse(Long userId, String cursor, Integer limit, String fields,
+                                                       String ifNoneMatch) {
+        long urlExpiry = mediaUrlSigner.currentExpiry();
+        String etag = historyResponseCache.etag(userId, urlExpiry);
+        if (historyResponseCache.notModified(ifNoneMatch, etag)) {
+            return new HistoryPageResponse(etag, null, null);
+        }
+        
+        HistoryResponseCache.CachedPage page = historyResponseCache.getOrRender(
+            etag,
+            cursor + "|" + limit + "|" + fields,
+            () -> renderHistoryPage(userId, cursor, limit, fields, urlExpiry)
+        );
+        return new HistoryPageResponse(etag, page.getJson(), page.getNextCursor());
+    }
+    
+    /**
+     * Query a history page, sign its media URLs and serialize it
      */
-    public List<ThowHistory> getThrowHistoryByUserId(Long userId) {
-        return throwHistoryRepository.findByUserUserIdOrderByUploadDateDesc(userId);
+    private HistoryResponseCache.CachedPage renderHistoryPage(Long userId, String cursor, Integer limit, String fields,
+                                                              long urlExpiry) {
+        CursorPage<Map<String, Object>> page = findPage(userId, null, cursor, limit, fields);
+        for (Map<String, Object> row : page.getItems()) {
+            for (String field : MEDIA_URL_FIELDS) {
+                if (row.containsKey(field)) {
+                    row.put(field, mediaUrlSigner.sign((String) row.get(field), userId, urlExpiry));
+                }
+            }
+        }
+        try {
+            return new HistoryResponseCache.CachedPage(objectMapper.writeValueAsBytes(page.getItems()), page.getNextCursor());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize throw history", e);
+        }
     }
     
     /**
-     * Generate thumbnail from video
-     * Uses release frame if available, otherwise uses first frame
+     * Get one page of throw history for a user, ordered by most recent first
+     * Rows are read as projections of the selected fields only (no entities are loaded).
      * 
-     * @param videoPath Relative path to video
      * @param userId User ID
-     * @param processingResult Processing results (to get release frame)
-     * @return Relative path to thumbnail
-     * @throws ThumbnailGenerationException if thumbnail generation fails
+     * @param cursor Cursor from the previous page (null for the first page)
+     * @param limit Requested page size (null for the default; capped at app.history.max-page-size)
+     * @param fields Comma-separated field names (null or blank for all fields)
+     * @return Page of rows keyed by field name, with the cursor for the next page
+     * @throws IllegalArgumentException if the cursor is malformed or a field is unknown
      */
-    private String generateThumbnail(
-            String videoPath,
-            Long userId,
-            ReleaseDetectionResponse processingResult
-    ) {
-        try {
-            // Get full path to video
-            Path fullVideoPath = fileStorageService.getVideoPath(videoPath);
-            
-            // Determine which frame to extract
-            // Priority: release frame if found, otherwise first frame (frame 0)
-            int frameToExtract = 0;  // Default to first frame
-            
-            if (processingResult != null && 
-                processingResult.getReleaseFrame() != null && 
-                processingResult.getReleaseFrame() >= 0) {
-                // Use release frame if available
-                frameToExtract = processingResult.getReleaseFrame();
+    @Transactional(readOnly = true)
+    public CursorPage<Map<String, Object>> getThrowHistoryPage(Long userId, String cursor, Integer limit, String fields) {
+        return findPage(userId, null, cursor, limit, fields);
+    }
+    
+    /**
+     * Search a user's throw history, one page at a time, most recent first
+     * Same paging and field selection as getThrowHistoryPage; a cursor is only valid with
+     * the filters of the search that produced it.
+     * 
+     * @param userId User ID
+     * @param filter Search filters
+     * @param cursor Cursor from the previous page (null for the first page)
+     * @param limit Requested page size (null for the default; capped at app.history.max-page-size)
+     * @param fields Comma-separated field names (null or blank for all fields)
+     * @return Page of matching rows keyed by field name, with the cursor for the next page
+     * @throws IllegalArgumentException if a range is inverted, the cursor is malformed or a field is unknown
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Map<String, Object>> searchThrowHistory(Long userId, ThrowSearchRequest filter, String cursor,
+                                                             Integer limit, String fields) {
+        checkRange("date", filter.getFrom(), filter.getTo());
+        checkRange("releaseAngleDeg", filter.getReleaseAngleDegMin(), filter.getReleaseAngleDegMax());
+        checkRange("releaseLateralOffsetNorm", filter.getReleaseLateralOffsetNormMin(), filter.getReleaseLateralOffsetNormMax());
+        checkRange("elbowAngleDeg", filter.getElbowAngleDegMin(), filter.getElbowAngleDegMax());
+        checkRange("shoulderAngleDeg", filter.getShoulderAngleDegMin(), filter.getShoulderAngleDegMax());
+        checkRange("wristAngleDeg", filter.getWristAngleDegMin(), filter.getWristAngleDegMax());
+        return findPage(userId, filter, cursor, limit, fields);
+    }
+    
+    private <T extends Comparable<T>> void checkRange(String name, T min, T max) {
+        if (min != null && max != null && min.compareTo(max) > 0) {
+            throw new IllegalArgumentException("Invalid " + name + " range: " + min + " is after " + max);
+        }
+    }
+    
+    private CursorPage<Map<String, Object>> findPage(Long userId, ThrowSearchRequest filter, String cursor,
+                                                     Integer limit, String fields) {
+        int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        List<String> selected = parseFields(fields);
+        HistoryCursor after = cursor == null || cursor.isEmpty() ? null : HistoryCursor.decode(cursor);
+        
+        // One extra row tells us whether there is a next page
+        List<Map<String, Object>> rows = throwHistoryRepository.findHistoryRows(userId, filter, after, selected, pageSize + 1);
+        
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            Map<String, Object> last = rows.get(pageSize - 1);
+            nextCursor = new HistoryCursor((LocalDateTime) last.get("uploadDate"), (Long) last.get("throwId")).encode();
+        }
+        
+        // Keyset columns are always fetched; only return them if they were asked for
+        for (Map<String, Object> row : rows) {
+            if (row.containsKey("thumbnailUrl")) {
+                row.put("thumbnailUrl", thumbnailGenerationService.resolveThumbnailUrl(
+                    (Long) row.get("throwId"), (String) row.get("thumbnailUrl")));
             }
-            
-            // Try to extract the selected frame
-            byte[] thumbnailBytes;
-            try {
-                thumbnailBytes = thumbnailService.extractFrame(fullVideoPath, frameToExtract);
-            } catch (IOException e) {
-                // If release frame extraction fails, fall back to first frame
-                if (frameToExtract != 0) {
-                    System.err.println("Failed to extract release frame " + frameToExtract + 
-                        ", falling back to first frame: " + e.getMessage());
-                    thumbnailBytes = thumbnailService.extractFrame(fullVideoPath, 0);
-                } else {
-                    // If first frame extraction also fails, rethrow
-                    throw e;
-                }
+            row.keySet().retainAll(selected);
+        }
+        return new CursorPage<>(rows, nextCursor);
+    }
+    
+    /**
+     * Split and check a field list here, before the repository: exceptions thrown there
+     * reach callers translated into DataAccessExceptions
+     */
+    private List<String> parseFields(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return ThrowHistoryRepositoryImpl.HISTORY_FIELDS;
+        }
+        List<String> selected = Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .distinct()
+                .toList();
+        for (String field : selected) {
+            if (!ThrowHistoryRepositoryImpl.HISTORY_FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Unknown history field: " + field);
             }
-            
-            // Store thumbnail
-            return fileStorageService.storeThumbnail(thumbnailBytes, userId);
-        } catch (IOException e) {
-            throw new ThumbnailGenerationException("Failed to generate thumbnail: " + e.getMessage(), e);
         }
+        return selected;
+    }
+    
+    /**
+     * Get a single throw owned by a user
+     * 
+     * @param throwId Throw history ID
+     * @param userId User ID that must own the throw
+     * @return Throw history entry
+     * @throws ResourceNotFoundException if the throw does not exist or belongs to someone else
+     */
+    @Transactional(readOnly = true)
+    public ThowHistory getThrowForUser(Long throwId, Long userId) {
+        return throwHistoryRepository.findByThrowIdAndUserUserId(throwId, userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Throw not found: " + throwId));
     }
 }
-
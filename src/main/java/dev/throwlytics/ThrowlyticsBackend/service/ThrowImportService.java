@@ -0,0 +1,405 @@
+package dev.throwlytics.ThrowlyticsBackend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.throwlytics.ThrowlyticsBackend.dto.ThrowImportResponse;
+import dev.throwlytics.ThrowlyticsBackend.exception.ScratchSpaceUnavailableException;
+import dev.throwlytics.ThrowlyticsBackend.model.User;
+import dev.throwlytics.ThrowlyticsBackend.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service that bulk-imports historical throw metrics (no videos) from CSV or NDJSON
+ * 
+ * The body is first spooled to scratch disk, so the database transaction never waits on
+ * a slow client; the spooled file is then parsed line by line and inserted with plain
+ * JDBC batches.
+ * Hibernate cannot batch inserts into an IDENTITY table (it needs each generated key
+ * back); a JDBC batch that does not ask for keys can, and with reWriteBatchedInserts
+ * the PostgreSQL driver sends each batch as multi-row INSERTs.
+ * 
+ * Column names match the export (GET /api/video/history/export), so an export can be
+ * imported again. Invalid rows are skipped and reported; the whole import is one
+ * transaction, and the user's stats rollup is rebuilt at the end of it.
+ */
+@Service
+public class ThrowImportService {
+    
+    // Importable metric columns and their SQL types (uploadDate is handled separately)
+    private static final Map<String, Integer> COLUMNS = new LinkedHashMap<>();
+    
+    static {
+        COLUMNS.put("releaseAngle", Types.INTEGER);
+        COLUMNS.put("releaseHeight", Types.INTEGER);
+        COLUMNS.put("releaseFrame", Types.INTEGER);
+        COLUMNS.put("releaseConfirmed", Types.BOOLEAN);
+        COLUMNS.put("totalFrames", Types.INTEGER);
+        COLUMNS.put("videoWidth", Types.INTEGER);
+        COLUMNS.put("videoHeight", Types.INTEGER);
+        COLUMNS.put("fps", Types.INTEGER);
+        COLUMNS.put("releaseAngleDeg", Types.DOUBLE);
+        COLUMNS.put("releaseLateralOffsetNorm", Types.DOUBLE);
+        COLUMNS.put("elbowAngleDeg", Types.DOUBLE);
+        COLUMNS.put("shoulderAngleDeg", Types.DOUBLE);
+        COLUMNS.put("wristAngleDeg", Types.DOUBLE);
+    }
+    
+    private static final String INSERT_SQL =
+        "INSERT INTO throw_history (user_user_id, upload_date, release_angle, release_height, release_frame, " +
+        "release_confirmed, total_frames, video_width, video_height, fps, release_angle_deg, " +
+        "release_lateral_offset_norm, elbow_angle_deg, shoulder_angle_deg, wrist_angle_deg) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    private static final int[] ARG_TYPES = argTypes();
+    
+    // Metric columns in INSERT parameter order (parameters 0 and 1 are user and uploadDate)
+    private static final List<String> COLUMN_NAMES = List.copyOf(COLUMNS.keySet());
+    
+    // Rejected rows listed in the response
+    private static final int MAX_REPORTED_ERRORS = 100;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private ThrowStatsService throwStatsService;
+    
+    @Autowired
+    private HistoryResponseCache historyResponseCache;
+    
+    @Autowired
+    private PercentileSketchService percentileSketchService;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private ScratchSpaceService scratchSpaceService;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${app.import.batch-size:1000}")
+    private int batchSize;
+    
+    @Value("${app.import.max-rows:1000000}")
+    private long maxRows;
+    
+    // Largest body spooled to scratch; also the reservation for bodies without Content-Length
+    @Value("${app.import.max-bytes:268435456}")
+    private long maxBytes;
+    
+    /**
+     * Import throws for a user
+     * 
+     * @param userId User the throws belong to
+     * @param inputStream CSV (header row first) or NDJSON (one object per line), UTF-8
+     * @param contentLength Body size if known, otherwise -1
+     * @param csv true for CSV, false for NDJSON
+     * @return Counts of imported and rejected rows
+     * @throws IOException if the input cannot be read
+     * @throws IllegalArgumentException if a CSV import has no header row
+     * @throws IllegalStateException if the input exceeds app.import.max-rows or
+     *                               app.import.max-bytes (nothing is imported)
+     * @throws ScratchSpaceUnavailableException if the body cannot be spooled right now
+     */
+    public ThrowImportResponse importThrows(Long userId, InputStream inputStream, long contentLength, boolean csv)
+            throws IOException {
+        if (contentLength > maxBytes) {
+            throw new IllegalStateException("Import exceeds " + maxBytes + " bytes");
+        }
+        try (ScratchSpaceService.Job job = scratchSpaceService.openJob("import",
+                contentLength >= 0 ? contentLength : maxBytes)) {
+            Path spooled = job.newFile("import-", csv ? ".csv" : ".ndjson");
+            spool(inputStream, spooled);
+            
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            try {
+                return transactionTemplate.execute(status -> {
+                    try (BufferedReader reader = Files.newBufferedReader(spooled, StandardCharsets.UTF_8)) {
+                        return importRows(userId, reader, csv);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+    
+    /**
+     * Copy the request body to a scratch file, refusing bodies over app.import.max-bytes
+     */
+    private void spool(InputStream inputStream, Path target) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long total = 0;
+        try (OutputStream out = Files.newOutputStream(target)) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                total += read;
+                if (total > maxBytes) {
+                    throw new IllegalStateException("Import exceeds " + maxBytes + " bytes");
+                }
+                out.write(buffer, 0, read);
+            }
+        }
+    }
+    
+    /**
+     * Parse and insert a spooled import; runs in one transaction
+     */
+    private ThrowImportResponse importRows(Long userId, BufferedReader reader, boolean csv) throws IOException {
+        PercentileSketchService.Batch sketchBatch = percentileSketchService.newBatch(
+            userRepository.findById(userId).map(User::getPlanType).orElse(null));
+        ImportRun run = new ImportRun(userId, sketchBatch);
+        
+        List<String> header = null;
+        if (csv) {
+            String headerLine = reader.readLine();
+            if (headerLine == null) {
+                throw new IllegalArgumentException("CSV import needs a header row");
+            }
+            // Spreadsheet exports often start with a byte order mark
+            header = parseCsvLine(headerLine.replace("\uFEFF", ""));
+        }
+        
+        String line;
+        long lineNumber = csv ? 1 : 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                Map<String, String> values = csv ? csvRow(header, line) : jsonRow(line);
+                run.add(toParams(userId, values));
+            } catch (IllegalArgumentException | JsonProcessingException e) {
+                run.reject(lineNumber, e.getMessage());
+            }
+        }
+        run.flush();
+        
+        if (run.imported > 0) {
+            throwStatsService.rebuildForUser(userId);
+            percentileSketchService.applyAfterCommit(sketchBatch);
+            historyResponseCache.invalidate(userId);
+        }
+        return new ThrowImportResponse(run.imported, run.rejected, run.errors);
+    }
+    
+    /**
+     * Batch buffer and counters for one import
+     */
+    private class ImportRun {
+        private final Long userId;
+        private final PercentileSketchService.Batch sketchBatch;
+        private final List<Object[]> batch = new ArrayList<>();
+        private final List<String> errors = new ArrayList<>();
+        private long imported;
+        private long rejected;
+        
+        ImportRun(Long userId, PercentileSketchService.Batch sketchBatch) {
+            this.userId = userId;
+            this.sketchBatch = sketchBatch;
+        }
+        
+        void add(Object[] params) {
+            if (imported + batch.size() >= maxRows) {
+                throw new IllegalStateException("Import exceeds " + maxRows + " rows");
+            }
+            batch.add(params);
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+        
+        void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, ARG_TYPES);
+            for (Object[] params : batch) {
+                LocalDateTime uploadDate = ((Timestamp) params[1]).toLocalDateTime();
+                for (int i = 0; i < COLUMN_NAMES.size(); i++) {
+                    if (params[i + 2] instanceof Double value) {
+                        sketchBatch.add(uploadDate, COLUMN_NAMES.get(i), value);
+                    }
+                }
+            }
+            imported += batch.size();
+            batch.clear();
+        }
+        
+        void reject(long lineNumber, String message) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add("line " + lineNumber + ": " + message);
+            }
+        }
+    }
+    
+    /**
+     * Validate one row and convert it to INSERT parameters
+     * @throws IllegalArgumentException naming the offending field
+     */
+    private Object[] toParams(Long userId, Map<String, String> values) {
+        Object[] params = new Object[ARG_TYPES.length];
+        params[0] = userId;
+        params[1] = Timestamp.valueOf(parseUploadDate(values.get("uploadDate")));
+        
+        int index = 2;
+        for (Map.Entry<String, Integer> column : COLUMNS.entrySet()) {
+            String raw = values.get(column.getKey());
+            try {
+                params[index++] = raw == null || raw.isBlank() ? null : parseValue(raw.trim(), column.getValue());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(column.getKey() + ": " + e.getMessage());
+            }
+        }
+        return params;
+    }
+    
+    private LocalDateTime parseUploadDate(String raw) {
+        if (raw == null || raw.isBlank()) {
+            throw new IllegalArgumentException("uploadDate: required");
+        }
+        String value = raw.trim().replace(' ', 'T');
+        LocalDateTime uploadDate;
+        try {
+            uploadDate = value.length() <= 10 ? LocalDate.parse(value).atStartOfDay() : LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("uploadDate: not an ISO date or date-time: " + raw);
+        }
+        // Monthly partitions only exist a few months ahead
+        if (uploadDate.isAfter(LocalDateTime.now().plusDays(1))) {
+            throw new IllegalArgumentException("uploadDate: in the future: " + raw);
+        }
+        return uploadDate;
+    }
+    
+    private Object parseValue(String raw, int sqlType) {
+        switch (sqlType) {
+            case Types.INTEGER -> {
+                int value = Integer.parseInt(raw);
+                if (value < 0) {
+                    throw new IllegalArgumentException("must not be negative");
+                }
+                return value;
+            }
+            case Types.DOUBLE -> {
+                double value = Double.parseDouble(raw);
+                if (!Double.isFinite(value)) {
+                    throw new IllegalArgumentException("must be a finite number");
+                }
+                return value;
+            }
+            case Types.BOOLEAN -> {
+                if ("true".equalsIgnoreCase(raw) || "1".equals(raw)) {
+                    return true;
+                }
+                if ("false".equalsIgnoreCase(raw) || "0".equals(raw)) {
+                    return false;
+                }
+                throw new IllegalArgumentException("not a boolean: " + raw);
+            }
+            default -> throw new IllegalStateException("Unsupported column type " + sqlType);
+        }
+    }
+    
+    private Map<String, String> csvRow(List<String> header, String line) {
+        List<String> fields = parseCsvLine(line);
+        if (fields.size() > header.size()) {
+            throw new IllegalArgumentException("more fields than header columns");
+        }
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < fields.size(); i++) {
+            values.put(header.get(i).trim(), fields.get(i));
+        }
+        return values;
+    }
+    
+    private Map<String, String> jsonRow(String line) throws JsonProcessingException {
+        JsonNode node = objectMapper.readTree(line);
+        if (node == null || !node.isObject()) {
+            throw new IllegalArgumentException("not a JSON object");
+        }
+        Map<String, String> values = new HashMap<>();
+        for (Map.Entry<String, JsonNode> field : node.properties()) {
+            if (!field.getValue().isNull()) {
+                values.put(field.getKey(), field.getValue().asText());
+            }
+        }
+        return values;
+    }
+    
+    /**
+     * Split one CSV line (RFC 4180 quoting; quoted line breaks are not supported)
+     */
+    private static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+    
+    private static int[] argTypes() {
+        int[] types = new int[COLUMNS.size() + 2];
+        types[0] = Types.BIGINT;
+        types[1] = Types.TIMESTAMP;
+        int index = 2;
+        for (int type : COLUMNS.values()) {
+            types[index++] = type;
+        }
+        return types;
+    }
+}
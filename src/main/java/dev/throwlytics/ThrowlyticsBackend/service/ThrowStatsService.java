@@ -0,0 +1,168 @@
+package dev.throwlytics.ThrowlyticsBackend.service;
+
+import dev.throwlytics.ThrowlyticsBackend.dto.MetricStats;
+import dev.throwlytics.ThrowlyticsBackend.dto.ThrowStatsResponse;
+import dev.throwlytics.ThrowlyticsBackend.dto.WeeklyThrowStats;
+import dev.throwlytics.ThrowlyticsBackend.model.ThowHistory;
+import dev.throwlytics.ThrowlyticsBackend.model.ThrowStatsRollup;
+import dev.throwlytics.ThrowlyticsBackend.repository.ThrowHistoryRepository;
+import dev.throwlytics.ThrowlyticsBackend.repository.ThrowStatsRollupRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Service that maintains and reads per-user throw statistics
+ * 
+ * Every saved throw adds its metrics to the user's all-time bucket and to the bucket
+ * for its week (count, sum, sum of squares, min, max). Reading stats touches a fixed
+ * number of rows (metrics x weeks), no matter how many throws the user has.
+ */
+@Service
+public class ThrowStatsService {
+    
+    /**
+     * Pseudo-metric counting throws (value 1 per throw)
+     */
+    public static final String THROWS = "throws";
+    
+    private static final String BACKFILL_JOB = "throw-stats-backfill";
+    
+    // Metrics aggregated per user, in response order (also sketched by PercentileSketchService)
+    static final Map<String, Function<ThowHistory, Double>> METRICS = new LinkedHashMap<>();
+    
+    static {
+        METRICS.put("releaseAngleDeg", ThowHistory::getReleaseAngleDeg);
+        METRICS.put("releaseLateralOffsetNorm", ThowHistory::getReleaseLateralOffsetNorm);
+        METRICS.put("elbowAngleDeg", ThowHistory::getElbowAngleDeg);
+        METRICS.put("shoulderAngleDeg", ThowHistory::getShoulderAngleDeg);
+        METRICS.put("wristAngleDeg", ThowHistory::getWristAngleDeg);
+    }
+    
+    @Autowired
+    private ThrowStatsRollupRepository throwStatsRollupRepository;
+    
+    @Autowired
+    private ThrowHistoryRepository throwHistoryRepository;
+    
+    @Autowired
+    private JobLockService jobLockService;
+    
+    // Number of weeks (including the current one) returned as the trend
+    @Value("${app.stats.trend-weeks:12}")
+    private int trendWeeks;
+    
+    /**
+     * Add a newly saved throw to its user's rollup
+     * Must run in the transaction that saves the throw, so both commit or neither does.
+     * 
+     * @param throwHistory Saved throw (user and uploadDate set)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordThrow(ThowHistory throwHistory) {
+        Map<String, Double> samples = new LinkedHashMap<>();
+        samples.put(THROWS, 1.0);
+        for (Map.Entry<String, Function<ThowHistory, Double>> metric : METRICS.entrySet()) {
+            Double value = metric.getValue().apply(throwHistory);
+            if (value != null && Double.isFinite(value)) {
+                samples.put(metric.getKey(), value);
+            }
+        }
+        
+        // One statement for every metric in both buckets
+        throwStatsRollupRepository.accumulate(throwHistory.getUser().getUserId(),
+            List.of(ThrowStatsRollup.ALL_TIME, weekOf(throwHistory.getUploadDate())), samples);
+    }
+    
+    /**
+     * Get all-time aggregates and the weekly trend for a user
+     * 
+     * @param userId User ID
+     * @return Stats (zero counts for a user without throws)
+     */
+    @Transactional(readOnly = true)
+    public ThrowStatsResponse getStats(Long userId) {
+        Map<String, MetricStats> allTime = new LinkedHashMap<>();
+        long throwCount = 0;
+        for (ThrowStatsRollup rollup : throwStatsRollupRepository.findByIdUserIdAndIdBucket(userId, ThrowStatsRollup.ALL_TIME)) {
+            if (THROWS.equals(rollup.getId().getMetric())) {
+                throwCount = rollup.getSampleCount();
+            } else {
+                allTime.put(rollup.getId().getMetric(), toMetricStats(rollup));
+            }
+        }
+        
+        LocalDate since = weekOf(LocalDateTime.now()).minusWeeks(trendWeeks - 1);
+        Map<LocalDate, WeeklyThrowStats> weeks = new TreeMap<>();
+        for (ThrowStatsRollup rollup : throwStatsRollupRepository
+                .findByIdUserIdAndIdBucketGreaterThanEqualOrderByIdBucketAsc(userId, since)) {
+            WeeklyThrowStats week = weeks.computeIfAbsent(rollup.getId().getBucket(),
+                bucket -> new WeeklyThrowStats(bucket, 0, new LinkedHashMap<>()));
+            if (THROWS.equals(rollup.getId().getMetric())) {
+                week.setThrowCount(rollup.getSampleCount());
+            } else {
+                week.getMetrics().put(rollup.getId().getMetric(), toMetricStats(rollup));
+            }
+        }
+        
+        return new ThrowStatsResponse(userId, throwCount, allTime, new ArrayList<>(weeks.values()));
+    }
+    
+    /**
+     * Build the rollup from existing throw history if it is empty (first start after upgrade)
+     * Nodes starting together take turns on the backfill lock; later ones find the rollup filled.
+     * @return number of buckets written
+     */
+    @Transactional
+    public int backfillIfEmpty() {
+        jobLockService.lockForTransaction(BACKFILL_JOB);
+        if (throwStatsRollupRepository.count() > 0 || throwHistoryRepository.count() == 0) {
+            return 0;
+        }
+        return throwStatsRollupRepository.rebuildFromHistory();
+    }
+    
+    /**
+     * Recompute a user's rollup from their history (e.g. after a bulk import)
+     * Joins the caller's transaction.
+     * 
+     * @param userId User ID
+     * @return number of buckets written
+     */
+    @Transactional
+    public int rebuildForUser(Long userId) {
+        throwStatsRollupRepository.deleteByIdUserId(userId);
+        return throwStatsRollupRepository.rebuildForUser(userId);
+    }
+    
+    private static MetricStats toMetricStats(ThrowStatsRollup rollup) {
+        long n = rollup.getSampleCount();
+        if (n == 0) {
+            return new MetricStats(0, null, null, null, null);
+        }
+        double mean = rollup.getValueSum() / n;
+        // Clamp tiny negative values from floating point cancellation
+        double variance = Math.max(0, rollup.getValueSumSquares() / n - mean * mean);
+        return new MetricStats(n, mean, Math.sqrt(variance), rollup.getMinValue(), rollup.getMaxValue());
+    }
+    
+    /**
+     * Monday of the week containing the given time (matches date_trunc('week', ...))
+     */
+    private static LocalDate weekOf(LocalDateTime time) {
+        return time.toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+}
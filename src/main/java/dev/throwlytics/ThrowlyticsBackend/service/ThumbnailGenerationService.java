@@ -0,0 +1,255 @@
+package dev.throwlytics.ThrowlyticsBackend.service;
+
+import dev.throwlytics.ThrowlyticsBackend.event.ThrowSavedEvent;
+import dev.throwlytics.ThrowlyticsBackend.exception.ResourceNotFoundException;
+import dev.throwlytics.ThrowlyticsBackend.exception.ThumbnailGenerationException;
+import dev.throwlytics.ThrowlyticsBackend.model.ThowHistory;
+import dev.throwlytics.ThrowlyticsBackend.repository.ThrowHistoryRepository;
+import dev.throwlytics.ThrowlyticsBackend.storage.LocalFile;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service that generates thumbnails outside of the save transaction
+ * 
+ * Two modes (app.thumbnail.mode):
+ *   eager - thumbnail is generated in the background right after the throw is committed
+ *   lazy  - thumbnail is generated the first time someone requests it
+ * 
+ * In both modes concurrent requests for the same throw share a single FFmpeg run.
+ */
+@Service
+public class ThumbnailGenerationService {
+    
+    /**
+     * URL prefix handed out for thumbnails that have not been rendered yet (lazy mode)
+     */
+    public static final String LAZY_PREFIX = "thumbnails/lazy/";
+    
+    @Autowired
+    private ThrowHistoryRepository throwHistoryRepository;
+    
+    @Autowired
+    private FileStorageService fileStorageService;
+    
+    @Autowired
+    private ThumbnailService thumbnailService;
+    
+    @Autowired
+    private HistoryResponseCache historyResponseCache;
+    
+    @Autowired
+    @Qualifier("mediaTaskExecutor")
+    private Executor mediaTaskExecutor;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${app.thumbnail.mode:eager}")
+    private String mode;
+    
+    @Value("${app.thumbnail.placeholder:thumbnails/placeholder.jpg}")
+    private String placeholderThumbnail;
+    
+    // Renders currently running, keyed by throw ID
+    private final ConcurrentHashMap<Long, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    
+    /**
+     * Whether thumbnails are rendered on first request instead of on upload
+     */
+    public boolean isLazy() {
+        return "lazy".equalsIgnoreCase(mode);
+    }
+    
+    /**
+     * URL stored on a new throw until its thumbnail exists
+     * It does not depend on the throw ID, so the row is written by its insert alone.
+     */
+    public String pendingThumbnailUrl() {
+        return placeholderThumbnail;
+    }
+    
+    /**
+     * URL handed to clients for a stored thumbnailUrl
+     * In lazy mode a throw still on the placeholder points at its on-demand render URL.
+     */
+    public String resolveThumbnailUrl(Long throwId, String thumbnailUrl) {
+        if (isLazy() && placeholderThumbnail.equals(thumbnailUrl)) {
+            return LAZY_PREFIX + throwId + ".jpg";
+        }
+        return thumbnailUrl;
+    }
+    
+    /**
+     * Generate the thumbnail once the history row has been committed (eager mode)
+     * Failures are logged and leave the placeholder in place. When the media queue is
+     * full the throw is switched to its lazy URL instead, so the upload request never
+     * runs FFmpeg itself and the thumbnail is rendered on first request.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onThrowSaved(ThrowSavedEvent event) {
+        if (isLazy()) {
+            return;
+        }
+        try {
+            mediaTaskExecutor.execute(() -> {
+                try {
+                    ensureThumbnail(event.getThrowId());
+                } catch (RuntimeException e) {
+                    System.err.println("Thumbnail generation failed for throw " + event.getThrowId() + ": " + e.getMessage());
+                }
+            });
+        } catch (TaskRejectedException e) {
+            System.err.println("Media queue full, thumbnail for throw " + event.getThrowId() + " will render on first request");
+            deferToLazy(event.getThrowId(), event.getUserId());
+        }
+    }
+    
+    /**
+     * Point a throw at its lazy render URL
+     * Runs in a new transaction: this is called after the save transaction committed.
+     */
+    private void deferToLazy(Long throwId, Long userId) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transactionTemplate.executeWithoutResult(status -> {
+            throwHistoryRepository.updateThumbnailUrl(throwId, LAZY_PREFIX + throwId + ".jpg");
+            historyResponseCache.invalidate(userId);
+        });
+    }
+    
+    /**
+     * Return the thumbnail path for a throw, rendering it if it does not exist yet
+     * Concurrent callers for the same throw wait on the first caller's render.
+     * 
+     * @param throwId Throw history ID
+     * @return Relative path to thumbnail
+     * @throws ResourceNotFoundException if the throw does not exist
+     * @throws ThumbnailGenerationException if thumbnail generation fails
+     */
+    public String ensureThumbnail(Long throwId) {
+        CompletableFuture<String> render = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(throwId, render);
+        if (existing != null) {
+            return awaitRender(existing);
+        }
+        
+        try {
+            String thumbnailPath = renderIfMissing(throwId);
+            render.complete(thumbnailPath);
+            return thumbnailPath;
+        } catch (RuntimeException e) {
+            render.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(throwId, render);
+        }
+    }
+    
+    /**
+     * Whether a stored thumbnailUrl points at a real rendered image
+     */
+    public boolean isRendered(String thumbnailUrl) {
+        return thumbnailUrl != null
+            && !thumbnailUrl.equals(placeholderThumbnail)
+            && !thumbnailUrl.startsWith(LAZY_PREFIX);
+    }
+    
+    /**
+     * Load the throw and render its thumbnail unless a previous render already stored one
+     */
+    private String renderIfMissing(Long throwId) {
+        ThowHistory throwHistory = throwHistoryRepository.findById(throwId)
+                .orElseThrow(() -> new ResourceNotFoundException("Throw not found: " + throwId));
+        
+        if (isRendered(throwHistory.getThumbnailUrl())) {
+            return throwHistory.getThumbnailUrl();
+        }
+        if (throwHistory.getVideoUrl() == null) {
+            // Imported throws have no video to render from
+            throw new ResourceNotFoundException("Throw has no video: " + throwId);
+        }
+        
+        return generateThumbnail(
+            throwId,
+            throwHistory.getUser().getUserId(),
+            throwHistory.getVideoUrl(),
+            throwHistory.getReleaseFrame()
+        );
+    }
+    
+    private String awaitRender(CompletableFuture<String> render) {
+        try {
+            return render.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new ThumbnailGenerationException("Failed to generate thumbnail: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Extract a frame from the video, store it and point the history row at it
+     * Uses release frame if available, otherwise uses first frame
+     * 
+     * @param throwId Throw history ID to update
+     * @param userId User ID
+     * @param videoPath Relative path to video
+     * @param releaseFrame Detected release frame (can be null)
+     * @return Relative path to thumbnail
+     * @throws ThumbnailGenerationException if thumbnail generation fails
+     */
+    public String generateThumbnail(Long throwId, Long userId, String videoPath, Integer releaseFrame) {
+        // Local copy of the video (the stored file itself on local storage)
+        try (LocalFile video = fileStorageService.fetchVideo(videoPath)) {
+            Path fullVideoPath = video.getPath();
+            
+            // Determine which frame to extract
+            // Priority: release frame if found, otherwise first frame (frame 0)
+            int frameToExtract = 0;  // Default to first frame
+            if (releaseFrame != null && releaseFrame >= 0) {
+                frameToExtract = releaseFrame;
+            }
+            
+            // Try to extract the selected frame
+            byte[] thumbnailBytes;
+            try {
+                thumbnailBytes = thumbnailService.extractFrame(fullVideoPath, frameToExtract);
+            } catch (IOException e) {
+                // If release frame extraction fails, fall back to first frame
+                if (frameToExtract != 0) {
+                    System.err.println("Failed to extract release frame " + frameToExtract +
+                        ", falling back to first frame: " + e.getMessage());
+                    thumbnailBytes = thumbnailService.extractFrame(fullVideoPath, 0);
+                } else {
+                    // If first frame extraction also fails, rethrow
+                    throw e;
+                }
+            }
+            
+            // Store thumbnail and update the committed row
+            String thumbnailPath = fileStorageService.storeThumbnail(thumbnailBytes, userId);
+            throwHistoryRepository.updateThumbnailUrl(throwId, thumbnailPath);
+            historyResponseCache.invalidate(userId);
+            return thumbnailPath;
+        } catch (IOException e) {
+            throw new ThumbnailGenerationException("Failed to generate thumbnail: " + e.getMessage(), e);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package dev.throwlytics.ThrowlyticsBackend.service;
 
+import dev.throwlytics.ThrowlyticsBackend.exception.ScratchSpaceUnavailableException;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -17,9 +19,15 @@ import java.nio.file.Path;
 @Service
 public class ThumbnailService {
     
+    // Upper bound on one extracted JPEG frame
+    private static final long FRAME_SCRATCH_BYTES = 16L * 1024 * 1024;
+    
     @Value("${ffmpeg.path:ffmpeg}")
     private String ffmpegPath;
     
+    @Autowired
+    private ScratchSpaceService scratchSpaceService;
+    
     /**
      * Extract a frame from a video file at a specific frame number
      * 
@@ -29,11 +37,10 @@ public class ThumbnailService {
      * @throws IOException if extraction fails
      */
     public byte[] extractFrame(Path videoPath, int frameNumber) throws IOException {
-        // Create temporary output file for the frame
-        File tempOutput = File.createTempFile("frame_", ".jpg");
-        tempOutput.deleteOnExit();
-        
-        try {
+        // Frame file lives in its own scratch job, removed as soon as the frame is read
+        try (ScratchSpaceService.Job job = scratchSpaceService.openJob("frame", FRAME_SCRATCH_BYTES)) {
+            File tempOutput = job.newFile("frame_", ".jpg").toFile();
+            
             // Build FFmpeg command
             // ffmpeg -i input.mp4 -vf "select=eq(n\,FRAME_NUMBER)" -vframes 1 output.jpg
             ProcessBuilder processBuilder = new ProcessBuilder(
@@ -70,13 +77,10 @@ public class ThumbnailService {
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new IOException("Frame extraction interrupted", e);
+        } catch (ScratchSpaceUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             throw new IOException("Failed to extract frame: " + e.getMessage(), e);
-        } finally {
-            // Cleanup
-            if (tempOutput.exists()) {
-                tempOutput.delete();
-            }
         }
     }
     
@@ -0,0 +1,251 @@
+package dev.throwlytics.ThrowlyticsBackend.service;
+
+import dev.throwlytics.ThrowlyticsBackend.storage.LocalFile;
+import dev.throwlytics.ThrowlyticsBackend.storage.StorageBackend;
+import dev.throwlytics.ThrowlyticsBackend.storage.StorageObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service for post-storage ingest steps on uploaded videos
+ * Moves the MP4/MOV index (moov atom) to the front of the file so browsers
+ * can start playback without downloading the whole video first.
+ */
+@Service
+public class VideoIngestService {
+    
+    // Containers that use the ISO base media file format (top-level boxes)
+    private static final List<String> ISO_BMFF_EXTENSIONS = List.of(".mp4", ".mov", ".m4v");
+    
+    @Autowired
+    private StorageBackend storageBackend;
+    
+    @Autowired
+    private StorageQuotaService storageQuotaService;
+    
+    @Autowired
+    private FileStorageService fileStorageService;
+    
+    @Autowired
+    private ScratchSpaceService scratchSpaceService;
+    
+    @Value("${ffmpeg.path:ffmpeg}")
+    private String ffmpegPath;
+    
+    @Value("${app.ingest.faststart.enabled:true}")
+    private boolean faststartEnabled;
+    
+    @Value("${app.ingest.faststart.timeout-seconds:300}")
+    private long faststartTimeoutSeconds;
+    
+    /**
+     * Prepare a stored video for progressive playback
+     * If the moov atom sits after the media data, the file is remuxed (stream copy,
+     * no re-encode) with the index at the front and written back under the same key.
+     * Any failure is logged and the original object is kept.
+     * 
+     * Runs synchronously on the upload request, before release detection and before the
+     * save that triggers thumbnail, HLS and transcode jobs, so none of them reads the
+     * video while it is being replaced. The check is a few ranged reads; only uploads
+     * with a trailing index pay for the (stream-copy) remux.
+     * 
+     * @param videoKey Storage key of the video (e.g. videos/1/uuid.mp4)
+     * @return true if the video was rewritten
+     */
+    public boolean prepareForPlayback(String videoKey) {
+        if (!faststartEnabled || !isIsoMediaFile(videoKey)) {
+            return false;
+        }
+        
+        Path remuxedPath = null;
+        try {
+            // Box headers are read with small ranged reads, so remote objects are
+            // only downloaded when they actually need a remux
+            long originalSize = storageBackend.stat(videoKey).map(StorageObject::getSize).orElse(0L);
+            if (!hasTrailingMoov((buffer, position) -> readRange(videoKey, buffer, position), originalSize)) {
+                return false;
+            }
+            
+            try (LocalFile video = fileStorageService.fetchVideo(videoKey);
+                 // Room for the remuxed copy (plus the download, for remote backends)
+                 ScratchSpaceService.Job job = scratchSpaceService.openJob("faststart", 2 * originalSize)) {
+                Path source = video.getPath();
+                // Remux next to a local original so the swap is a rename
+                remuxedPath = video.isTemporary()
+                    ? job.newFile("faststart_", ".tmp")
+                    : source.resolveSibling(source.getFileName() + ".faststart.tmp");
+                
+                remuxFaststart(source, remuxedPath);
+                
+                // Only swap in output that really has the index up front
+                if (Files.size(remuxedPath) == 0 || hasTrailingMoov(remuxedPath)) {
+                    throw new IOException("Remuxed file is empty or still has a trailing moov atom");
+                }
+                
+                // Remuxing changes the size slightly; growth is charged against the owner's
+                // quota before the swap, and an owner without room keeps the original
+                long remuxedSize = Files.size(remuxedPath);
+                Long owner = storageQuotaService.ownerOf(videoKey);
+                if (!storageQuotaService.tryCharge(owner, remuxedSize - originalSize)) {
+                    throw new IOException("Remuxed file would exceed the owner's storage quota");
+                }
+                try {
+                    storageBackend.importFile(videoKey, remuxedPath,
+                        MediaTypeFactory.getMediaType(videoKey).map(MediaType::toString).orElse(null));
+                } catch (IOException | RuntimeException e) {
+                    storageQuotaService.release(owner, remuxedSize - originalSize, 0);
+                    throw e;
+                }
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Faststart remux skipped for " + videoKey + ": " + e.getMessage());
+            return false;
+        } finally {
+            if (remuxedPath != null) {
+                try {
+                    Files.deleteIfExists(remuxedPath);
+                } catch (IOException cleanupEx) {
+                    // Ignore cleanup errors
+                }
+            }
+        }
+    }
+    
+    /**
+     * Check whether the moov atom comes after the mdat atom in a local file
+     * 
+     * @param videoPath Full path to video file
+     * @return true if media data precedes the index
+     * @throws IOException if the file cannot be read
+     */
+    public boolean hasTrailingMoov(Path videoPath) throws IOException {
+        try (FileChannel channel = FileChannel.open(videoPath, StandardOpenOption.READ)) {
+            return hasTrailingMoov(channel::read, channel.size());
+        }
+    }
+    
+    /**
+     * Reads bytes at an absolute position into a buffer
+     */
+    @FunctionalInterface
+    private interface PositionalReader {
+        int read(ByteBuffer buffer, long position) throws IOException;
+    }
+    
+    /**
+     * Walk the top-level box headers looking for moov after mdat
+     * Reads a few bytes per box regardless of file size.
+     */
+    private boolean hasTrailingMoov(PositionalReader reader, long fileSize) throws IOException {
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(16);
+        boolean seenMdat = false;
+        
+        while (position + 8 <= fileSize) {
+            header.clear().limit(8);
+            if (reader.read(header, position) < 8) {
+                return false;
+            }
+            header.flip();
+            long boxSize = Integer.toUnsignedLong(header.getInt());
+            String boxType = new String(new byte[] {
+                header.get(), header.get(), header.get(), header.get()
+            }, StandardCharsets.US_ASCII);
+            
+            if (boxSize == 1) {
+                // 64-bit "largesize" follows the type
+                header.clear().limit(8);
+                if (reader.read(header, position + 8) < 8) {
+                    return false;
+                }
+                header.flip();
+                boxSize = header.getLong();
+            } else if (boxSize == 0) {
+                // Box runs to end of file
+                boxSize = fileSize - position;
+            }
+            
+            if ("moov".equals(boxType)) {
+                return seenMdat;
+            }
+            if ("mdat".equals(boxType)) {
+                seenMdat = true;
+            }
+            
+            if (boxSize < 8) {
+                // Malformed box; leave the file alone
+                return false;
+            }
+            position += boxSize;
+        }
+        return false;
+    }
+    
+    private int readRange(String key, ByteBuffer buffer, long position) throws IOException {
+        try (InputStream inputStream = storageBackend.getRange(key, position, buffer.remaining())) {
+            byte[] bytes = inputStream.readNBytes(buffer.remaining());
+            buffer.put(bytes);
+            return bytes.length;
+        }
+    }
+    
+    /**
+     * Remux with FFmpeg: copy video and audio and write the index at the front
+     * ffmpeg -i input.mp4 -map 0:v -map 0:a? -dn -ignore_unknown -c copy -movflags +faststart output.mp4
+     * Phone MOV files carry timecode (tmcd) and metadata (mebx) data tracks that cannot
+     * be stream-copied into a new file, so only video and audio are kept.
+     */
+    private void remuxFaststart(Path source, Path target) throws IOException {
+        String format = source.getFileName().toString().toLowerCase().endsWith(".mov") ? "mov" : "mp4";
+        ProcessBuilder processBuilder = new ProcessBuilder(
+                ffmpegPath,
+                "-i", source.toString(),
+                "-map", "0:v",
+                "-map", "0:a?",
+                "-dn",
+                "-ignore_unknown",
+                "-c", "copy",
+                "-movflags", "+faststart",
+                "-f", format,
+                "-y",
+                target.toString()
+        );
+        processBuilder.redirectErrorStream(true);
+        processBuilder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        
+        Process process = processBuilder.start();
+        try {
+            if (!process.waitFor(faststartTimeoutSeconds, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                throw new IOException("FFmpeg remux timed out after " + faststartTimeoutSeconds + " seconds");
+            }
+            if (process.exitValue() != 0) {
+                throw new IOException("FFmpeg remux failed with exit code: " + process.exitValue());
+            }
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new IOException("FFmpeg remux interrupted", e);
+        }
+    }
+    
+    private boolean isIsoMediaFile(String videoKey) {
+        String filename = videoKey.toLowerCase();
+        return ISO_BMFF_EXTENSIONS.stream().anyMatch(filename::endsWith);
+    }
+}
@@ -1,6 +1,7 @@
 package dev.throwlytics.ThrowlyticsBackend.service;
 
 import dev.throwlytics.ThrowlyticsBackend.dto.ReleaseDetectionResponse;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.http.*;
@@ -26,6 +27,9 @@ public class VideoProcessingService {
     
     private final RestTemplate restTemplate;
     
+    @Autowired
+    private ScratchSpaceService scratchSpaceService;
+    
     public VideoProcessingService() {
         this.restTemplate = new RestTemplate();
     }
@@ -48,9 +52,10 @@ public class VideoProcessingService {
             Integer frameSkip
     ) throws IOException, RestClientException {
         
-        // Create temporary file for video
-        Path tempFile = Files.createTempFile("video_", ".mp4");
-        try {
+        // Copy the upload into its own scratch job (removed when the job closes)
+        try (ScratchSpaceService.Job job = scratchSpaceService.openJob("analysis", videoFile.getSize())) {
+            Path tempFile = job.newFile("video_", ".mp4");
+            
             // Copy multipart file to temporary file
             videoFile.transferTo(tempFile.toFile());
             
@@ -88,15 +93,6 @@ public class VideoProcessingService {
             } else {
                 throw new RestClientException("Python service returned error: " + response.getStatusCode());
             }
-            
-        } finally {
-            // Cleanup temporary file
-            try {
-                Files.deleteIfExists(tempFile);
-            } catch (IOException e) {
-                // Log but don't throw - cleanup failure shouldn't break the flow
-                System.err.println("Failed to delete temporary file: " + e.getMessage());
-            }
         }
     }
     
@@ -0,0 +1,341 @@
+package dev.throwlytics.ThrowlyticsBackend.service;
+
+import dev.throwlytics.ThrowlyticsBackend.exception.FileStorageException;
+import dev.throwlytics.ThrowlyticsBackend.model.ThowHistory;
+import dev.throwlytics.ThrowlyticsBackend.repository.ThrowHistoryRepository;
+import dev.throwlytics.ThrowlyticsBackend.storage.LocalStorageBackend;
+import dev.throwlytics.ThrowlyticsBackend.storage.PrefixedStorageBackend;
+import dev.throwlytics.ThrowlyticsBackend.storage.StorageBackend;
+import dev.throwlytics.ThrowlyticsBackend.storage.StorageObject;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Service that keeps recently watched videos on the hot storage backend and moves
+ * old, idle videos to a cheaper cold tier: a prefix of the primary backend (on S3, a
+ * lifecycle rule moves it to a cheaper storage class) or a separate local directory
+ * 
+ * - Thumbnails, HLS packages and throw metadata always stay hot.
+ * - Access times are kept in memory and flushed to ThowHistory.lastAccessedAt in
+ *   batches, so streaming a video never costs a database write. Only user-facing
+ *   streams count as access; background jobs reading a video do not keep it hot.
+ * - A nightly job archives videos past the age/idle policy, then keeps archiving the
+ *   least recently used videos until hot video usage is under the byte budget. It runs
+ *   on one node at a time under a job_lock lease.
+ * - Reading an archived video (stream, analysis, packaging) moves it back to the hot
+ *   tier first; concurrent readers share a single copy.
+ */
+@Service
+public class VideoTieringService {
+    
+    private static final String ARCHIVE_JOB = "storage-tiering";
+    
+    @Autowired
+    private StorageBackend storageBackend;
+    
+    @Autowired
+    private ThrowHistoryRepository throwHistoryRepository;
+    
+    @Autowired
+    private JobLockService jobLockService;
+    
+    @Value("${app.storage.tiering.enabled:false}")
+    private boolean enabled;
+    
+    // "prefix" (cold-prefix inside the primary backend) or "local" (cold-root directory)
+    @Value("${app.storage.tiering.cold-backend:local}")
+    private String coldBackendType;
+    
+    @Value("${app.storage.tiering.cold-prefix:cold/}")
+    private String coldPrefix;
+    
+    @Value("${app.storage.tiering.cold-root:uploads-cold}")
+    private String coldRoot;
+    
+    // Videos stay hot for at least this long after upload
+    @Value("${app.storage.tiering.min-hot-days:7}")
+    private long minHotDays;
+    
+    // ... and are archived once they have not been watched for this long
+    @Value("${app.storage.tiering.idle-days:7}")
+    private long idleDays;
+    
+    // Upper bound on hot video bytes (0 = no limit)
+    @Value("${app.storage.tiering.max-hot-bytes:53687091200}")
+    private long maxHotBytes;
+    
+    @Value("${app.storage.tiering.batch-size:100}")
+    private int batchSize;
+    
+    // Lease for one archiving run; should exceed the time a run takes
+    @Value("${app.storage.tiering.lease-minutes:120}")
+    private long leaseMinutes;
+    
+    private StorageBackend coldBackend;
+    
+    // Latest unflushed access per video key
+    private final ConcurrentHashMap<String, Long> pendingAccess = new ConcurrentHashMap<>();
+    
+    // Rehydrations currently running, keyed by video key
+    private final ConcurrentHashMap<String, CompletableFuture<Void>> rehydrating = new ConcurrentHashMap<>();
+    
+    @PostConstruct
+    void init() {
+        coldBackend = switch (coldBackendType) {
+            case "prefix" -> new PrefixedStorageBackend(storageBackend, coldPrefix);
+            case "local" -> new LocalStorageBackend(coldRoot);
+            default -> throw new IllegalStateException(
+                "Unknown app.storage.tiering.cold-backend: " + coldBackendType);
+        };
+    }
+    
+    /**
+     * List videos currently on the cold tier
+     * @param prefix Key prefix (e.g. videos/)
+     */
+    public Stream<StorageObject> listArchived(String prefix) throws IOException {
+        return coldBackend.list(prefix);
+    }
+    
+    /**
+     * Note that a user watched a video; the timestamp reaches the database on the next flush
+     */
+    public void recordAccess(String videoKey) {
+        pendingAccess.put(videoKey, System.currentTimeMillis());
+    }
+    
+    /**
+     * Make sure a video is on the hot tier, moving it back from the cold tier if needed
+     * Costs one stat for videos that are already hot; the metadata is returned so
+     * callers do not stat the object again. Does not count as an access (see recordAccess).
+     * 
+     * @param videoKey Storage key of the video
+     * @return Hot object metadata, or empty if the video exists on neither tier
+     * @throws IOException if the video cannot be moved back
+     */
+    public Optional<StorageObject> ensureHot(String videoKey) throws IOException {
+        Optional<StorageObject> hot = storageBackend.stat(videoKey);
+        if (hot.isPresent()) {
+            return hot;
+        }
+        
+        CompletableFuture<Void> rehydration = new CompletableFuture<>();
+        CompletableFuture<Void> existing = rehydrating.putIfAbsent(videoKey, rehydration);
+        if (existing != null) {
+            awaitRehydration(existing);
+            return storageBackend.stat(videoKey);
+        }
+        
+        try {
+            rehydrate(videoKey);
+            rehydration.complete(null);
+        } catch (IOException | RuntimeException e) {
+            rehydration.completeExceptionally(e);
+            throw e;
+        } finally {
+            rehydrating.remove(videoKey, rehydration);
+        }
+        return storageBackend.stat(videoKey);
+    }
+    
+    /**
+     * Copy a cold video back to the hot tier, then drop the cold copy
+     * A missing cold copy is not an error here; the caller's read reports the 404.
+     */
+    private void rehydrate(String videoKey) throws IOException {
+        Optional<StorageObject> cold = coldBackend.stat(videoKey);
+        if (cold.isEmpty() || storageBackend.stat(videoKey).isPresent()) {
+            return;
+        }
+        
+        try (InputStream inputStream = coldBackend.get(videoKey)) {
+            storageBackend.put(videoKey, inputStream, cold.get().getSize(), null);
+        }
+        throwHistoryRepository.updateVideoArchived(videoKey, false);
+        coldBackend.delete(videoKey);
+    }
+    
+    private void awaitRehydration(CompletableFuture<Void> rehydration) throws IOException {
+        try {
+            rehydration.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IOException("Failed to rehydrate video: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Write pending access timestamps to the database
+     */
+    @Scheduled(fixedDelayString = "${app.storage.tiering.access-flush-ms:60000}")
+    public void flushAccessTimes() {
+        for (Map.Entry<String, Long> entry : pendingAccess.entrySet()) {
+            // Only drop the entry if no newer access arrived meanwhile
+            if (pendingAccess.remove(entry.getKey(), entry.getValue())) {
+                LocalDateTime accessedAt = LocalDateTime.ofInstant(
+                    Instant.ofEpochMilli(entry.getValue()), ZoneId.systemDefault());
+                try {
+                    throwHistoryRepository.updateLastAccessedAt(entry.getKey(), accessedAt);
+                } catch (RuntimeException e) {
+                    System.err.println("Failed to record access for " + entry.getKey() + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        flushAccessTimes();
+    }
+    
+    /**
+     * Nightly archiving run
+     */
+    @Scheduled(cron = "${app.storage.tiering.cron:0 0 4 * * *}")
+    public void scheduledArchive() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int archived = archiveColdVideos();
+            if (archived < 0) {
+                return;
+            }
+            System.out.println("✓ Storage tiering archived " + archived + " videos");
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Storage tiering failed: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Apply the tiering policy: archive old idle videos, then enforce the hot byte budget
+     * Skipped on nodes that do not win the archiving lease.
+     * @return number of videos archived, or -1 if another node holds the lease
+     * @throws IOException if hot usage cannot be measured
+     */
+    public int archiveColdVideos() throws IOException {
+        if (!jobLockService.tryLock(ARCHIVE_JOB, Duration.ofMinutes(leaseMinutes))) {
+            return -1;
+        }
+        flushAccessTimes();
+        LocalDateTime now = LocalDateTime.now();
+        
+        // Age/idle policy
+        int archived = archiveWhile(now.minusDays(minHotDays), now.minusDays(idleDays), () -> true);
+        
+        // Byte budget: least recently used first, skipping anything touched in the last hour
+        if (maxHotBytes > 0) {
+            long[] hotBytes = {hotVideoBytes()};
+            archived += archiveWhile(now.minusHours(1), now.minusHours(1), () -> hotBytes[0] > maxHotBytes,
+                size -> hotBytes[0] -= size);
+        }
+        return archived;
+    }
+    
+    private int archiveWhile(LocalDateTime uploadedBefore, LocalDateTime accessedBefore, BooleanSupplier condition)
+            throws IOException {
+        return archiveWhile(uploadedBefore, accessedBefore, condition, size -> { });
+    }
+    
+    /**
+     * Archive candidates in least-recently-used order while the condition holds
+     */
+    private int archiveWhile(LocalDateTime uploadedBefore, LocalDateTime accessedBefore, BooleanSupplier condition,
+                             LongConsumer onArchived) throws IOException {
+        int archived = 0;
+        while (condition.getAsBoolean()) {
+            List<ThowHistory> candidates = throwHistoryRepository.findArchiveCandidates(
+                uploadedBefore, accessedBefore, PageRequest.of(0, batchSize));
+            
+            int progress = 0;
+            for (ThowHistory throwHistory : candidates) {
+                if (!condition.getAsBoolean()) {
+                    break;
+                }
+                long size = archive(throwHistory.getVideoUrl());
+                if (size >= 0) {
+                    onArchived.accept(size);
+                    archived++;
+                    progress++;
+                }
+            }
+            // Stop when nothing is left or every remaining candidate failed
+            if (candidates.isEmpty() || progress == 0) {
+                break;
+            }
+        }
+        return archived;
+    }
+    
+    /**
+     * Copy one video to the cold tier, mark it archived, then remove the hot copy
+     * @return bytes freed on the hot tier, or -1 if the video could not be archived
+     */
+    private long archive(String videoKey) {
+        // Watched since the run started: leave it hot
+        if (pendingAccess.containsKey(videoKey)) {
+            return -1;
+        }
+        try {
+            Optional<StorageObject> hot = storageBackend.stat(videoKey);
+            if (hot.isEmpty()) {
+                // Already cold (e.g. an earlier run stopped before updating the row)
+                if (coldBackend.stat(videoKey).isPresent()) {
+                    throwHistoryRepository.updateVideoArchived(videoKey, true);
+                    return 0;
+                }
+                return -1;
+            }
+            
+            try (InputStream inputStream = storageBackend.get(videoKey)) {
+                coldBackend.put(videoKey, inputStream, hot.get().getSize(), null);
+            }
+            throwHistoryRepository.updateVideoArchived(videoKey, true);
+            storageBackend.delete(videoKey);
+            return hot.get().getSize();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to archive video " + videoKey + ": " + e.getMessage());
+            return -1;
+        }
+    }
+    
+    /**
+     * Total bytes of video currently on the hot tier
+     */
+    private long hotVideoBytes() throws IOException {
+        try (Stream<StorageObject> objects = storageBackend.list("videos/")) {
+            return objects.mapToLong(StorageObject::getSize).sum();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (FileStorageException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package dev.throwlytics.ThrowlyticsBackend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.throwlytics.ThrowlyticsBackend.model.ThowHistory;
+import dev.throwlytics.ThrowlyticsBackend.repository.ThrowHistoryRepository;
+import dev.throwlytics.ThrowlyticsBackend.storage.LocalFile;
+import dev.throwlytics.ThrowlyticsBackend.storage.StorageBackend;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service that re-encodes stored uploads to a storage-efficient profile in the background
+ * 
+ * Phone uploads are often 50-100 Mbps; review playback needs a fraction of that. Each
+ * video is re-encoded with a capped bitrate while keeping every source frame with its
+ * original timing (-fps_mode passthrough), so detected release frame numbers stay valid.
+ * 
+ * The output is verified with ffprobe (same video frame count, similar duration, and a
+ * real size saving) before it replaces the original under the same storage key. The
+ * original is kept under originals/ only when app.transcode.keep-original is set.
+ * 
+ * Runs on a single minimum-priority thread with FFmpeg under nice and a thread cap,
+ * so it only uses CPU that live uploads are not using. A video that fails is retried
+ * with exponential backoff and given up on after app.transcode.max-attempts.
+ * 
+ * A run holds a job_lock lease, so only one node transcodes (and charges quota for) a
+ * given video. The run stops starting new videos once one could outlast the lease.
+ */
+@Service
+public class VideoTranscodeService {
+    
+    private static final String TRANSCODE_JOB = "video-transcode";
+    
+    @Autowired
+    private ThrowHistoryRepository throwHistoryRepository;
+    
+    @Autowired
+    private FileStorageService fileStorageService;
+    
+    @Autowired
+    private StorageBackend storageBackend;
+    
+    @Autowired
+    private StorageQuotaService storageQuotaService;
+    
+    @Autowired
+    private ScratchSpaceService scratchSpaceService;
+    
+    @Autowired
+    private JobLockService jobLockService;
+    
+    @Autowired
+    @Qualifier("transcodeTaskExecutor")
+    private Executor transcodeTaskExecutor;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Value("${ffmpeg.path:ffmpeg}")
+    private String ffmpegPath;
+    
+    @Value("${ffprobe.path:ffprobe}")
+    private String ffprobePath;
+    
+    @Value("${app.transcode.enabled:true}")
+    private boolean enabled;
+    
+    // libx264 or libx265
+    @Value("${app.transcode.codec:libx264}")
+    private String codec;
+    
+    @Value("${app.transcode.crf:23}")
+    private int crf;
+    
+    @Value("${app.transcode.max-bitrate:6M}")
+    private String maxBitrate;
+    
+    @Value("${app.transcode.audio-bitrate:96k}")
+    private String audioBitrate;
+    
+    // FFmpeg encoder threads
+    @Value("${app.transcode.threads:2}")
+    private int threads;
+    
+    // Start FFmpeg under "nice -n 19" (Unix only)
+    @Value("${app.transcode.nice:true}")
+    private boolean useNice;
+    
+    @Value("${app.transcode.keep-original:false}")
+    private boolean keepOriginal;
+    
+    // Leave fresh uploads alone until thumbnails and packaging are done
+    @Value("${app.transcode.min-age-hours:1}")
+    private long minAgeHours;
+    
+    @Value("${app.transcode.max-per-run:50}")
+    private int maxPerRun;
+    
+    // Output must be at most this fraction of the original to be worth swapping in
+    @Value("${app.transcode.max-output-ratio:0.8}")
+    private double maxOutputRatio;
+    
+    @Value("${app.transcode.timeout-minutes:60}")
+    private long timeoutMinutes;
+    
+    // Failed videos are retried after retry-backoff-hours, doubling each time, up to max-attempts
+    @Value("${app.transcode.max-attempts:3}")
+    private int maxAttempts;
+    
+    @Value("${app.transcode.retry-backoff-hours:24}")
+    private long retryBackoffHours;
+    
+    // Lease for one run; must exceed timeout-minutes, or a run can never start a video
+    @Value("${app.transcode.lease-minutes:360}")
+    private long leaseMinutes;
+    
+    /**
+     * Nightly trigger; the run itself happens on the transcode executor
+     */
+    @Scheduled(cron = "${app.transcode.cron:0 0 1 * * *}")
+    public void scheduleRun() {
+        if (enabled) {
+            transcodeTaskExecutor.execute(this::transcodeBatch);
+        }
+    }
+    
+    /**
+     * Transcode up to max-per-run pending videos, one at a time
+     * Skipped on nodes that do not win the transcode lease.
+     * @return number of videos replaced with a smaller encode
+     */
+    public int transcodeBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        if (!jobLockService.tryLock(TRANSCODE_JOB, Duration.ofMinutes(leaseMinutes))) {
+            return 0;
+        }
+        LocalDateTime lastStart = now.plusMinutes(leaseMinutes - timeoutMinutes);
+        
+        int replaced = 0;
+        List<ThowHistory> candidates = throwHistoryRepository.findTranscodeCandidates(
+            now.minusHours(minAgeHours), maxAttempts, now, PageRequest.of(0, maxPerRun));
+        for (ThowHistory throwHistory : candidates) {
+            // Another node may take the lease once it expires; leave the rest to the next run
+            if (LocalDateTime.now().isAfter(lastStart)) {
+                break;
+            }
+            try {
+                if (transcode(throwHistory.getVideoUrl())) {
+                    replaced++;
+                }
+                throwHistoryRepository.markVideoTranscoded(throwHistory.getThrowId());
+            } catch (IOException | RuntimeException e) {
+                // Left unmarked so a later run retries it, once the backoff has passed
+                int attempts = throwHistory.getTranscodeAttempts() != null ? throwHistory.getTranscodeAttempts() : 0;
+                throwHistoryRepository.recordTranscodeFailure(throwHistory.getThrowId(),
+                    now.plusHours(retryBackoffHours << Math.min(attempts, 10)));
+                System.err.println("Transcode failed for throw " + throwHistory.getThrowId()
+                    + " (attempt " + (attempts + 1) + " of " + maxAttempts + "): " + e.getMessage());
+            }
+        }
+        if (replaced > 0) {
+            System.out.println("✓ Transcoded " + replaced + " videos");
+        }
+        return replaced;
+    }
+    
+    /**
+     * Re-encode one stored video and swap the result in if it verifies
+     * @return true if the stored video was replaced
+     * @throws IOException if encoding or storage fails
+     */
+    public boolean transcode(String videoKey) throws IOException {
+        try (LocalFile video = fileStorageService.fetchVideo(videoKey);
+             ScratchSpaceService.Job job = scratchSpaceService.openJob("transcode", Files.size(video.getPath()))) {
+            Path source = video.getPath();
+            long sourceSize = Files.size(source);
+            ProbeResult sourceProbe = probe(source);
+            
+            // Already at or below the target profile: nothing to gain
+            if (sourceProbe.bitRate() > 0 && sourceProbe.bitRate() <= parseBitrate(maxBitrate)) {
+                return false;
+            }
+            
+            String format = videoKey.toLowerCase().endsWith(".mov") ? "mov" : "mp4";
+            Path output = job.newFile("transcode_", "." + format);
+            runFfmpeg(buildCommand(source, output, format));
+            
+            ProbeResult outputProbe = probe(output);
+            long outputSize = Files.size(output);
+            if (outputProbe.frameCount() != sourceProbe.frameCount()) {
+                throw new IOException("Frame count changed: " + sourceProbe.frameCount() + " -> " + outputProbe.frameCount());
+            }
+            if (Math.abs(outputProbe.duration() - sourceProbe.duration()) > 0.5) {
+                throw new IOException("Duration changed: " + sourceProbe.duration() + "s -> " + outputProbe.duration() + "s");
+            }
+            if (outputSize > sourceSize * maxOutputRatio) {
+                return false;
+            }
+            
+            String originalKey = originalKeyFor(videoKey);
+            if (keepOriginal) {
+                try (InputStream inputStream = Files.newInputStream(source)) {
+                    storageBackend.put(originalKey, inputStream, sourceSize, null);
+                }
+            }
+            
+            // Same key, so history rows, signed URLs and HLS packages stay valid
+            try {
+                storageBackend.importFile(videoKey, output,
+                    MediaTypeFactory.getMediaType(videoKey).map(MediaType::toString).orElse(null));
+            } catch (IOException e) {
+                if (keepOriginal) {
+                    storageBackend.delete(originalKey);
+                }
+                throw e;
+            }
+            
+            // Charged only once the swap has happened
+            Long userId = storageQuotaService.ownerOf(videoKey);
+            if (keepOriginal) {
+                // Original moves to originals/, the encode is a new file
+                storageQuotaService.charge(userId, outputSize, 1);
+            } else {
+                storageQuotaService.charge(userId, outputSize - sourceSize, 0);
+            }
+            return true;
+        }
+    }
+    
+    /**
+     * Key the untouched original is kept under: videos/... -> originals/...
+     */
+    private String originalKeyFor(String videoKey) {
+        return "originals/" + videoKey.substring(videoKey.indexOf('/') + 1);
+    }
+    
+    /**
+     * ffmpeg -i in -map 0:v:0 -map 0:a? -c:v CODEC -crf N -maxrate R -bufsize 2R
+     *        -fps_mode passthrough -c:a aac -movflags +faststart out
+     */
+    private List<String> buildCommand(Path source, Path output, String format) {
+        List<String> command = new ArrayList<>();
+        if (useNice) {
+            command.addAll(List.of("nice", "-n", "19"));
+        }
+        long maxrate = parseBitrate(maxBitrate);
+        command.addAll(List.of(
+                ffmpegPath,
+                "-i", source.toString(),
+                "-map", "0:v:0",
+                "-map", "0:a?",
+                "-c:v", codec,
+                "-preset", "medium",
+                "-crf", String.valueOf(crf),
+                "-maxrate", String.valueOf(maxrate),
+                "-bufsize", String.valueOf(maxrate * 2),
+                // Keep every frame at its original timestamp
+                "-fps_mode", "passthrough",
+                "-threads", String.valueOf(threads),
+                "-c:a", "aac",
+                "-b:a", audioBitrate,
+                "-movflags", "+faststart",
+                "-f", format,
+                "-y",
+                output.toString()
+        ));
+        if ("libx265".equals(codec)) {
+            // Tag HEVC so Apple players accept it
+            command.addAll(command.size() - 2, List.of("-tag:v", "hvc1"));
+        }
+        return command;
+    }
+    
+    private void runFfmpeg(List<String> command) throws IOException {
+        ProcessBuilder processBuilder = new ProcessBuilder(command);
+        processBuilder.redirectErrorStream(true);
+        processBuilder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        
+        Process process = processBuilder.start();
+        try {
+            if (!process.waitFor(timeoutMinutes, TimeUnit.MINUTES)) {
+                process.destroyForcibly();
+                throw new IOException("FFmpeg transcode timed out after " + timeoutMinutes + " minutes");
+            }
+            if (process.exitValue() != 0) {
+                throw new IOException("FFmpeg transcode failed with exit code: " + process.exitValue());
+            }
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new IOException("Transcode interrupted", e);
+        }
+    }
+    
+    /**
+     * Video frame count, duration and overall bitrate reported by ffprobe
+     */
+    private record ProbeResult(long frameCount, double duration, long bitRate) {
+    }
+    
+    private ProbeResult probe(Path file) throws IOException {
+        ProcessBuilder processBuilder = new ProcessBuilder(
+                ffprobePath,
+                "-v", "error",
+                "-select_streams", "v:0",
+                "-count_packets",
+                "-show_entries", "stream=nb_read_packets:format=duration,bit_rate",
+                "-of", "json",
+                file.toString()
+        );
+        processBuilder.redirectError(ProcessBuilder.Redirect.DISCARD);
+        
+        Process process = processBuilder.start();
+        JsonNode result;
+        try (InputStream inputStream = process.getInputStream()) {
+            result = objectMapper.readTree(inputStream);
+        }
+        try {
+            if (!process.waitFor(5, TimeUnit.MINUTES) || process.exitValue() != 0) {
+                process.destroyForcibly();
+                throw new IOException("ffprobe failed for " + file.getFileName());
+            }
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new IOException("ffprobe interrupted", e);
+        }
+        
+        JsonNode stream = result.path("streams").path(0);
+        JsonNode format = result.path("format");
+        if (stream.isMissingNode()) {
+            throw new IOException("No video stream in " + file.getFileName());
+        }
+        return new ProbeResult(
+            stream.path("nb_read_packets").asLong(),
+            format.path("duration").asDouble(),
+            format.path("bit_rate").asLong()
+        );
+    }
+    
+    /**
+     * Parse an FFmpeg-style bitrate such as 6M or 800k into bits per second
+     */
+    private long parseBitrate(String value) {
+        String trimmed = value.trim().toLowerCase();
+        if (trimmed.endsWith("m")) {
+            return Long.parseLong(trimmed.substring(0, trimmed.length() - 1)) * 1_000_000;
+        }
+        if (trimmed.endsWith("k")) {
+            return Long.parseLong(trimmed.substring(0, trimmed.length() - 1)) * 1_000;
+        }
+        return Long.parseLong(trimmed);
+    }
+}
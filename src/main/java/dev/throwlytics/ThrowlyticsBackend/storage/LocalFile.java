@@ -0,0 +1,59 @@
+package dev.throwlytics.ThrowlyticsBackend.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A stored object available as a file on local disk
+ * Either the backend's own file (nothing to clean up) or a temporary download
+ * that is deleted on close. Use with try-with-resources.
+ */
+public class LocalFile implements AutoCloseable {
+    
+    private final Path path;
+    private final boolean temporary;
+    private final Runnable cleanup;
+    
+    public LocalFile(Path path, boolean temporary) {
+        this.path = path;
+        this.temporary = temporary;
+        this.cleanup = null;
+    }
+    
+    /**
+     * Temporary copy whose cleanup is handled by the caller (e.g. a scratch job)
+     */
+    public LocalFile(Path path, Runnable cleanup) {
+        this.path = path;
+        this.temporary = true;
+        this.cleanup = cleanup;
+    }
+    
+    public Path getPath() {
+        return path;
+    }
+    
+    /**
+     * Whether this is a temporary copy rather than the stored object itself
+     */
+    public boolean isTemporary() {
+        return temporary;
+    }
+    
+    @Override
+    public void close() {
+        if (!temporary) {
+            return;
+        }
+        if (cleanup != null) {
+            cleanup.run();
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.err.println("Failed to delete temporary file: " + e.getMessage());
+        }
+    }
+}
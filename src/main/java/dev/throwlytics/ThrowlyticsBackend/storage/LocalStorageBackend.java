@@ -0,0 +1,204 @@
+package dev.throwlytics.ThrowlyticsBackend.storage;
+
+import dev.throwlytics.ThrowlyticsBackend.exception.FileStorageException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Storage backend that keeps objects on the local filesystem
+ * Key videos/1/uuid.mp4 is stored at {root}/videos/1/uuid.mp4.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "local", matchIfMissing = true)
+public class LocalStorageBackend implements StorageBackend {
+    
+    private final Path root;
+    
+    public LocalStorageBackend(@Value("${app.storage.local.root:${app.upload.dir:uploads}}") String root) {
+        this.root = Paths.get(root).toAbsolutePath().normalize();
+    }
+    
+    @Override
+    public void put(String key, InputStream content, long contentLength, String contentType) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        
+        // Write next to the target, then rename so readers never see a partial file
+        Path partial = target.resolveSibling("." + target.getFileName() + "." + UUID.randomUUID() + ".part");
+        try {
+            long written;
+            try (OutputStream outputStream = Files.newOutputStream(partial)) {
+                written = content.transferTo(outputStream);
+            }
+            if (written != contentLength) {
+                throw new IOException(String.format(
+                    "File size mismatch during copy. Expected: %d bytes, Written: %d bytes",
+                    contentLength, written));
+            }
+            moveIntoPlace(partial, target);
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+    }
+    
+    @Override
+    public InputStream get(String key) throws IOException {
+        Path path = resolve(key);
+        if (!Files.isRegularFile(path)) {
+            throw new FileNotFoundException("Object not found: " + key);
+        }
+        return Files.newInputStream(path);
+    }
+    
+    @Override
+    public InputStream getRange(String key, long start, long length) throws IOException {
+        Path path = resolve(key);
+        if (!Files.isRegularFile(path)) {
+            throw new FileNotFoundException("Object not found: " + key);
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        channel.position(start);
+        return new BoundedInputStream(Channels.newInputStream(channel), length);
+    }
+    
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+    
+    @Override
+    public Optional<StorageObject> stat(String key) throws IOException {
+        Path path = resolve(key);
+        if (!Files.isRegularFile(path)) {
+            return Optional.empty();
+        }
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        return Optional.of(new StorageObject(key, attributes.size(), attributes.lastModifiedTime().toMillis()));
+    }
+    
+    @Override
+    public Stream<StorageObject> list(String prefix) throws IOException {
+        // Walk from the deepest directory the prefix names, then filter on the full prefix
+        String directory = prefix.contains("/") ? prefix.substring(0, prefix.lastIndexOf('/')) : "";
+        Path start = directory.isEmpty() ? root : resolve(directory);
+        if (!Files.isDirectory(start)) {
+            return Stream.empty();
+        }
+        return Files.walk(start)
+                .filter(Files::isRegularFile)
+                .map(path -> root.relativize(path).toString().replace('\\', '/'))
+                .filter(key -> key.startsWith(prefix))
+                .map(key -> {
+                    try {
+                        return stat(key).orElse(null);
+                    } catch (IOException e) {
+                        throw new FileStorageException("Failed to list " + prefix + ": " + e.getMessage(), e);
+                    }
+                })
+                .filter(Objects::nonNull);
+    }
+    
+    @Override
+    public void move(String sourceKey, String targetKey) throws IOException {
+        Path source = resolve(sourceKey);
+        if (!Files.isRegularFile(source)) {
+            throw new FileNotFoundException("Object not found: " + sourceKey);
+        }
+        Path target = resolve(targetKey);
+        Files.createDirectories(target.getParent());
+        moveIntoPlace(source, target);
+    }
+    
+    @Override
+    public Optional<Path> localPath(String key) {
+        return Optional.of(resolve(key));
+    }
+    
+    @Override
+    public void importFile(String key, Path file, String contentType) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        try {
+            moveIntoPlace(file, target);
+        } catch (AtomicMoveNotSupportedException e) {
+            // Different filesystem: fall back to copy + rename
+            StorageBackend.super.importFile(key, file, contentType);
+        }
+    }
+    
+    /**
+     * Map a key to a path under the root, rejecting keys that escape it
+     */
+    private Path resolve(String key) {
+        Path path = root.resolve(key).normalize();
+        if (!path.startsWith(root) || path.equals(root)) {
+            throw new IllegalArgumentException("Invalid storage key: " + key);
+        }
+        return path;
+    }
+    
+    private void moveIntoPlace(Path source, Path target) throws IOException {
+        Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+    
+    /**
+     * Input stream limited to a fixed number of bytes
+     */
+    private static class BoundedInputStream extends InputStream {
+        private final InputStream delegate;
+        private long remaining;
+        
+        BoundedInputStream(InputStream delegate, long limit) {
+            this.delegate = delegate;
+            this.remaining = limit;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int value = delegate.read();
+            if (value >= 0) {
+                remaining--;
+            }
+            return value;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = delegate.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
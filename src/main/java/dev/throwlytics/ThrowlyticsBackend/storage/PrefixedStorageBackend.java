@@ -0,0 +1,84 @@
+package dev.throwlytics.ThrowlyticsBackend.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * View of another storage backend with every key under a fixed prefix
+ * Used for the cold video tier: archived videos live in the primary backend under
+ * e.g. cold/videos/..., so on S3 a lifecycle rule on that prefix can move them to a
+ * cheaper storage class while keys outside it stay in the hot class.
+ */
+public class PrefixedStorageBackend implements StorageBackend {
+    
+    private final StorageBackend delegate;
+    private final String prefix;
+    
+    public PrefixedStorageBackend(StorageBackend delegate, String prefix) {
+        this.delegate = delegate;
+        this.prefix = prefix.endsWith("/") ? prefix : prefix + "/";
+    }
+    
+    @Override
+    public void put(String key, InputStream content, long contentLength, String contentType) throws IOException {
+        delegate.put(prefix + key, content, contentLength, contentType);
+    }
+    
+    @Override
+    public InputStream get(String key) throws IOException {
+        return delegate.get(prefix + key);
+    }
+    
+    @Override
+    public InputStream getRange(String key, long start, long length) throws IOException {
+        return delegate.getRange(prefix + key, start, length);
+    }
+    
+    @Override
+    public void delete(String key) throws IOException {
+        delegate.delete(prefix + key);
+    }
+    
+    @Override
+    public Optional<StorageObject> stat(String key) throws IOException {
+        return delegate.stat(prefix + key).map(this::unprefixed);
+    }
+    
+    @Override
+    public Stream<StorageObject> list(String keyPrefix) throws IOException {
+        return delegate.list(prefix + keyPrefix).map(this::unprefixed);
+    }
+    
+    @Override
+    public void move(String sourceKey, String targetKey) throws IOException {
+        delegate.move(prefix + sourceKey, prefix + targetKey);
+    }
+    
+    @Override
+    public Optional<Path> localPath(String key) {
+        return delegate.localPath(prefix + key);
+    }
+    
+    @Override
+    public void download(String key, Path target) throws IOException {
+        delegate.download(prefix + key, target);
+    }
+    
+    @Override
+    public void putFile(String key, Path file, String contentType) throws IOException {
+        delegate.putFile(prefix + key, file, contentType);
+    }
+    
+    @Override
+    public void importFile(String key, Path file, String contentType) throws IOException {
+        delegate.importFile(prefix + key, file, contentType);
+    }
+    
+    private StorageObject unprefixed(StorageObject object) {
+        return new StorageObject(object.getKey().substring(prefix.length()), object.getSize(),
+            object.getLastModified());
+    }
+}
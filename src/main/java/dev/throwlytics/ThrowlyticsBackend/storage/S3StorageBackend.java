@@ -0,0 +1,343 @@
+package dev.throwlytics.ThrowlyticsBackend.storage;
+
+import dev.throwlytics.ThrowlyticsBackend.exception.FileStorageException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.CreateBucketRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadBucketRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.NoSuchBucketException;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Storage backend for S3-compatible object stores (AWS S3, MinIO, ...)
+ * Large objects are sent as multipart uploads with several parts in flight at once;
+ * memory use per upload is bounded by part-size x upload-parallelism.
+ * 
+ * Local testing: docker compose --profile s3 up minio, then run with
+ * app.storage.backend=s3 and app.storage.s3.endpoint=http://localhost:9000
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "s3")
+public class S3StorageBackend implements StorageBackend {
+    
+    @Value("${app.storage.s3.endpoint:}")
+    private String endpoint;
+    
+    @Value("${app.storage.s3.region:us-east-1}")
+    private String region;
+    
+    @Value("${app.storage.s3.bucket:throwlytics-media}")
+    private String bucket;
+    
+    @Value("${app.storage.s3.access-key:}")
+    private String accessKey;
+    
+    @Value("${app.storage.s3.secret-key:}")
+    private String secretKey;
+    
+    // MinIO and most self-hosted stores need path-style URLs
+    @Value("${app.storage.s3.path-style:true}")
+    private boolean pathStyle;
+    
+    @Value("${app.storage.s3.create-bucket:false}")
+    private boolean createBucket;
+    
+    @Value("${app.storage.s3.multipart-threshold:67108864}")
+    private long multipartThreshold;
+    
+    // S3 requires parts of at least 5MB (except the last)
+    @Value("${app.storage.s3.part-size:16777216}")
+    private int partSize;
+    
+    @Value("${app.storage.s3.upload-parallelism:4}")
+    private int uploadParallelism;
+    
+    private S3Client s3;
+    private ExecutorService partUploadExecutor;
+    
+    @PostConstruct
+    void init() {
+        S3ClientBuilder builder = S3Client.builder()
+                .region(Region.of(region))
+                .serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(pathStyle).build());
+        if (!endpoint.isBlank()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        if (!accessKey.isBlank()) {
+            builder.credentialsProvider(StaticCredentialsProvider.create(
+                AwsBasicCredentials.create(accessKey, secretKey)));
+        } else {
+            builder.credentialsProvider(DefaultCredentialsProvider.create());
+        }
+        s3 = builder.build();
+        partUploadExecutor = Executors.newFixedThreadPool(uploadParallelism, runnable -> {
+            Thread thread = new Thread(runnable, "s3-part-upload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        if (createBucket) {
+            try {
+                s3.headBucket(HeadBucketRequest.builder().bucket(bucket).build());
+            } catch (NoSuchBucketException e) {
+                s3.createBucket(CreateBucketRequest.builder().bucket(bucket).build());
+            }
+        }
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        partUploadExecutor.shutdown();
+        s3.close();
+    }
+    
+    @Override
+    public void put(String key, InputStream content, long contentLength, String contentType) throws IOException {
+        try {
+            if (contentLength < multipartThreshold) {
+                PutObjectRequest request = PutObjectRequest.builder()
+                        .bucket(bucket)
+                        .key(key)
+                        .contentType(contentType)
+                        .contentLength(contentLength)
+                        .build();
+                s3.putObject(request, RequestBody.fromInputStream(content, contentLength));
+            } else {
+                multipartPut(key, content, contentLength, contentType);
+            }
+        } catch (SdkException e) {
+            throw new IOException("Failed to upload " + key + ": " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Multipart upload reading the stream sequentially and uploading parts in parallel
+     * At most upload-parallelism parts are buffered at a time.
+     */
+    private void multipartPut(String key, InputStream content, long contentLength, String contentType)
+            throws IOException {
+        String uploadId = s3.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .contentType(contentType)
+                .build()).uploadId();
+        
+        Semaphore inFlight = new Semaphore(uploadParallelism);
+        List<CompletableFuture<CompletedPart>> parts = new ArrayList<>();
+        try {
+            long remaining = contentLength;
+            int partNumber = 1;
+            while (remaining > 0) {
+                if (parts.stream().anyMatch(CompletableFuture::isCompletedExceptionally)) {
+                    break;
+                }
+                
+                // Take a slot before buffering so at most upload-parallelism parts are in memory
+                inFlight.acquire();
+                int size = (int) Math.min(partSize, remaining);
+                byte[] buffer = content.readNBytes(size);
+                if (buffer.length != size) {
+                    throw new IOException(String.format(
+                        "Unexpected end of stream. Expected: %d bytes, Read: %d bytes",
+                        contentLength, contentLength - remaining + buffer.length));
+                }
+                
+                int currentPart = partNumber++;
+                parts.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        String etag = s3.uploadPart(UploadPartRequest.builder()
+                                .bucket(bucket)
+                                .key(key)
+                                .uploadId(uploadId)
+                                .partNumber(currentPart)
+                                .contentLength((long) buffer.length)
+                                .build(), RequestBody.fromBytes(buffer)).eTag();
+                        return CompletedPart.builder().partNumber(currentPart).eTag(etag).build();
+                    } finally {
+                        inFlight.release();
+                    }
+                }, partUploadExecutor));
+                remaining -= size;
+            }
+            
+            List<CompletedPart> completed = new ArrayList<>();
+            for (CompletableFuture<CompletedPart> part : parts) {
+                completed.add(part.join());
+            }
+            
+            s3.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(completed).build())
+                    .build());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abortMultipart(key, uploadId);
+            throw new IOException("Multipart upload interrupted", e);
+        } catch (CompletionException | SdkException | IOException e) {
+            abortMultipart(key, uploadId);
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            throw new IOException("Multipart upload failed for " + key + ": " + cause.getMessage(), cause);
+        }
+    }
+    
+    private void abortMultipart(String key, String uploadId) {
+        try {
+            s3.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .build());
+        } catch (SdkException e) {
+            System.err.println("Failed to abort multipart upload " + uploadId + ": " + e.getMessage());
+        }
+    }
+    
+    @Override
+    public InputStream get(String key) throws IOException {
+        try {
+            return s3.getObject(GetObjectRequest.builder().bucket(bucket).key(key).build());
+        } catch (NoSuchKeyException e) {
+            throw new FileNotFoundException("Object not found: " + key);
+        } catch (SdkException e) {
+            throw new IOException("Failed to read " + key + ": " + e.getMessage(), e);
+        }
+    }
+    
+    @Override
+    public InputStream getRange(String key, long start, long length) throws IOException {
+        try {
+            return s3.getObject(GetObjectRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .range("bytes=" + start + "-" + (start + length - 1))
+                    .build());
+        } catch (NoSuchKeyException e) {
+            throw new FileNotFoundException("Object not found: " + key);
+        } catch (SdkException e) {
+            throw new IOException("Failed to read " + key + ": " + e.getMessage(), e);
+        }
+    }
+    
+    @Override
+    public void delete(String key) throws IOException {
+        try {
+            s3.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(key).build());
+        } catch (SdkException e) {
+            throw new IOException("Failed to delete " + key + ": " + e.getMessage(), e);
+        }
+    }
+    
+    @Override
+    public Stream<StorageObject> list(String prefix) throws IOException {
+        Iterator<S3Object> objects;
+        try {
+            // The paginator fetches one page of up to 1000 keys at a time as the stream is consumed
+            objects = s3.listObjectsV2Paginator(ListObjectsV2Request.builder().bucket(bucket).prefix(prefix).build())
+                    .contents()
+                    .iterator();
+        } catch (SdkException e) {
+            throw new IOException("Failed to list " + prefix + ": " + e.getMessage(), e);
+        }
+        
+        // Later pages are requested mid-stream, so their failures surface as FileStorageException
+        return StreamSupport.stream(new Spliterators.AbstractSpliterator<StorageObject>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super StorageObject> action) {
+                S3Object object;
+                try {
+                    if (!objects.hasNext()) {
+                        return false;
+                    }
+                    object = objects.next();
+                } catch (SdkException e) {
+                    throw new FileStorageException("Failed to list " + prefix + ": " + e.getMessage(), e);
+                }
+                action.accept(new StorageObject(object.key(), object.size(), object.lastModified().toEpochMilli()));
+                return true;
+            }
+        }, false);
+    }
+    
+    @Override
+    public void move(String sourceKey, String targetKey) throws IOException {
+        try {
+            s3.copyObject(CopyObjectRequest.builder()
+                    .sourceBucket(bucket)
+                    .sourceKey(sourceKey)
+                    .destinationBucket(bucket)
+                    .destinationKey(targetKey)
+                    .build());
+        } catch (NoSuchKeyException e) {
+            throw new FileNotFoundException("Object not found: " + sourceKey);
+        } catch (SdkException e) {
+            throw new IOException("Failed to copy " + sourceKey + ": " + e.getMessage(), e);
+        }
+        delete(sourceKey);
+    }
+    
+    @Override
+    public Optional<StorageObject> stat(String key) throws IOException {
+        try {
+            HeadObjectResponse head = s3.headObject(HeadObjectRequest.builder().bucket(bucket).key(key).build());
+            return Optional.of(new StorageObject(key, head.contentLength(), head.lastModified().toEpochMilli()));
+        } catch (NoSuchKeyException e) {
+            return Optional.empty();
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return Optional.empty();
+            }
+            throw new IOException("Failed to stat " + key + ": " + e.getMessage(), e);
+        } catch (SdkException e) {
+            throw new IOException("Failed to stat " + key + ": " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package dev.throwlytics.ThrowlyticsBackend.storage;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Storage SPI for uploaded media
+ * Keys are relative media paths such as videos/{userId}/{ab}/{cd}/{uuid}.mp4 or
+ * thumbnails/{userId}/{ab}/{cd}/{uuid}.jpg. Upload, analysis and serving all go through
+ * this interface so backend nodes do not need a shared disk.
+ */
+public interface StorageBackend {
+    
+    /**
+     * Store an object, streaming from the given input
+     * The object becomes visible only once it has been written completely.
+     * 
+     * @param key Object key
+     * @param content Content stream (not closed by the backend)
+     * @param contentLength Exact number of bytes in the stream
+     * @param contentType MIME type (may be null)
+     * @throws IOException if the write fails
+     */
+    void put(String key, InputStream content, long contentLength, String contentType) throws IOException;
+    
+    /**
+     * Open an object for reading
+     * @throws java.io.FileNotFoundException if the object does not exist
+     */
+    InputStream get(String key) throws IOException;
+    
+    /**
+     * Open a byte range of an object for reading
+     * @param start First byte (inclusive)
+     * @param length Number of bytes
+     * @throws java.io.FileNotFoundException if the object does not exist
+     */
+    InputStream getRange(String key, long start, long length) throws IOException;
+    
+    /**
+     * Delete an object; deleting a missing object is not an error
+     */
+    void delete(String key) throws IOException;
+    
+    /**
+     * Look up object metadata
+     * @return metadata, or empty if the object does not exist
+     */
+    Optional<StorageObject> stat(String key) throws IOException;
+    
+    /**
+     * List objects whose keys start with a prefix
+     * Results are produced lazily, so listing a large prefix does not hold every key
+     * in memory. Close the stream when done.
+     * 
+     * @param prefix Key prefix (e.g. videos/)
+     * @return Stream of object metadata, in no particular order
+     * @throws IOException if listing cannot start; failures while the stream is
+     *         consumed are thrown as FileStorageException
+     */
+    Stream<StorageObject> list(String prefix) throws IOException;
+    
+    /**
+     * Move an object to a new key, replacing any object already there
+     * The default copies and then deletes the source.
+     */
+    default void move(String sourceKey, String targetKey) throws IOException {
+        StorageObject source = stat(sourceKey)
+                .orElseThrow(() -> new FileNotFoundException("Object not found: " + sourceKey));
+        try (InputStream inputStream = get(sourceKey)) {
+            put(targetKey, inputStream, source.getSize(), null);
+        }
+        delete(sourceKey);
+    }
+    
+    /**
+     * Direct filesystem path of an object, if this backend keeps objects on local disk
+     * Lets callers use zero-copy transfers and hand files straight to FFmpeg.
+     */
+    default Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+    
+    /**
+     * Copy an object into a local file, replacing its contents
+     */
+    default void download(String key, Path target) throws IOException {
+        try (InputStream inputStream = get(key)) {
+            Files.copy(inputStream, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+    
+    /**
+     * Store a local file under a key
+     */
+    default void putFile(String key, Path file, String contentType) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            put(key, inputStream, Files.size(file), contentType);
+        }
+    }
+    
+    /**
+     * Store a local file under a key, taking ownership of the file
+     * The file is moved or deleted afterwards; backends on local disk can rename it
+     * into place instead of copying.
+     */
+    default void importFile(String key, Path file, String contentType) throws IOException {
+        try {
+            putFile(key, file, contentType);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package dev.throwlytics.ThrowlyticsBackend.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Metadata for a stored object
+ */
+@Data
+@AllArgsConstructor
+public class StorageObject {
+    private String key;
+    private long size;
+    private long lastModified;  // epoch milliseconds
+}
@@ -0,0 +1,44 @@
+package dev.throwlytics.ThrowlyticsBackend.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor for throw history pages
+ * Encodes the (uploadDate, throwId) of the last throw on a page as URL-safe base64,
+ * e.g. "2025-01-07T10:30:00,42" -> "MjAyNS0wMS0wN1QxMDozMDowMCw0Mg".
+ */
+public record HistoryCursor(LocalDateTime uploadDate, Long throwId) {
+    
+    /**
+     * Encode this cursor for use in a query parameter or header
+     */
+    public String encode() {
+        String raw = uploadDate + "," + throwId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Decode a cursor produced by encode()
+     * @param cursor Encoded cursor
+     * @return Decoded cursor
+     * @throws IllegalArgumentException if the cursor is malformed (400 via GlobalExceptionHandler)
+     */
+    public static HistoryCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int comma = raw.lastIndexOf(',');
+            if (comma < 0) {
+                throw new IllegalArgumentException("Invalid history cursor");
+            }
+            return new HistoryCursor(
+                LocalDateTime.parse(raw.substring(0, comma)),
+                Long.parseLong(raw.substring(comma + 1))
+            );
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid history cursor", e);
+        }
+    }
+}
@@ -2,15 +2,23 @@ package dev.throwlytics.ThrowlyticsBackend.util;
 
 import dev.throwlytics.ThrowlyticsBackend.model.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.function.Function;
 
@@ -25,6 +33,41 @@ public class JwtUtil {
     // Token expiration time (7 days in milliseconds)
     private static final long JWT_TOKEN_VALIDITY = 7 * 24 * 60 * 60 * 1000; // 7 days
     
+    // Verified tokens remembered so repeat requests skip signature verification
+    @Value("${jwt.cache.max-entries:10000}")
+    private int cacheMaxEntries;
+    
+    // Built once: the HMAC key and parser are immutable and thread-safe
+    private Key signingKey;
+    private JwtParser parser;
+    
+    // SHA-256 of token -> verified claims, least recently used evicted first
+    private Map<String, VerifiedToken> verifiedTokens;
+    
+    /**
+     * Claims of a token whose signature has been verified
+     */
+    public record VerifiedToken(Long userId, String email, Date expiration) {
+        
+        boolean isExpired() {
+            return expiration.before(new Date());
+        }
+    }
+    
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(SECRET_KEY.getBytes());
+        parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+        verifiedTokens = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, VerifiedToken> eldest) {
+                return size() > cacheMaxEntries;
+            }
+        };
+    }
+    
     /**
      * Generate JWT token for a user
      * @param user The user to generate token for
@@ -60,7 +103,61 @@ public class JwtUtil {
      * Get signing key for JWT
      */
     private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(SECRET_KEY.getBytes());
+        return signingKey;
+    }
+    
+    /**
+     * Verify a token and return its claims, parsing it at most once
+     * A token seen before is answered from the cache (after an expiry check) without
+     * checking its signature again; the cache is keyed by the token's SHA-256 digest.
+     * 
+     * @param token JWT token
+     * @return Verified claims, or null if the token is invalid, expired or lacks user claims
+     */
+    public VerifiedToken verifyToken(String token) {
+        String key = digest(token);
+        VerifiedToken cached;
+        synchronized (verifiedTokens) {
+            cached = verifiedTokens.get(key);
+        }
+        if (cached != null) {
+            if (!cached.isExpired()) {
+                return cached;
+            }
+            synchronized (verifiedTokens) {
+                verifiedTokens.remove(key);
+            }
+            return null;
+        }
+        
+        Claims claims;
+        Long userId;
+        try {
+            claims = extractAllClaims(token);
+            userId = claims.get("userId", Long.class);
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+        String email = claims.getSubject();
+        // The parser already rejects expired tokens; tokens without an expiry are not accepted
+        if (userId == null || email == null || claims.getExpiration() == null) {
+            return null;
+        }
+        
+        VerifiedToken verified = new VerifiedToken(userId, email, claims.getExpiration());
+        synchronized (verifiedTokens) {
+            verifiedTokens.put(key, verified);
+        }
+        return verified;
+    }
+    
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
     
     /**
@@ -100,18 +197,7 @@ public class JwtUtil {
      * Extract all claims from token
      */
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-    }
-    
-    /**
-     * Check if token is expired
-     */
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        return parser.parseClaimsJws(token).getBody();
     }
     
     /**
@@ -121,8 +207,8 @@ public class JwtUtil {
      * @return true if token is valid, false otherwise
      */
     public Boolean validateToken(String token, String email) {
-        final String tokenEmail = extractEmail(token);
-        return (tokenEmail.equals(email) && !isTokenExpired(token));
+        VerifiedToken verified = verifyToken(token);
+        return verified != null && verified.email().equals(email);
     }
 }
 
@@ -0,0 +1,185 @@
+package dev.throwlytics.ThrowlyticsBackend.util;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Signs and verifies expiring, user-scoped media URLs
+ * A signed URL carries exp (epoch seconds), uid and sig query parameters, where
+ * sig = HMAC-SHA256(scope + "\n" + exp + "\n" + uid). Verification needs only the
+ * secret, so media requests never touch the database.
+ * 
+ * The scope is the full media path, except for HLS packages where it is the package
+ * directory (hls/{userId}/{ab}/{cd}/{videoId}/) so one signature covers playlists and segments.
+ */
+@Component
+public class MediaUrlSigner {
+    
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    
+    // Minimum secret length for HMAC-SHA256 (the hash output size)
+    private static final int MIN_SECRET_BYTES = 32;
+    
+    // No default: anyone who knows the secret can sign URLs for any user
+    @Value("${app.media.signing-secret:}")
+    private String signingSecret;
+    
+    // How long a signed URL stays valid
+    @Value("${app.media.url-ttl-seconds:3600}")
+    private long ttlSeconds;
+    
+    // Expiry is rounded up to this step so URLs stay identical (and browser-cacheable) for a while
+    @Value("${app.media.url-expiry-step-seconds:300}")
+    private long expiryStepSeconds;
+    
+    private SecretKeySpec signingKey;
+    
+    // Mac instances are not thread-safe, so each thread keeps its own
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(this::newMac);
+    
+    @PostConstruct
+    void init() {
+        if (signingSecret == null || signingSecret.getBytes(StandardCharsets.UTF_8).length < MIN_SECRET_BYTES) {
+            throw new IllegalStateException(
+                "app.media.signing-secret must be set to at least " + MIN_SECRET_BYTES + " bytes");
+        }
+        signingKey = new SecretKeySpec(signingSecret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+    }
+    
+    /**
+     * Sign a relative media path for a user
+     * @param relativePath Relative media path (e.g. videos/1/uuid.mp4); null is passed through
+     * @param userId User the URL is issued to
+     * @return Path with exp, uid and sig query parameters
+     */
+    public String sign(String relativePath, Long userId) {
+        return sign(relativePath, userId, currentExpiry());
+    }
+    
+    /**
+     * Sign a relative media path with a given expiry
+     * Lets a response sign all its URLs with one expiry and use it as a cache validator.
+     * 
+     * @param relativePath Relative media path; null is passed through
+     * @param userId User the URL is issued to
+     * @param expires Expiry from currentExpiry()
+     * @return Path with exp, uid and sig query parameters
+     */
+    public String sign(String relativePath, Long userId, long expires) {
+        if (relativePath == null || relativePath.isEmpty()) {
+            return relativePath;
+        }
+        String path = stripLeadingSlash(relativePath);
+        return path + "?exp=" + expires + "&uid=" + userId + "&sig=" + signature(scopeOf(path), expires, userId);
+    }
+    
+    /**
+     * Expiry (epoch seconds) URLs signed now receive
+     * Constant within each app.media.url-expiry-step-seconds window.
+     */
+    public long currentExpiry() {
+        long now = System.currentTimeMillis() / 1000;
+        return ((now + ttlSeconds) / expiryStepSeconds + 1) * expiryStepSeconds;
+    }
+    
+    /**
+     * Verify a signed media request
+     * @param requestPath Request path (with or without leading slash)
+     * @param exp exp query parameter
+     * @param uid uid query parameter
+     * @param sig sig query parameter
+     * @return true if the signature is valid, unexpired and scoped to the path's owner
+     */
+    public boolean verify(String requestPath, String exp, String uid, String sig) {
+        if (exp == null || uid == null || sig == null) {
+            return false;
+        }
+        
+        long expires;
+        long userId;
+        try {
+            expires = Long.parseLong(exp);
+            userId = Long.parseLong(uid);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        
+        if (expires < System.currentTimeMillis() / 1000) {
+            return false;
+        }
+        
+        String path = stripLeadingSlash(requestPath);
+        
+        // Path must belong to the user the URL was issued to
+        String owner = ownerSegment(path);
+        if (owner != null && !owner.equals(uid)) {
+            return false;
+        }
+        
+        byte[] expected = signature(scopeOf(path), expires, userId).getBytes(StandardCharsets.US_ASCII);
+        byte[] actual = sig.getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(expected, actual);
+    }
+    
+    /**
+     * Portion of the path covered by the signature
+     * HLS requests are scoped to the package directory: hls/{userId}/{ab}/{cd}/{videoId}/
+     * (or hls/{userId}/{videoId}/ for packages created before sharding).
+     */
+    public String scopeOf(String path) {
+        String normalized = stripLeadingSlash(path);
+        if (normalized.startsWith("hls/")) {
+            String[] segments = normalized.split("/");
+            // Shard directories are two characters; the first longer segment is the video ID
+            for (int i = 2; i < segments.length - 1; i++) {
+                if (segments[i].length() != 2) {
+                    return String.join("/", Arrays.copyOfRange(segments, 0, i + 1)) + "/";
+                }
+            }
+        }
+        return normalized;
+    }
+    
+    /**
+     * User ID segment of a media path, or null if the path has none
+     * videos/{userId}/..., thumbnails/{userId}/..., hls/{userId}/..., uploads/{kind}/{userId}/...
+     */
+    private String ownerSegment(String path) {
+        String[] segments = path.split("/");
+        int index = "uploads".equals(segments[0]) ? 2 : 1;
+        if (segments.length <= index + 1) {
+            return null;
+        }
+        String segment = segments[index];
+        return segment.chars().allMatch(Character::isDigit) && !segment.isEmpty() ? segment : null;
+    }
+    
+    private String signature(String scope, long expires, long userId) {
+        Mac mac = macs.get();
+        byte[] digest = mac.doFinal((scope + "\n" + expires + "\n" + userId).getBytes(StandardCharsets.UTF_8));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+    }
+    
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(signingKey);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot initialize media URL signer", e);
+        }
+    }
+    
+    private String stripLeadingSlash(String path) {
+        return path.startsWith("/") ? path.substring(1) : path;
+    }
+}
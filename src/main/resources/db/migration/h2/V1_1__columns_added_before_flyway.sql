@@ -0,0 +1,29 @@
+-- H2 version of db/migration/postgresql/V1_1__columns_added_before_flyway.sql.
+-- Idempotent for the same reason; MigrationFromBaselineTests runs it against the original schema.
+
+ALTER TABLE throw_history ADD COLUMN IF NOT EXISTS hls_url varchar(255);
+ALTER TABLE throw_history ADD COLUMN IF NOT EXISTS last_accessed_at timestamp(6);
+ALTER TABLE throw_history ADD COLUMN IF NOT EXISTS video_archived boolean;
+ALTER TABLE throw_history ADD COLUMN IF NOT EXISTS video_transcoded boolean;
+
+CREATE INDEX IF NOT EXISTS idx_throw_history_user_upload
+    ON throw_history (user_user_id, upload_date DESC, throw_id);
+
+CREATE TABLE IF NOT EXISTS user_storage_usage (
+    user_id bigint PRIMARY KEY,
+    bytes_used bigint NOT NULL,
+    file_count bigint NOT NULL,
+    reconciled_at timestamp(6)
+);
+
+CREATE TABLE IF NOT EXISTS throw_stats_rollup (
+    user_id bigint NOT NULL,
+    metric varchar(64) NOT NULL,
+    bucket date NOT NULL,
+    sample_count bigint NOT NULL,
+    value_sum double precision NOT NULL,
+    value_sum_squares double precision NOT NULL,
+    min_value double precision,
+    max_value double precision,
+    PRIMARY KEY (user_id, metric, bucket)
+);
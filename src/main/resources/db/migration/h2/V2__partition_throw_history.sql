@@ -0,0 +1,8 @@
+-- H2 has no table partitioning: throw_history stays a plain table.
+-- Same column rules and indexes as the partitioned PostgreSQL table.
+
+-- Rows without an upload date get 1970-01-01, as in the PostgreSQL copy
+UPDATE throw_history SET upload_date = TIMESTAMP '1970-01-01 00:00:00' WHERE upload_date IS NULL;
+ALTER TABLE throw_history ALTER COLUMN upload_date SET NOT NULL;
+
+CREATE INDEX idx_throw_history_video_url ON throw_history (video_url);
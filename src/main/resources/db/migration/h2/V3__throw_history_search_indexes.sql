@@ -0,0 +1,7 @@
+-- H2 has no partial indexes: plain composite versions of the PostgreSQL search indexes.
+
+CREATE INDEX idx_throw_history_user_confirmed ON throw_history (user_user_id, release_confirmed, upload_date DESC, throw_id);
+CREATE INDEX idx_throw_history_user_release_angle ON throw_history (user_user_id, release_angle_deg);
+CREATE INDEX idx_throw_history_user_elbow_angle ON throw_history (user_user_id, elbow_angle_deg);
+CREATE INDEX idx_throw_history_user_shoulder_angle ON throw_history (user_user_id, shoulder_angle_deg);
+CREATE INDEX idx_throw_history_user_wrist_angle ON throw_history (user_user_id, wrist_angle_deg);
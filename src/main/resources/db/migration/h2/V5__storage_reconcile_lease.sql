@@ -0,0 +1,11 @@
+-- Uploads that reserved quota but have not finished storing their file yet;
+-- reconciliation leaves these users alone until the reservations settle
+ALTER TABLE user_storage_usage ADD COLUMN open_reservations integer NOT NULL DEFAULT 0;
+ALTER TABLE user_storage_usage ADD COLUMN last_reserved_at timestamp(6);
+
+-- Leases that keep cluster-wide scheduled jobs on one node at a time (JobLockService)
+CREATE TABLE job_lock (
+    name varchar(64) PRIMARY KEY,
+    locked_until timestamp(6) NOT NULL,
+    locked_by varchar(128)
+);
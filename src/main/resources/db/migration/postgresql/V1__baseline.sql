@@ -0,0 +1,36 @@
+-- Baseline schema exactly as ddl-auto=update created it for the original entities.
+-- Idempotent, so it also runs cleanly against databases that ddl-auto already created.
+-- Later additions belong in V1_1 and up: this file must stay equal to that original schema.
+
+CREATE TABLE IF NOT EXISTS users (
+    user_id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name varchar(255) NOT NULL,
+    email varchar(255) NOT NULL UNIQUE,
+    password varchar(255) NOT NULL,
+    plan_type varchar(255) NOT NULL,
+    monthly_token_limit integer NOT NULL,
+    last_token_reset timestamp(6),
+    created_at timestamp(6) NOT NULL,
+    updated_at timestamp(6)
+);
+
+CREATE TABLE IF NOT EXISTS throw_history (
+    throw_id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_user_id bigint NOT NULL REFERENCES users (user_id),
+    release_angle integer,
+    release_height integer,
+    release_frame integer,
+    release_confirmed boolean,
+    total_frames integer,
+    video_width integer,
+    video_height integer,
+    fps integer,
+    release_angle_deg double precision,
+    release_lateral_offset_norm double precision,
+    elbow_angle_deg double precision,
+    shoulder_angle_deg double precision,
+    wrist_angle_deg double precision,
+    thumbnail_url varchar(255),
+    video_url varchar(255),
+    upload_date timestamp(6)
+);
@@ -0,0 +1,111 @@
+-- Convert throw_history into a table range-partitioned by upload_date, one partition per month.
+--
+-- throw_history_before holds everything older than the first month with data (imported seasons).
+-- There is deliberately no DEFAULT partition: without one, PostgreSQL can scan partitions in
+-- upload_date order, so "newest N throws" stops after the most recent partitions.
+-- Future months are created ahead of time by create_throw_history_partitions(), which
+-- ThrowHistoryPartitionService calls on startup and periodically.
+
+CREATE OR REPLACE FUNCTION create_throw_history_partitions(from_month date, to_month date)
+RETURNS integer
+LANGUAGE plpgsql
+AS $$
+DECLARE
+    part_start date := date_trunc('month', from_month)::date;
+    part_name text;
+    created integer := 0;
+BEGIN
+    WHILE part_start <= to_month LOOP
+        part_name := 'throw_history_' || to_char(part_start, 'YYYY_MM');
+        IF to_regclass(part_name) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I PARTITION OF throw_history FOR VALUES FROM (%L) TO (%L)',
+                           part_name, part_start, (part_start + interval '1 month')::date);
+            created := created + 1;
+        END IF;
+        part_start := (part_start + interval '1 month')::date;
+    END LOOP;
+    RETURN created;
+END
+$$;
+
+ALTER TABLE throw_history RENAME TO throw_history_unpartitioned;
+DROP INDEX IF EXISTS idx_throw_history_user_upload;
+
+-- Free the primary key name for the new table
+DO $$
+DECLARE
+    pk_name text;
+BEGIN
+    SELECT conname INTO pk_name
+    FROM pg_constraint
+    WHERE conrelid = 'throw_history_unpartitioned'::regclass AND contype = 'p';
+    IF pk_name IS NOT NULL THEN
+        EXECUTE format('ALTER TABLE throw_history_unpartitioned DROP CONSTRAINT %I', pk_name);
+    END IF;
+END
+$$;
+
+-- Identity columns are not supported on partitioned tables before PostgreSQL 17; use a sequence
+CREATE SEQUENCE throw_history_id_seq;
+
+-- The partition key must be part of the primary key
+CREATE TABLE throw_history (
+    throw_id bigint NOT NULL DEFAULT nextval('throw_history_id_seq'),
+    user_user_id bigint NOT NULL REFERENCES users (user_id),
+    release_angle integer,
+    release_height integer,
+    release_frame integer,
+    release_confirmed boolean,
+    total_frames integer,
+    video_width integer,
+    video_height integer,
+    fps integer,
+    release_angle_deg double precision,
+    release_lateral_offset_norm double precision,
+    elbow_angle_deg double precision,
+    shoulder_angle_deg double precision,
+    wrist_angle_deg double precision,
+    thumbnail_url varchar(255),
+    video_url varchar(255),
+    upload_date timestamp(6) NOT NULL,
+    hls_url varchar(255),
+    last_accessed_at timestamp(6),
+    video_archived boolean,
+    video_transcoded boolean,
+    PRIMARY KEY (throw_id, upload_date)
+) PARTITION BY RANGE (upload_date);
+
+ALTER SEQUENCE throw_history_id_seq OWNED BY throw_history.throw_id;
+
+DO $$
+DECLARE
+    first_month date := date_trunc('month',
+        COALESCE((SELECT min(upload_date) FROM throw_history_unpartitioned), now()))::date;
+BEGIN
+    EXECUTE format('CREATE TABLE throw_history_before PARTITION OF throw_history FOR VALUES FROM (MINVALUE) TO (%L)',
+                   first_month);
+    PERFORM create_throw_history_partitions(first_month, (date_trunc('month', now()) + interval '3 months')::date);
+END
+$$;
+
+INSERT INTO throw_history (
+    throw_id, user_user_id, release_angle, release_height, release_frame, release_confirmed,
+    total_frames, video_width, video_height, fps, release_angle_deg, release_lateral_offset_norm,
+    elbow_angle_deg, shoulder_angle_deg, wrist_angle_deg, thumbnail_url, video_url, upload_date,
+    hls_url, last_accessed_at, video_archived, video_transcoded
+)
+SELECT
+    throw_id, user_user_id, release_angle, release_height, release_frame, release_confirmed,
+    total_frames, video_width, video_height, fps, release_angle_deg, release_lateral_offset_norm,
+    elbow_angle_deg, shoulder_angle_deg, wrist_angle_deg, thumbnail_url, video_url,
+    COALESCE(upload_date, TIMESTAMP '1970-01-01 00:00:00'),
+    hls_url, last_accessed_at, video_archived, video_transcoded
+FROM throw_history_unpartitioned;
+
+SELECT setval('throw_history_id_seq', COALESCE((SELECT max(throw_id) FROM throw_history), 0) + 1, false);
+
+DROP TABLE throw_history_unpartitioned;
+
+-- Partitioned indexes: created on every existing partition and on partitions added later
+CREATE INDEX idx_throw_history_user_upload ON throw_history (user_user_id, upload_date DESC, throw_id);
+CREATE INDEX idx_throw_history_video_url ON throw_history (video_url);
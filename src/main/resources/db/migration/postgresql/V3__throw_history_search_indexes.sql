@@ -0,0 +1,30 @@
+-- Indexes for GET /api/video/history/search. All are partitioned indexes (one per partition).
+
+-- Confirmed releases, newest first: date range + keyset order from the index alone
+CREATE INDEX idx_throw_history_user_confirmed
+    ON throw_history (user_user_id, upload_date DESC, throw_id)
+    WHERE release_confirmed = true;
+
+-- Selective metric ranges: range scan on the metric, the keyset columns and the
+-- confirmed flag come from the index; only rows with a value are indexed
+CREATE INDEX idx_throw_history_user_release_angle
+    ON throw_history (user_user_id, release_angle_deg)
+    INCLUDE (upload_date, throw_id, release_confirmed)
+    WHERE release_angle_deg IS NOT NULL;
+
+CREATE INDEX idx_throw_history_user_elbow_angle
+    ON throw_history (user_user_id, elbow_angle_deg)
+    INCLUDE (upload_date, throw_id, release_confirmed)
+    WHERE elbow_angle_deg IS NOT NULL;
+
+CREATE INDEX idx_throw_history_user_shoulder_angle
+    ON throw_history (user_user_id, shoulder_angle_deg)
+    INCLUDE (upload_date, throw_id, release_confirmed)
+    WHERE shoulder_angle_deg IS NOT NULL;
+
+CREATE INDEX idx_throw_history_user_wrist_angle
+    ON throw_history (user_user_id, wrist_angle_deg)
+    INCLUDE (upload_date, throw_id, release_confirmed)
+    WHERE wrist_angle_deg IS NOT NULL;
+
+ANALYZE throw_history;
@@ -0,0 +1,9 @@
+-- Population t-digests per metric and cohort (PercentileSketchService)
+CREATE TABLE metric_sketch (
+    cohort varchar(64) NOT NULL,
+    metric varchar(64) NOT NULL,
+    digest bytea NOT NULL,
+    sample_count bigint NOT NULL,
+    updated_at timestamp(6) NOT NULL,
+    PRIMARY KEY (cohort, metric)
+);
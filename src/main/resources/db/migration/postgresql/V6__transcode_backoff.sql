@@ -0,0 +1,3 @@
+-- Failed background transcodes back off instead of being retried on every run
+ALTER TABLE throw_history ADD COLUMN transcode_attempts integer;
+ALTER TABLE throw_history ADD COLUMN transcode_retry_after timestamp(6);
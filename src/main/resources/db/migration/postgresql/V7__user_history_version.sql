@@ -0,0 +1,3 @@
+-- Per-user history version, bumped in every transaction that changes a user's throws;
+-- history ETags are derived from it so every node agrees on them
+ALTER TABLE users ADD COLUMN history_version bigint DEFAULT 0 NOT NULL;
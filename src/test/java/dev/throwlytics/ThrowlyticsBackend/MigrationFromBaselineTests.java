@@ -0,0 +1,135 @@
+package dev.throwlytics.ThrowlyticsBackend;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Flyway against a database that ddl-auto=update created before migrations existed
+ * (the schema of the original User and ThowHistory entities), on H2 in PostgreSQL mode
+ */
+class MigrationFromBaselineTests {
+
+	private static final String ORIGINAL_USERS = """
+		CREATE TABLE users (
+		    user_id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+		    created_at timestamp(6) NOT NULL,
+		    email varchar(255) NOT NULL UNIQUE,
+		    last_token_reset timestamp(6),
+		    monthly_token_limit integer NOT NULL,
+		    name varchar(255) NOT NULL,
+		    password varchar(255) NOT NULL,
+		    plan_type varchar(255) NOT NULL,
+		    updated_at timestamp(6)
+		)""";
+
+	private static final String ORIGINAL_THROW_HISTORY = """
+		CREATE TABLE throw_history (
+		    throw_id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+		    elbow_angle_deg double precision,
+		    fps integer,
+		    release_angle integer,
+		    release_angle_deg double precision,
+		    release_confirmed boolean,
+		    release_frame integer,
+		    release_height integer,
+		    release_lateral_offset_norm double precision,
+		    shoulder_angle_deg double precision,
+		    thumbnail_url varchar(255),
+		    total_frames integer,
+		    upload_date timestamp(6),
+		    video_height integer,
+		    video_url varchar(255),
+		    video_width integer,
+		    wrist_angle_deg double precision,
+		    user_user_id bigint NOT NULL REFERENCES users (user_id)
+		)""";
+
+	@Test
+	void originalSchemaMigratesToTheCurrentOne() {
+		DataSource existing = dataSource();
+		JdbcTemplate jdbc = new JdbcTemplate(existing);
+		jdbc.execute(ORIGINAL_USERS);
+		jdbc.execute(ORIGINAL_THROW_HISTORY);
+		long userId = seedUser(jdbc);
+		jdbc.update("INSERT INTO throw_history (user_user_id, video_url, upload_date) VALUES (?, ?, ?)",
+			userId, "/videos/dated.mp4", Timestamp.valueOf(LocalDateTime.of(2024, 5, 1, 12, 0)));
+		jdbc.update("INSERT INTO throw_history (user_user_id, video_url) VALUES (?, ?)", userId, "/videos/undated.mp4");
+
+		migrate(existing);
+
+		assertThat(columns(jdbc, "throw_history")).isEqualTo(columns(freshSchema(), "throw_history"));
+		assertThat(jdbc.queryForList("SELECT column_name FROM information_schema.columns WHERE table_name = 'throw_history'",
+			String.class)).contains("hls_url", "last_accessed_at", "video_archived", "video_transcoded");
+		assertThat(jdbc.queryForList("SELECT video_url FROM throw_history ORDER BY throw_id", String.class))
+			.containsExactly("/videos/dated.mp4", "/videos/undated.mp4");
+		assertThat(jdbc.queryForObject("SELECT upload_date FROM throw_history WHERE video_url = '/videos/undated.mp4'",
+			Timestamp.class)).isEqualTo(Timestamp.valueOf(LocalDateTime.of(1970, 1, 1, 0, 0)));
+		assertThat(jdbc.queryForObject("SELECT history_version FROM users WHERE user_id = ?", Long.class, userId))
+			.isZero();
+	}
+
+	@Test
+	void columnsAddedLaterByDdlAutoAreKept() {
+		DataSource existing = dataSource();
+		JdbcTemplate jdbc = new JdbcTemplate(existing);
+		jdbc.execute(ORIGINAL_USERS);
+		jdbc.execute(ORIGINAL_THROW_HISTORY);
+		jdbc.execute("ALTER TABLE throw_history ADD COLUMN hls_url varchar(255)");
+		jdbc.execute("CREATE TABLE user_storage_usage (user_id bigint PRIMARY KEY, bytes_used bigint NOT NULL, "
+			+ "file_count bigint NOT NULL, reconciled_at timestamp(6))");
+		long userId = seedUser(jdbc);
+		jdbc.update("INSERT INTO throw_history (user_user_id, hls_url, upload_date) VALUES (?, ?, ?)",
+			userId, "/hls/1/index.m3u8", Timestamp.valueOf(LocalDateTime.of(2024, 5, 1, 12, 0)));
+		jdbc.update("INSERT INTO user_storage_usage (user_id, bytes_used, file_count) VALUES (?, 1024, 1)", userId);
+
+		migrate(existing);
+
+		assertThat(columns(jdbc, "throw_history")).isEqualTo(columns(freshSchema(), "throw_history"));
+		assertThat(jdbc.queryForObject("SELECT hls_url FROM throw_history", String.class))
+			.isEqualTo("/hls/1/index.m3u8");
+		assertThat(jdbc.queryForObject("SELECT bytes_used FROM user_storage_usage WHERE user_id = ?", Long.class, userId))
+			.isEqualTo(1024L);
+	}
+
+	private static DataSource dataSource() {
+		return new DriverManagerDataSource("jdbc:h2:mem:migration-" + UUID.randomUUID()
+			+ ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1", "sa", "");
+	}
+
+	private static void migrate(DataSource dataSource) {
+		Flyway.configure()
+			.dataSource(dataSource)
+			.locations("classpath:db/migration/h2")
+			.baselineOnMigrate(true)
+			.baselineVersion("0")
+			.load()
+			.migrate();
+	}
+
+	private static JdbcTemplate freshSchema() {
+		DataSource fresh = dataSource();
+		migrate(fresh);
+		return new JdbcTemplate(fresh);
+	}
+
+	private static List<String> columns(JdbcTemplate jdbc, String table) {
+		return jdbc.queryForList("SELECT column_name || ' ' || data_type || ' ' || is_nullable "
+			+ "FROM information_schema.columns WHERE table_name = ? ORDER BY column_name", String.class, table);
+	}
+
+	private static long seedUser(JdbcTemplate jdbc) {
+		jdbc.update("INSERT INTO users (name, email, password, plan_type, monthly_token_limit, created_at) "
+			+ "VALUES ('Baseline User', 'baseline@example.com', 'unused', 'FREE', 10, CURRENT_TIMESTAMP)");
+		return jdbc.queryForObject("SELECT user_id FROM users", Long.class);
+	}
+}
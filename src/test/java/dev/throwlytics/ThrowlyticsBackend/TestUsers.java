@@ -0,0 +1,33 @@
+package dev.throwlytics.ThrowlyticsBackend;
+
+import dev.throwlytics.ThrowlyticsBackend.model.User;
+import dev.throwlytics.ThrowlyticsBackend.repository.UserRepository;
+
+import java.util.UUID;
+
+/**
+ * Users for tests that need a real row to hang throws, quota counters or tokens on
+ */
+public final class TestUsers {
+
+	private TestUsers() {
+	}
+
+	/**
+	 * Save a user with a unique email
+	 */
+	public static User newUser(UserRepository userRepository) {
+		User user = new User();
+		user.setName("Test User");
+		user.setEmail("user-" + UUID.randomUUID() + "@example.com");
+		user.setPassword("unused");
+		return userRepository.save(user);
+	}
+
+	/**
+	 * Save a user with a unique email and return its ID
+	 */
+	public static Long newUserId(UserRepository userRepository) {
+		return newUser(userRepository).getUserId();
+	}
+}
@@ -2,8 +2,10 @@ package dev.throwlytics.ThrowlyticsBackend;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
 
 @SpringBootTest
+@ActiveProfiles("test")
 class ThrowlyticsBackendApplicationTests {
 
 	@Test
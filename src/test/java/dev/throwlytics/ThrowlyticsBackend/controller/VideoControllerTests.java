@@ -0,0 +1,181 @@
+package dev.throwlytics.ThrowlyticsBackend.controller;
+
+import dev.throwlytics.ThrowlyticsBackend.dto.ReleaseDetectionResponse;
+import dev.throwlytics.ThrowlyticsBackend.model.User;
+import dev.throwlytics.ThrowlyticsBackend.repository.UserRepository;
+import dev.throwlytics.ThrowlyticsBackend.service.ThrowHistoryService;
+import dev.throwlytics.ThrowlyticsBackend.service.VideoProcessingService;
+import dev.throwlytics.ThrowlyticsBackend.util.JwtUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.file.Path;
+
+import static dev.throwlytics.ThrowlyticsBackend.TestUsers.newUser;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Upload, history, search and export through the full filter chain
+ * The test profile sets app.sql.fail-on-violation, so an N+1 load or a request over the
+ * statement budget fails these tests.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class VideoControllerTests {
+
+	private static final int THROWS = 12;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ThrowHistoryService throwHistoryService;
+
+	@Autowired
+	private JwtUtil jwtUtil;
+
+	@MockitoBean
+	private VideoProcessingService videoProcessingService;
+
+	private Long userId;
+	private String token;
+
+	@BeforeEach
+	void setUp() {
+		User user = newUser(userRepository);
+		userId = user.getUserId();
+		token = "Bearer " + jwtUtil.generateToken(user);
+
+		for (int i = 0; i < THROWS; i++) {
+			throwHistoryService.saveThrowHistory(userId, null, detection(30.0 + i, i % 2 == 0));
+		}
+	}
+
+	@Test
+	void uploadStoresVideoAndReturnsSignedUrls() throws Exception {
+		when(videoProcessingService.processVideoFromFile(any(Path.class))).thenReturn(detection(38.5, true));
+		MockMultipartFile file = new MockMultipartFile("file", "clip.mp4", "video/mp4", new byte[]{0, 0, 0, 24});
+
+		mockMvc.perform(multipart("/api/video/upload").file(file).header(HttpHeaders.AUTHORIZATION, token))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.userId").value(userId))
+			.andExpect(jsonPath("$.releaseAngleDeg").value(38.5))
+			.andExpect(jsonPath("$.videoUrl").value(containsString("&sig=")));
+	}
+
+	@Test
+	void uploadRejectsNonVideo() throws Exception {
+		MockMultipartFile file = new MockMultipartFile("file", "notes.txt", "text/plain", new byte[]{1});
+
+		mockMvc.perform(multipart("/api/video/upload").file(file).header(HttpHeaders.AUTHORIZATION, token))
+			.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void historyPagesAndRevalidates() throws Exception {
+		MvcResult first = mockMvc.perform(get("/api/video/history").param("limit", "10")
+				.header(HttpHeaders.AUTHORIZATION, token))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$", hasSize(10)))
+			.andExpect(header().exists("X-Next-Cursor"))
+			.andExpect(header().exists(HttpHeaders.ETAG))
+			.andReturn();
+
+		mockMvc.perform(get("/api/video/history").param("cursor", first.getResponse().getHeader("X-Next-Cursor"))
+				.header(HttpHeaders.AUTHORIZATION, token))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$", hasSize(THROWS - 10)));
+
+		mockMvc.perform(get("/api/video/history").param("limit", "10")
+				.header(HttpHeaders.AUTHORIZATION, token)
+				.header(HttpHeaders.IF_NONE_MATCH, first.getResponse().getHeader(HttpHeaders.ETAG)))
+			.andExpect(status().isNotModified());
+	}
+
+	@Test
+	void historyRejectsMalformedCursorAndUnknownField() throws Exception {
+		mockMvc.perform(get("/api/video/history").param("cursor", "not-a-cursor")
+				.header(HttpHeaders.AUTHORIZATION, token))
+			.andExpect(status().isBadRequest());
+		mockMvc.perform(get("/api/video/history").param("fields", "throwId,password")
+				.header(HttpHeaders.AUTHORIZATION, token))
+			.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void historyRequiresAuthentication() throws Exception {
+		int status = mockMvc.perform(get("/api/video/history")).andReturn().getResponse().getStatus();
+
+		assertThat(status).isIn(401, 403);
+	}
+
+	@Test
+	void searchCombinesFilters() throws Exception {
+		// releaseAngleDeg 30..41; confirmed on even indexes (30, 32, ..., 40)
+		mockMvc.perform(get("/api/video/history/search")
+				.param("releaseConfirmed", "true")
+				.param("releaseAngleDegMin", "34")
+				.param("releaseAngleDegMax", "38")
+				.header(HttpHeaders.AUTHORIZATION, token))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$", hasSize(3)))
+			.andExpect(jsonPath("$[0].releaseAngleDeg").value(38.0));
+
+		mockMvc.perform(get("/api/video/history/search")
+				.param("releaseAngleDegMin", "40")
+				.param("releaseAngleDegMax", "30")
+				.header(HttpHeaders.AUTHORIZATION, token))
+			.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void exportWritesEveryThrow() throws Exception {
+		String csv = mockMvc.perform(get("/api/video/history/export").param("format", "csv")
+				.header(HttpHeaders.AUTHORIZATION, token))
+			.andExpect(status().isOk())
+			.andReturn().getResponse().getContentAsString();
+		assertThat(csv.lines()).hasSize(THROWS + 1);
+		assertThat(csv.lines().findFirst().orElseThrow()).startsWith("throwId,uploadDate");
+
+		String ndjson = mockMvc.perform(get("/api/video/history/export")
+				.header(HttpHeaders.AUTHORIZATION, token))
+			.andExpect(status().isOk())
+			.andReturn().getResponse().getContentAsString();
+		assertThat(ndjson.lines()).hasSize(THROWS).allMatch(line -> line.startsWith("{"));
+
+		mockMvc.perform(get("/api/video/history/export").param("format", "xml")
+				.header(HttpHeaders.AUTHORIZATION, token))
+			.andExpect(status().isBadRequest());
+	}
+
+	private static ReleaseDetectionResponse detection(Double releaseAngleDeg, boolean releaseConfirmed) {
+		ReleaseDetectionResponse response = new ReleaseDetectionResponse();
+		response.setReleaseFrame(10);
+		response.setReleaseConfirmed(releaseConfirmed);
+		response.setReleaseAngleDeg(releaseAngleDeg);
+		return response;
+	}
+
+}
@@ -0,0 +1,132 @@
+package dev.throwlytics.ThrowlyticsBackend.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Replica selection against mocked primary and replica connections
+ * (the SQL itself needs PostgreSQL; see TESTING_GUIDE.md, "Two instances with a read replica")
+ */
+class ReplicaRoutingDataSourceTests {
+
+	private static final String PRIMARY_LSN = "0/3000060";
+
+	@AfterEach
+	void tearDown() {
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void replicaWithinLagServesReadOnlyTransactions() throws SQLException {
+		ReplicaRoutingDataSource routing = routing(primary(PRIMARY_LSN), replica(0.0), new ReadYourWritesTracker());
+		routing.refreshLag();
+
+		assertThat(routing.determineCurrentLookupKey()).isEqualTo(ReplicaRoutingDataSource.PRIMARY);
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		assertThat(routing.determineCurrentLookupKey()).isEqualTo("replica-0");
+	}
+
+	@Test
+	void replicaIsComparedWithPrimaryPosition() throws SQLException {
+		PreparedStatement statement = mock(PreparedStatement.class);
+		ReplicaRoutingDataSource routing = routing(primary(PRIMARY_LSN), replica(statement, 0.0),
+			new ReadYourWritesTracker());
+		routing.refreshLag();
+
+		verify(statement).setString(1, PRIMARY_LSN);
+	}
+
+	@Test
+	void laggingOrUnreachableReplicaIsDropped() throws SQLException {
+		DataSource unreachable = mock(DataSource.class);
+		when(unreachable.getConnection()).thenThrow(new SQLException("connection refused"));
+
+		for (DataSource replica : List.of(replica(30.0), replica(-1.0), unreachable)) {
+			ReplicaRoutingDataSource routing = routing(primary(PRIMARY_LSN), replica, new ReadYourWritesTracker());
+			routing.refreshLag();
+
+			TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+			assertThat(routing.determineCurrentLookupKey()).isEqualTo(ReplicaRoutingDataSource.PRIMARY);
+		}
+	}
+
+	@Test
+	void unknownPrimaryPositionDropsEveryReplica() throws SQLException {
+		DataSource primary = mock(DataSource.class);
+		when(primary.getConnection()).thenThrow(new SQLException("connection refused"));
+		ReplicaRoutingDataSource routing = routing(primary, replica(0.0), new ReadYourWritesTracker());
+		routing.refreshLag();
+
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		assertThat(routing.determineCurrentLookupKey()).isEqualTo(ReplicaRoutingDataSource.PRIMARY);
+	}
+
+	@Test
+	void recentWriterReadsFromPrimary() throws SQLException {
+		ReadYourWritesTracker tracker = new ReadYourWritesTracker();
+		ReflectionTestUtils.setField(tracker, "stickySeconds", 10L);
+		ReplicaRoutingDataSource routing = routing(primary(PRIMARY_LSN), replica(0.0), tracker);
+		routing.refreshLag();
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		SecurityContextHolder.getContext().setAuthentication(
+			new UsernamePasswordAuthenticationToken(7L, null, List.of()));
+
+		tracker.recordWrite(7L);
+
+		assertThat(routing.determineCurrentLookupKey()).isEqualTo(ReplicaRoutingDataSource.PRIMARY);
+	}
+
+	private static ReplicaRoutingDataSource routing(DataSource primary, DataSource replica,
+			ReadYourWritesTracker tracker) {
+		return new ReplicaRoutingDataSource(primary, List.of(replica), tracker, 5);
+	}
+
+	private static DataSource primary(String lsn) throws SQLException {
+		ResultSet resultSet = mock(ResultSet.class);
+		when(resultSet.next()).thenReturn(true);
+		when(resultSet.getString(1)).thenReturn(lsn);
+		Statement statement = mock(Statement.class);
+		when(statement.executeQuery(anyString())).thenReturn(resultSet);
+		Connection connection = mock(Connection.class);
+		when(connection.createStatement()).thenReturn(statement);
+		DataSource dataSource = mock(DataSource.class);
+		when(dataSource.getConnection()).thenReturn(connection);
+		return dataSource;
+	}
+
+	private static DataSource replica(double lagSeconds) throws SQLException {
+		return replica(mock(PreparedStatement.class), lagSeconds);
+	}
+
+	private static DataSource replica(PreparedStatement statement, double lagSeconds) throws SQLException {
+		ResultSet resultSet = mock(ResultSet.class);
+		when(resultSet.next()).thenReturn(true);
+		when(resultSet.getDouble(1)).thenReturn(lagSeconds);
+		when(statement.executeQuery()).thenReturn(resultSet);
+		Connection connection = mock(Connection.class);
+		when(connection.prepareStatement(anyString())).thenReturn(statement);
+		DataSource dataSource = mock(DataSource.class);
+		when(dataSource.getConnection()).thenReturn(connection);
+		return dataSource;
+	}
+
+}
@@ -0,0 +1,72 @@
+package dev.throwlytics.ThrowlyticsBackend.service;
+
+import dev.throwlytics.ThrowlyticsBackend.datasource.ReadYourWritesTracker;
+import dev.throwlytics.ThrowlyticsBackend.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static dev.throwlytics.ThrowlyticsBackend.TestUsers.newUserId;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * History ETags derived from users.history_version against the H2 test database
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class HistoryResponseCacheTests {
+
+	private static final long URL_EXPIRY = 1_800_000_000L;
+
+	@Autowired
+	private HistoryResponseCache historyResponseCache;
+
+	@Autowired
+	private ThrowHistoryService throwHistoryService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Test
+	void savedThrowChangesEtag() {
+		Long userId = newUserId(userRepository);
+		String before = historyResponseCache.etag(userId, URL_EXPIRY);
+
+		throwHistoryService.saveThrowHistory(userId, null, null);
+
+		assertThat(historyResponseCache.etag(userId, URL_EXPIRY)).isNotEqualTo(before);
+	}
+
+	@Test
+	void anotherNodeComputesTheSameEtag() {
+		Long userId = newUserId(userRepository);
+		throwHistoryService.saveThrowHistory(userId, null, null);
+
+		// A second instance has no state of its own; it only shares the database
+		HistoryResponseCache otherNode = new HistoryResponseCache();
+		ReflectionTestUtils.setField(otherNode, "userRepository", userRepository);
+		ReflectionTestUtils.setField(otherNode, "readYourWritesTracker", new ReadYourWritesTracker());
+
+		assertThat(otherNode.etag(userId, URL_EXPIRY)).isEqualTo(historyResponseCache.etag(userId, URL_EXPIRY));
+	}
+
+	@Test
+	void rolledBackChangeKeepsEtag() {
+		Long userId = newUserId(userRepository);
+		String before = historyResponseCache.etag(userId, URL_EXPIRY);
+
+		transactionTemplate.executeWithoutResult(status -> {
+			historyResponseCache.invalidate(userId);
+			status.setRollbackOnly();
+		});
+
+		assertThat(historyResponseCache.etag(userId, URL_EXPIRY)).isEqualTo(before);
+	}
+
+}
@@ -0,0 +1,212 @@
+package dev.throwlytics.ThrowlyticsBackend.service;
+
+import dev.throwlytics.ThrowlyticsBackend.storage.StorageBackend;
+import dev.throwlytics.ThrowlyticsBackend.storage.StorageObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Range, If-Range and conditional handling of media streaming against a mocked backend
+ */
+class MediaServingServiceTests {
+
+	private static final String KEY = "hls/7/ab/cd/video-1/720p/seg_000.ts";
+	private static final byte[] CONTENT = "0123456789".getBytes(StandardCharsets.US_ASCII);
+	private static final long LAST_MODIFIED = 1_700_000_000_000L;
+
+	@TempDir
+	Path tempDir;
+
+	private StorageBackend storageBackend;
+	private MediaServingService service;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		storageBackend = mock(StorageBackend.class);
+		when(storageBackend.stat(KEY)).thenReturn(Optional.of(new StorageObject(KEY, CONTENT.length, LAST_MODIFIED)));
+		when(storageBackend.localPath(KEY)).thenReturn(Optional.empty());
+		when(storageBackend.getRange(eq(KEY), anyLong(), anyLong())).thenAnswer(invocation -> {
+			int start = Math.toIntExact(invocation.getArgument(1, Long.class));
+			int count = Math.toIntExact(invocation.getArgument(2, Long.class));
+			return new ByteArrayInputStream(Arrays.copyOfRange(CONTENT, start, start + count));
+		});
+
+		service = new MediaServingService();
+		ReflectionTestUtils.setField(service, "storageBackend", storageBackend);
+	}
+
+	@Test
+	void noRangeSendsWholeObject() throws IOException {
+		MockHttpServletResponse response = serve(request());
+
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(response.getHeader(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+		assertThat(response.getContentType()).isEqualTo("video/mp2t");
+		assertThat(response.getContentAsByteArray()).isEqualTo(CONTENT);
+	}
+
+	@Test
+	void singleRangeIsPartialContent() throws IOException {
+		MockHttpServletRequest request = request();
+		request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+
+		MockHttpServletResponse response = serve(request);
+
+		assertThat(response.getStatus()).isEqualTo(206);
+		assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 2-5/10");
+		assertThat(response.getContentLengthLong()).isEqualTo(4);
+		assertThat(response.getContentAsString()).isEqualTo("2345");
+	}
+
+	@Test
+	void suffixAndOpenEndedRanges() throws IOException {
+		MockHttpServletRequest suffix = request();
+		suffix.addHeader(HttpHeaders.RANGE, "bytes=-3");
+		assertThat(serve(suffix).getContentAsString()).isEqualTo("789");
+
+		MockHttpServletRequest openEnded = request();
+		openEnded.addHeader(HttpHeaders.RANGE, "bytes=8-");
+		MockHttpServletResponse response = serve(openEnded);
+		assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 8-9/10");
+		assertThat(response.getContentAsString()).isEqualTo("89");
+
+		// An end past the last byte is clamped
+		MockHttpServletRequest pastEnd = request();
+		pastEnd.addHeader(HttpHeaders.RANGE, "bytes=7-100");
+		assertThat(serve(pastEnd).getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 7-9/10");
+	}
+
+	@Test
+	void unsatisfiableOrMalformedRangeIs416() throws IOException {
+		for (String range : new String[]{"bytes=10-20", "bytes=abc", "bytes=5-2", "items=0-1",
+				"bytes=0-9,0-9"}) {
+			MockHttpServletRequest request = request();
+			request.addHeader(HttpHeaders.RANGE, range);
+
+			MockHttpServletResponse response = serve(request);
+
+			assertThat(response.getStatus()).as(range).isEqualTo(416);
+			assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).as(range).isEqualTo("bytes */10");
+			assertThat(response.getContentAsByteArray()).as(range).isEmpty();
+		}
+	}
+
+	@Test
+	void multipleRangesAreMultipart() throws IOException {
+		MockHttpServletRequest request = request();
+		request.addHeader(HttpHeaders.RANGE, "bytes=0-1,6-7");
+
+		MockHttpServletResponse response = serve(request);
+
+		assertThat(response.getStatus()).isEqualTo(206);
+		assertThat(response.getContentType()).startsWith("multipart/byteranges; boundary=");
+		String body = response.getContentAsString();
+		assertThat(body).contains("Content-Range: bytes 0-1/10\r\n\r\n01");
+		assertThat(body).contains("Content-Range: bytes 6-7/10\r\n\r\n67");
+		assertThat(response.getContentLengthLong()).isEqualTo(response.getContentAsByteArray().length);
+	}
+
+	@Test
+	void ifRangeHonoursRangeOnlyWhileValidatorMatches() throws IOException {
+		String etag = serve(request()).getHeader(HttpHeaders.ETAG);
+
+		MockHttpServletRequest current = request();
+		current.addHeader(HttpHeaders.RANGE, "bytes=0-1");
+		current.addHeader(HttpHeaders.IF_RANGE, etag);
+		assertThat(serve(current).getStatus()).isEqualTo(206);
+
+		MockHttpServletRequest stale = request();
+		stale.addHeader(HttpHeaders.RANGE, "bytes=0-1");
+		stale.addHeader(HttpHeaders.IF_RANGE, "\"stale\"");
+		MockHttpServletResponse staleResponse = serve(stale);
+		assertThat(staleResponse.getStatus()).isEqualTo(200);
+		assertThat(staleResponse.getContentAsByteArray()).isEqualTo(CONTENT);
+
+		// Weak validators never satisfy If-Range
+		MockHttpServletRequest weak = request();
+		weak.addHeader(HttpHeaders.RANGE, "bytes=0-1");
+		weak.addHeader(HttpHeaders.IF_RANGE, "W/" + etag);
+		assertThat(serve(weak).getStatus()).isEqualTo(200);
+	}
+
+	@Test
+	void ifRangeDateComparesWithLastModified() throws IOException {
+		MockHttpServletRequest current = request();
+		current.addHeader(HttpHeaders.RANGE, "bytes=0-1");
+		current.addHeader(HttpHeaders.IF_RANGE, LAST_MODIFIED);
+		assertThat(serve(current).getStatus()).isEqualTo(206);
+
+		MockHttpServletRequest older = request();
+		older.addHeader(HttpHeaders.RANGE, "bytes=0-1");
+		older.addHeader(HttpHeaders.IF_RANGE, LAST_MODIFIED - 60_000);
+		assertThat(serve(older).getStatus()).isEqualTo(200);
+	}
+
+	@Test
+	void matchingIfNoneMatchIs304() throws IOException {
+		String etag = serve(request()).getHeader(HttpHeaders.ETAG);
+		MockHttpServletRequest request = request();
+		request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"other\", " + etag);
+		request.addHeader(HttpHeaders.RANGE, "bytes=0-1");
+
+		MockHttpServletResponse response = serve(request);
+
+		assertThat(response.getStatus()).isEqualTo(304);
+		assertThat(response.getContentAsByteArray()).isEmpty();
+	}
+
+	@Test
+	void localObjectRangesAreReadFromFile() throws IOException {
+		Path file = Files.write(tempDir.resolve("seg_000.ts"), CONTENT);
+		when(storageBackend.localPath(KEY)).thenReturn(Optional.of(file));
+		MockHttpServletRequest request = request();
+		request.addHeader(HttpHeaders.RANGE, "bytes=3-4");
+
+		MockHttpServletResponse response = serve(request);
+
+		assertThat(response.getStatus()).isEqualTo(206);
+		assertThat(response.getContentAsString()).isEqualTo("34");
+	}
+
+	@Test
+	void headSendsHeadersOnly() throws IOException {
+		MockHttpServletRequest request = new MockHttpServletRequest("HEAD", "/" + KEY);
+		request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+
+		MockHttpServletResponse response = serve(request);
+
+		assertThat(response.getStatus()).isEqualTo(206);
+		assertThat(response.getContentLengthLong()).isEqualTo(4);
+		assertThat(response.getContentAsByteArray()).isEmpty();
+	}
+
+	private MockHttpServletResponse serve(MockHttpServletRequest request) throws IOException {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		service.serveHls(KEY, request, response);
+		return response;
+	}
+
+	private static MockHttpServletRequest request() {
+		return new MockHttpServletRequest("GET", "/" + KEY);
+	}
+
+}
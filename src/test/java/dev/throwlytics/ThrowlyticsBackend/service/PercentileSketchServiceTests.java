@@ -0,0 +1,98 @@
+package dev.throwlytics.ThrowlyticsBackend.service;
+
+import dev.throwlytics.ThrowlyticsBackend.dto.ReleaseDetectionResponse;
+import dev.throwlytics.ThrowlyticsBackend.model.MetricSketch;
+import dev.throwlytics.ThrowlyticsBackend.model.MetricSketchId;
+import dev.throwlytics.ThrowlyticsBackend.repository.MetricSketchRepository;
+import dev.throwlytics.ThrowlyticsBackend.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static dev.throwlytics.ThrowlyticsBackend.TestUsers.newUserId;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sketch seeding against the H2 test database
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class PercentileSketchServiceTests {
+
+	private static final MetricSketchId ALL_RELEASE_ANGLE =
+		new MetricSketchId(PercentileSketchService.ALL, "releaseAngleDeg");
+
+	@Autowired
+	private PercentileSketchService percentileSketchService;
+
+	@Autowired
+	private ThrowHistoryService throwHistoryService;
+
+	@Autowired
+	private MetricSketchRepository metricSketchRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void concurrentStartupsSeedOnce() throws Exception {
+		Long userId = newUserId(userRepository);
+		for (double angle : new double[]{31.0, 35.0, 39.0}) {
+			throwHistoryService.saveThrowHistory(userId, null, detection(angle));
+		}
+		metricSketchRepository.deleteAllInBatch();
+		long withAngle = jdbcTemplate.queryForObject(
+			"SELECT COUNT(*) FROM throw_history WHERE release_angle_deg IS NOT NULL", Long.class);
+
+		// Two nodes starting against the same empty table
+		ExecutorService nodes = Executors.newFixedThreadPool(2);
+		try {
+			Future<Long> first = nodes.submit(percentileSketchService::loadOrSeed);
+			Future<Long> second = nodes.submit(percentileSketchService::loadOrSeed);
+			long firstScanned = first.get(30, TimeUnit.SECONDS);
+			long secondScanned = second.get(30, TimeUnit.SECONDS);
+
+			assertThat(firstScanned == 0 || secondScanned == 0).isTrue();
+			assertThat(firstScanned + secondScanned).isGreaterThanOrEqualTo(3);
+		} finally {
+			nodes.shutdownNow();
+		}
+
+		assertThat(sampleCount()).isEqualTo(withAngle);
+	}
+
+	@Test
+	void seededTableIsLoadedNotReseeded() {
+		Long userId = newUserId(userRepository);
+		throwHistoryService.saveThrowHistory(userId, null, detection(33.0));
+		metricSketchRepository.deleteAllInBatch();
+		percentileSketchService.loadOrSeed();
+		long seeded = sampleCount();
+
+		assertThat(percentileSketchService.loadOrSeed()).isZero();
+		assertThat(sampleCount()).isEqualTo(seeded);
+	}
+
+	private long sampleCount() {
+		return metricSketchRepository.findById(ALL_RELEASE_ANGLE).map(MetricSketch::getSampleCount).orElse(0L);
+	}
+
+	private static ReleaseDetectionResponse detection(Double releaseAngleDeg) {
+		ReleaseDetectionResponse response = new ReleaseDetectionResponse();
+		response.setReleaseFrame(10);
+		response.setReleaseConfirmed(true);
+		response.setReleaseAngleDeg(releaseAngleDeg);
+		return response;
+	}
+
+}
@@ -0,0 +1,101 @@
+package dev.throwlytics.ThrowlyticsBackend.service;
+
+import dev.throwlytics.ThrowlyticsBackend.repository.JobLockRepository;
+import dev.throwlytics.ThrowlyticsBackend.repository.UserRepository;
+import dev.throwlytics.ThrowlyticsBackend.repository.UserStorageUsageRepository;
+import dev.throwlytics.ThrowlyticsBackend.storage.StorageBackend;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+import static dev.throwlytics.ThrowlyticsBackend.TestUsers.newUserId;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Orphan collection and the maintenance lease against the H2 test database and local storage
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class StorageMaintenanceServiceTests {
+
+	@Autowired
+	private StorageMaintenanceService storageMaintenanceService;
+
+	@Autowired
+	private StorageQuotaService storageQuotaService;
+
+	@Autowired
+	private ThrowHistoryService throwHistoryService;
+
+	@Autowired
+	private StorageBackend storageBackend;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private UserStorageUsageRepository userStorageUsageRepository;
+
+	@Autowired
+	private JobLockRepository jobLockRepository;
+
+	@BeforeEach
+	void freeMaintenanceLease() {
+		jobLockRepository.deleteAll();
+	}
+
+	@Test
+	void orphansAreDeletedAndReleasedFromQuota() throws IOException {
+		Long userId = newUserId(userRepository);
+		String referenced = "videos/" + userId + "/ab/cd/referenced.mp4";
+		String orphan = "videos/" + userId + "/ab/cd/orphan.mp4";
+		String recent = "videos/" + userId + "/ab/cd/recent.mp4";
+		storeOld(referenced, 100);
+		storeOld(orphan, 300);
+		storageBackend.put(recent, new ByteArrayInputStream(new byte[50]), 50, "video/mp4");
+		storageQuotaService.charge(userId, 450, 3);
+		throwHistoryService.saveThrowHistory(userId, referenced, null);
+
+		assertThat(storageMaintenanceService.collectOrphans()).isPositive();
+
+		assertThat(storageBackend.stat(orphan)).isEmpty();
+		assertThat(storageBackend.stat(referenced)).isPresent();
+		assertThat(storageBackend.stat(recent)).isPresent();
+		assertThat(userStorageUsageRepository.findById(userId).orElseThrow().getBytesUsed()).isEqualTo(150);
+		assertThat(userStorageUsageRepository.findById(userId).orElseThrow().getFileCount()).isEqualTo(2);
+	}
+
+	@Test
+	void onlyOneNodeRunsMaintenancePerLease() throws IOException {
+		Long userId = newUserId(userRepository);
+		String orphan = "videos/" + userId + "/ab/cd/late-orphan.mp4";
+		assertThat(storageMaintenanceService.collectOrphans()).isNotNegative();
+		storeOld(orphan, 300);
+		storageQuotaService.charge(userId, 300, 1);
+
+		// Another node firing within the lease, and the layout migration, both skip
+		assertThat(storageMaintenanceService.collectOrphans()).isEqualTo(-1);
+		assertThat(storageMaintenanceService.migrateLayout()).isEqualTo(-1);
+
+		assertThat(storageBackend.stat(orphan)).isPresent();
+		assertThat(userStorageUsageRepository.findById(userId).orElseThrow().getBytesUsed()).isEqualTo(300);
+	}
+
+	/**
+	 * Store a file last modified well before the grace period
+	 */
+	private void storeOld(String key, int size) throws IOException {
+		storageBackend.put(key, new ByteArrayInputStream(new byte[size]), size, "video/mp4");
+		Files.setLastModifiedTime(storageBackend.localPath(key).orElseThrow(),
+			FileTime.from(Instant.now().minus(Duration.ofDays(3))));
+	}
+}
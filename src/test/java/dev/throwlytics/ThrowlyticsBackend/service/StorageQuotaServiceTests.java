@@ -0,0 +1,174 @@
+package dev.throwlytics.ThrowlyticsBackend.service;
+
+import dev.throwlytics.ThrowlyticsBackend.exception.StorageQuotaExceededException;
+import dev.throwlytics.ThrowlyticsBackend.model.UserStorageUsage;
+import dev.throwlytics.ThrowlyticsBackend.repository.JobLockRepository;
+import dev.throwlytics.ThrowlyticsBackend.repository.UserRepository;
+import dev.throwlytics.ThrowlyticsBackend.repository.UserStorageUsageRepository;
+import dev.throwlytics.ThrowlyticsBackend.storage.StorageBackend;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static dev.throwlytics.ThrowlyticsBackend.TestUsers.newUserId;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Quota reservations and reconciliation against the H2 test database and local storage
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class StorageQuotaServiceTests {
+
+	@Autowired
+	private StorageQuotaService storageQuotaService;
+
+	@Autowired
+	private UserStorageUsageRepository userStorageUsageRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JobLockRepository jobLockRepository;
+
+	@Autowired
+	private StorageBackend storageBackend;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Value("${app.storage.quota.bytes-per-user:5368709120}")
+	private long quotaBytes;
+
+	@Value("${app.upload.dir}")
+	private String uploadDir;
+
+	@Value("${app.storage.tiering.cold-root}")
+	private String coldRoot;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		jobLockRepository.deleteAll();
+		// Reconcile counts every stored file; files from earlier tests or runs belong to
+		// user IDs that the in-memory database hands out again
+		FileSystemUtils.deleteRecursively(Path.of(uploadDir));
+		FileSystemUtils.deleteRecursively(Path.of(coldRoot));
+	}
+
+	@Test
+	void reserveStopsAtQuota() {
+		Long userId = newUserId(userRepository);
+
+		storageQuotaService.reserve(userId, quotaBytes - 100);
+
+		assertThatThrownBy(() -> storageQuotaService.reserve(userId, 200))
+			.isInstanceOf(StorageQuotaExceededException.class);
+		assertThat(usage(userId).getBytesUsed()).isEqualTo(quotaBytes - 100);
+		assertThat(usage(userId).getOpenReservations()).isEqualTo(1);
+	}
+
+	@Test
+	void settleKeepsBytesAndCancelGivesThemBack() {
+		Long userId = newUserId(userRepository);
+
+		storageQuotaService.reserve(userId, 1000);
+		storageQuotaService.settle(userId);
+		storageQuotaService.reserve(userId, 500);
+		storageQuotaService.cancelReservation(userId, 500);
+
+		UserStorageUsage usage = usage(userId);
+		assertThat(usage.getBytesUsed()).isEqualTo(1000);
+		assertThat(usage.getFileCount()).isEqualTo(1);
+		assertThat(usage.getOpenReservations()).isZero();
+	}
+
+	@Test
+	void tryChargeStopsAtQuotaButAlwaysShrinks() {
+		Long userId = newUserId(userRepository);
+		storageQuotaService.charge(userId, quotaBytes - 100, 1);
+
+		assertThat(storageQuotaService.tryCharge(userId, 200)).isFalse();
+		assertThat(usage(userId).getBytesUsed()).isEqualTo(quotaBytes - 100);
+
+		assertThat(storageQuotaService.tryCharge(userId, 100)).isTrue();
+		assertThat(storageQuotaService.tryCharge(userId, -300)).isTrue();
+		assertThat(usage(userId).getBytesUsed()).isEqualTo(quotaBytes - 300);
+		assertThat(usage(userId).getFileCount()).isEqualTo(1);
+		assertThat(usage(userId).getOpenReservations()).isZero();
+	}
+
+	@Test
+	void releaseGivesBackDeletedFiles() {
+		Long userId = newUserId(userRepository);
+		storageQuotaService.charge(userId, 3000, 3);
+
+		storageQuotaService.release(userId, 1000, 1);
+
+		assertThat(usage(userId).getBytesUsed()).isEqualTo(2000);
+		assertThat(usage(userId).getFileCount()).isEqualTo(2);
+	}
+
+	@Test
+	void reconcileCorrectsDriftButSkipsUploadsInFlight() throws IOException {
+		Long drifted = newUserId(userRepository);
+		storageQuotaService.charge(drifted, 999_999, 5);
+		store("videos/" + drifted + "/ab/cd/stored.mp4", 1234);
+
+		Long uploading = newUserId(userRepository);
+		storageQuotaService.reserve(uploading, 4321);
+
+		storageQuotaService.reconcile();
+
+		assertThat(usage(drifted).getBytesUsed()).isEqualTo(1234);
+		assertThat(usage(drifted).getFileCount()).isEqualTo(1);
+		assertThat(usage(drifted).getReconciledAt()).isNotNull();
+		assertThat(usage(uploading).getBytesUsed()).isEqualTo(4321);
+		assertThat(usage(uploading).getOpenReservations()).isEqualTo(1);
+	}
+
+	@Test
+	void reconcileClearsAbandonedReservations() {
+		Long userId = newUserId(userRepository);
+		storageQuotaService.reserve(userId, 4321);
+		jdbcTemplate.update("UPDATE user_storage_usage SET last_reserved_at = ? WHERE user_id = ?",
+			Timestamp.valueOf(LocalDateTime.now().minusDays(2)), userId);
+
+		storageQuotaService.reconcile();
+
+		assertThat(usage(userId).getBytesUsed()).isZero();
+		assertThat(usage(userId).getOpenReservations()).isZero();
+	}
+
+	@Test
+	void reconcileRunsOncePerLease() {
+		Long userId = newUserId(userRepository);
+		storageQuotaService.reconcile();
+		storageQuotaService.charge(userId, 500, 1);
+
+		// Another node firing within the lease skips
+		storageQuotaService.reconcile();
+
+		assertThat(usage(userId).getBytesUsed()).isEqualTo(500);
+	}
+
+	private UserStorageUsage usage(Long userId) {
+		return userStorageUsageRepository.findById(userId).orElseThrow();
+	}
+
+	private void store(String key, int size) throws IOException {
+		storageBackend.put(key, new ByteArrayInputStream(new byte[size]), size, "video/mp4");
+	}
+}
@@ -0,0 +1,225 @@
+package dev.throwlytics.ThrowlyticsBackend.service;
+
+import dev.throwlytics.ThrowlyticsBackend.dto.CursorPage;
+import dev.throwlytics.ThrowlyticsBackend.dto.ThrowSearchRequest;
+import dev.throwlytics.ThrowlyticsBackend.repository.ThrowHistoryRepositoryImpl;
+import dev.throwlytics.ThrowlyticsBackend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static dev.throwlytics.ThrowlyticsBackend.TestUsers.newUserId;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * History paging, field selection and search against the H2 test database
+ * Rows are imported so several throws can share one uploadDate.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ThrowHistoryServiceTests {
+
+	private static final String ROWS = """
+		uploadDate,releaseConfirmed,releaseAngleDeg,elbowAngleDeg
+		2024-05-01T09:00:00,true,30.0,150.0
+		2024-05-01T09:00:00,false,35.0,155.0
+		2024-05-01T09:00:00,true,40.0,160.0
+		2024-05-02T18:30:00,true,45.0,
+		2024-05-03T07:15:00,false,50.0,170.0
+		2024-05-03T07:15:00,true,,175.0
+		2024-05-04T00:00:00,true,38.0,165.0
+		""";
+
+	@Autowired
+	private ThrowHistoryService throwHistoryService;
+
+	@Autowired
+	private ThrowImportService throwImportService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private Long userId;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		userId = newUserId(userRepository);
+
+		byte[] csv = ROWS.getBytes(StandardCharsets.UTF_8);
+		throwImportService.importThrows(userId, new ByteArrayInputStream(csv), csv.length, true);
+	}
+
+	@Test
+	void pagesCoverEveryThrowOnceAcrossTies() {
+		List<Map<String, Object>> seen = new ArrayList<>();
+		String cursor = null;
+		int pages = 0;
+		do {
+			CursorPage<Map<String, Object>> page = throwHistoryService.getThrowHistoryPage(userId, cursor, 2, null);
+			seen.addAll(page.getItems());
+			cursor = page.getNextCursor();
+			pages++;
+		} while (cursor != null);
+
+		assertThat(pages).isEqualTo(4);
+		assertThat(seen).hasSize(7);
+		assertThat(seen).extracting(row -> row.get("throwId")).doesNotHaveDuplicates();
+		// Newest first, ties in throwId order
+		for (int i = 1; i < seen.size(); i++) {
+			Map<String, Object> previous = seen.get(i - 1);
+			Map<String, Object> current = seen.get(i);
+			int byDate = ((LocalDateTime) current.get("uploadDate")).compareTo((LocalDateTime) previous.get("uploadDate"));
+			assertThat(byDate).isLessThanOrEqualTo(0);
+			if (byDate == 0) {
+				assertThat((Long) current.get("throwId")).isGreaterThan((Long) previous.get("throwId"));
+			}
+		}
+	}
+
+	@Test
+	void lastPageHasNoCursor() {
+		CursorPage<Map<String, Object>> page = throwHistoryService.getThrowHistoryPage(userId, null, 7, null);
+
+		assertThat(page.getItems()).hasSize(7);
+		assertThat(page.getNextCursor()).isNull();
+	}
+
+	@Test
+	void onlySelectedFieldsAreReturned() {
+		CursorPage<Map<String, Object>> page = throwHistoryService.getThrowHistoryPage(userId, null, 2,
+			" releaseAngleDeg ,elbowAngleDeg,releaseAngleDeg");
+
+		// Keyset columns are read for the cursor but not returned unless asked for
+		assertThat(page.getItems()).allSatisfy(row ->
+			assertThat(row).containsOnlyKeys("releaseAngleDeg", "elbowAngleDeg"));
+		assertThat(page.getNextCursor()).isNotNull();
+	}
+
+	@Test
+	void blankFieldsSelectEveryField() {
+		Map<String, Object> row = throwHistoryService.getThrowHistoryPage(userId, null, 1, " ").getItems().get(0);
+
+		assertThat(row.keySet()).containsExactlyInAnyOrderElementsOf(ThrowHistoryRepositoryImpl.HISTORY_FIELDS);
+	}
+
+	@Test
+	void fieldsOutsideWhitelistAreRejected() {
+		for (String fields : new String[]{
+				"throwId,password",
+				"user",
+				"user.email",
+				"releaseangledeg",
+				"throwId FROM User u --",
+				"throwId,(SELECT 1)"}) {
+			assertThatThrownBy(() -> throwHistoryService.getThrowHistoryPage(userId, null, 10, fields))
+				.as(fields)
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageStartingWith("Unknown history field: ");
+		}
+	}
+
+	@Test
+	void searchWithoutFiltersReturnsEverything() {
+		assertThat(search(new ThrowSearchRequest())).hasSize(7);
+	}
+
+	@Test
+	void dateBoundsAreWholeDaysInclusive() {
+		ThrowSearchRequest oneDay = new ThrowSearchRequest();
+		oneDay.setFrom(LocalDate.of(2024, 5, 3));
+		oneDay.setTo(LocalDate.of(2024, 5, 3));
+		assertThat(search(oneDay)).containsExactlyInAnyOrder(50.0, null);
+
+		ThrowSearchRequest upTo = new ThrowSearchRequest();
+		upTo.setTo(LocalDate.of(2024, 5, 1));
+		assertThat(search(upTo)).containsExactlyInAnyOrder(30.0, 35.0, 40.0);
+	}
+
+	@Test
+	void metricBoundsAreInclusiveAndSkipMissingValues() {
+		ThrowSearchRequest filter = new ThrowSearchRequest();
+		filter.setReleaseAngleDegMin(35.0);
+		filter.setReleaseAngleDegMax(40.0);
+
+		assertThat(search(filter)).containsExactlyInAnyOrder(35.0, 38.0, 40.0);
+	}
+
+	@Test
+	void filtersCombineWithAnd() {
+		ThrowSearchRequest confirmed = new ThrowSearchRequest();
+		confirmed.setReleaseConfirmed(false);
+		assertThat(search(confirmed)).containsExactlyInAnyOrder(35.0, 50.0);
+
+		ThrowSearchRequest combined = new ThrowSearchRequest();
+		combined.setReleaseConfirmed(true);
+		combined.setReleaseAngleDegMin(35.0);
+		combined.setReleaseAngleDegMax(45.0);
+		combined.setElbowAngleDegMax(160.0);
+		combined.setFrom(LocalDate.of(2024, 5, 1));
+		assertThat(search(combined)).containsExactly(40.0);
+	}
+
+	@Test
+	void invertedRangesAreRejected() {
+		ThrowSearchRequest dates = new ThrowSearchRequest();
+		dates.setFrom(LocalDate.of(2024, 5, 4));
+		dates.setTo(LocalDate.of(2024, 5, 1));
+		assertThatThrownBy(() -> throwHistoryService.searchThrowHistory(userId, dates, null, null, null))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessageStartingWith("Invalid date range");
+
+		ThrowSearchRequest metric = new ThrowSearchRequest();
+		metric.setWristAngleDegMin(10.0);
+		metric.setWristAngleDegMax(5.0);
+		assertThatThrownBy(() -> throwHistoryService.searchThrowHistory(userId, metric, null, null, null))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessageStartingWith("Invalid wristAngleDeg range");
+	}
+
+	@Test
+	void newThrowIsInsertedWithItsPlaceholderAndServedLazily() {
+		Long throwId = throwHistoryService.saveThrowHistory(userId, "videos/" + userId + "/ab/cd/new.mp4", null)
+			.getThrowId();
+
+		assertThat(jdbcTemplate.queryForObject("SELECT thumbnail_url FROM throw_history WHERE throw_id = ?",
+			String.class, throwId)).isEqualTo("thumbnails/placeholder.jpg");
+		List<Map<String, Object>> rows = throwHistoryService.getThrowHistoryPage(userId, null, 8, "throwId,thumbnailUrl")
+			.getItems();
+		assertThat(rows.get(0)).containsEntry("throwId", throwId)
+			.containsEntry("thumbnailUrl", "thumbnails/lazy/" + throwId + ".jpg");
+		// Imported throws have no video and keep no thumbnail
+		assertThat(rows.subList(1, rows.size())).allSatisfy(row -> assertThat(row.get("thumbnailUrl")).isNull());
+	}
+
+	/**
+	 * Run a search two rows per page and return releaseAngleDeg of every match
+	 */
+	private List<Object> search(ThrowSearchRequest filter) {
+		List<Object> angles = new ArrayList<>();
+		String cursor = null;
+		do {
+			CursorPage<Map<String, Object>> page = throwHistoryService.searchThrowHistory(userId, filter, cursor, 2,
+				"throwId,releaseAngleDeg");
+			page.getItems().forEach(row -> angles.add(row.get("releaseAngleDeg")));
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+		return angles;
+	}
+
+}
@@ -0,0 +1,100 @@
+package dev.throwlytics.ThrowlyticsBackend.service;
+
+import dev.throwlytics.ThrowlyticsBackend.dto.ThrowImportResponse;
+import dev.throwlytics.ThrowlyticsBackend.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static dev.throwlytics.ThrowlyticsBackend.TestUsers.newUserId;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * CSV and NDJSON imports against the H2 test database
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ThrowImportServiceTests {
+
+	@Autowired
+	private ThrowImportService throwImportService;
+
+	@Autowired
+	private ThrowStatsService throwStatsService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Test
+	void csvImportSkipsAndReportsInvalidRows() throws IOException {
+		Long userId = newUserId(userRepository);
+		String body = "\uFEFFuploadDate,releaseAngleDeg,releaseConfirmed\n"
+			+ "2024-03-01T10:00:00,37.5,true\n"
+			+ "2024-03-02,\"41.0\",0\n"
+			+ "\n"
+			+ "2024-03-03,n/a,true\n"
+			+ ",30.0,true\n"
+			+ "2024-03-04,30.0,maybe\n"
+			+ "2024-03-05,30.0,true,extra\n";
+
+		ThrowImportResponse response = importBody(userId, body, true);
+
+		assertThat(response.getImported()).isEqualTo(2);
+		assertThat(response.getRejected()).isEqualTo(4);
+		assertThat(response.getErrors()).hasSize(4);
+		assertThat(response.getErrors().get(0)).startsWith("line 5: releaseAngleDeg:");
+		assertThat(response.getErrors().get(1)).isEqualTo("line 6: uploadDate: required");
+		assertThat(response.getErrors().get(2)).isEqualTo("line 7: releaseConfirmed: not a boolean: maybe");
+		assertThat(response.getErrors().get(3)).isEqualTo("line 8: more fields than header columns");
+		assertThat(throwStatsService.getStats(userId).getThrowCount()).isEqualTo(2);
+	}
+
+	@Test
+	void ndjsonImportSkipsAndReportsInvalidRows() throws IOException {
+		Long userId = newUserId(userRepository);
+		String body = "{\"uploadDate\":\"2024-03-01T10:00:00\",\"releaseAngleDeg\":37.5,\"fps\":30,\"elbowAngleDeg\":null}\n"
+			+ "[1,2,3]\n"
+			+ "{\"uploadDate\":\"2024-03-02\",\"fps\":-1}\n"
+			+ "{not json\n"
+			+ "{\"uploadDate\":\"2999-01-01\"}\n";
+
+		ThrowImportResponse response = importBody(userId, body, false);
+
+		assertThat(response.getImported()).isEqualTo(1);
+		assertThat(response.getRejected()).isEqualTo(4);
+		assertThat(response.getErrors().get(0)).isEqualTo("line 2: not a JSON object");
+		assertThat(response.getErrors().get(1)).isEqualTo("line 3: fps: must not be negative");
+		assertThat(response.getErrors().get(2)).startsWith("line 4: ");
+		assertThat(response.getErrors().get(3)).startsWith("line 5: uploadDate: in the future");
+	}
+
+	@Test
+	void csvWithoutHeaderIsRejected() {
+		Long userId = newUserId(userRepository);
+
+		assertThatThrownBy(() -> importBody(userId, "", true))
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void oversizedBodyIsRejectedBeforeSpooling() {
+		Long userId = newUserId(userRepository);
+
+		assertThatThrownBy(() -> throwImportService.importThrows(userId,
+				new ByteArrayInputStream(new byte[0]), 1L << 40, true))
+			.isInstanceOf(IllegalStateException.class)
+			.hasMessageContaining("bytes");
+	}
+
+	private ThrowImportResponse importBody(Long userId, String body, boolean csv) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		return throwImportService.importThrows(userId, new ByteArrayInputStream(bytes), bytes.length, csv);
+	}
+
+}
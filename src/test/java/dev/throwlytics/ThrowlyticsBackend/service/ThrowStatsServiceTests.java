@@ -0,0 +1,127 @@
+package dev.throwlytics.ThrowlyticsBackend.service;
+
+import dev.throwlytics.ThrowlyticsBackend.dto.MetricStats;
+import dev.throwlytics.ThrowlyticsBackend.dto.ReleaseDetectionResponse;
+import dev.throwlytics.ThrowlyticsBackend.dto.ThrowStatsResponse;
+import dev.throwlytics.ThrowlyticsBackend.repository.ThrowStatsRollupRepository;
+import dev.throwlytics.ThrowlyticsBackend.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static dev.throwlytics.ThrowlyticsBackend.TestUsers.newUserId;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Rollup upserts and rebuilds against the H2 test database
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ThrowStatsServiceTests {
+
+	@Autowired
+	private ThrowHistoryService throwHistoryService;
+
+	@Autowired
+	private ThrowStatsService throwStatsService;
+
+	@Autowired
+	private ThrowStatsRollupRepository throwStatsRollupRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Test
+	void savedThrowsAccumulateIntoBuckets() {
+		Long userId = newUserId(userRepository);
+		throwHistoryService.saveThrowHistory(userId, null, detection(30.0, 90.0));
+		throwHistoryService.saveThrowHistory(userId, null, detection(40.0, null));
+
+		ThrowStatsResponse stats = throwStatsService.getStats(userId);
+
+		assertThat(stats.getThrowCount()).isEqualTo(2);
+		MetricStats releaseAngle = stats.getMetrics().get("releaseAngleDeg");
+		assertThat(releaseAngle.getCount()).isEqualTo(2);
+		assertThat(releaseAngle.getMean()).isEqualTo(35.0);
+		assertThat(releaseAngle.getStdDev()).isEqualTo(5.0);
+		assertThat(releaseAngle.getMin()).isEqualTo(30.0);
+		assertThat(releaseAngle.getMax()).isEqualTo(40.0);
+		// Null metrics are not sampled
+		assertThat(stats.getMetrics().get("elbowAngleDeg").getCount()).isEqualTo(1);
+		assertThat(stats.getWeekly()).hasSize(1);
+		assertThat(stats.getWeekly().get(0).getThrowCount()).isEqualTo(2);
+	}
+
+	@Test
+	void rebuildForUserMatchesIncrementalRollup() {
+		Long userId = newUserId(userRepository);
+		throwHistoryService.saveThrowHistory(userId, null, detection(20.0, 100.0));
+		throwHistoryService.saveThrowHistory(userId, null, detection(50.0, 120.0));
+		throwHistoryService.saveThrowHistory(userId, null, null);
+		ThrowStatsResponse incremental = throwStatsService.getStats(userId);
+
+		int written = transactionTemplate.execute(status -> throwStatsService.rebuildForUser(userId));
+
+		// throws, releaseAngleDeg and elbowAngleDeg in the all-time and weekly buckets
+		assertThat(written).isEqualTo(6);
+		assertThat(throwStatsService.getStats(userId)).isEqualTo(incremental);
+	}
+
+	@Test
+	void rebuildFromHistoryRestoresEveryBucket() {
+		Long userId = newUserId(userRepository);
+		throwHistoryService.saveThrowHistory(userId, null, detection(25.0, 95.0));
+		ThrowStatsResponse incremental = throwStatsService.getStats(userId);
+
+		transactionTemplate.executeWithoutResult(status -> {
+			throwStatsRollupRepository.deleteAllInBatch();
+			throwStatsRollupRepository.rebuildFromHistory();
+		});
+
+		assertThat(throwStatsService.getStats(userId)).isEqualTo(incremental);
+	}
+
+	@Test
+	void concurrentStartupsBackfillOnce() throws Exception {
+		Long userId = newUserId(userRepository);
+		throwHistoryService.saveThrowHistory(userId, null, detection(25.0, 95.0));
+		ThrowStatsResponse incremental = throwStatsService.getStats(userId);
+		throwStatsRollupRepository.deleteAllInBatch();
+
+		// Two nodes starting against the same empty rollup
+		ExecutorService nodes = Executors.newFixedThreadPool(2);
+		try {
+			Future<Integer> first = nodes.submit(throwStatsService::backfillIfEmpty);
+			Future<Integer> second = nodes.submit(throwStatsService::backfillIfEmpty);
+			int firstWritten = first.get(30, TimeUnit.SECONDS);
+			int secondWritten = second.get(30, TimeUnit.SECONDS);
+
+			assertThat(firstWritten == 0 || secondWritten == 0).isTrue();
+			assertThat(firstWritten + secondWritten).isPositive();
+		} finally {
+			nodes.shutdownNow();
+		}
+
+		assertThat(throwStatsService.getStats(userId)).isEqualTo(incremental);
+	}
+
+	private static ReleaseDetectionResponse detection(Double releaseAngleDeg, Double elbowAngleDeg) {
+		ReleaseDetectionResponse response = new ReleaseDetectionResponse();
+		response.setReleaseFrame(10);
+		response.setReleaseConfirmed(true);
+		response.setReleaseAngleDeg(releaseAngleDeg);
+		response.setElbowAngleDeg(elbowAngleDeg);
+		return response;
+	}
+
+}
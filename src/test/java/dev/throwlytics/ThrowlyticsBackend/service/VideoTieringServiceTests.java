@@ -0,0 +1,128 @@
+package dev.throwlytics.ThrowlyticsBackend.service;
+
+import dev.throwlytics.ThrowlyticsBackend.repository.JobLockRepository;
+import dev.throwlytics.ThrowlyticsBackend.repository.ThrowHistoryRepository;
+import dev.throwlytics.ThrowlyticsBackend.repository.UserRepository;
+import dev.throwlytics.ThrowlyticsBackend.storage.LocalFile;
+import dev.throwlytics.ThrowlyticsBackend.storage.StorageBackend;
+import dev.throwlytics.ThrowlyticsBackend.storage.StorageObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static dev.throwlytics.ThrowlyticsBackend.TestUsers.newUserId;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Archiving, rehydration and access tracking against the H2 test database and local storage
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class VideoTieringServiceTests {
+
+	@Autowired
+	private VideoTieringService videoTieringService;
+
+	@Autowired
+	private FileStorageService fileStorageService;
+
+	@Autowired
+	private MediaServingService mediaServingService;
+
+	@Autowired
+	private ThrowHistoryService throwHistoryService;
+
+	@Autowired
+	private ThrowHistoryRepository throwHistoryRepository;
+
+	@Autowired
+	private StorageBackend storageBackend;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JobLockRepository jobLockRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private String videoKey;
+	private Long throwId;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		jobLockRepository.deleteAll();
+		Long userId = newUserId(userRepository);
+		videoKey = "videos/" + userId + "/ab/cd/old.mp4";
+		storageBackend.put(videoKey, new ByteArrayInputStream(new byte[256]), 256, "video/mp4");
+		throwId = throwHistoryService.saveThrowHistory(userId, videoKey, null).getThrowId();
+		jdbcTemplate.update("UPDATE throw_history SET upload_date = ? WHERE throw_id = ?",
+			Timestamp.valueOf(LocalDateTime.now().minusDays(30)), throwId);
+	}
+
+	@Test
+	void idleVideoIsArchivedAndComesBackOnRead() throws IOException {
+		assertThat(videoTieringService.archiveColdVideos()).isPositive();
+
+		assertThat(storageBackend.stat(videoKey)).isEmpty();
+		assertThat(archivedKeys()).contains(videoKey);
+		assertThat(throwHistoryRepository.findById(throwId).orElseThrow().getVideoArchived()).isTrue();
+
+		try (LocalFile video = fileStorageService.fetchVideo(videoKey)) {
+			assertThat(video.getPath()).hasSize(256);
+		}
+		assertThat(storageBackend.stat(videoKey)).isPresent();
+		assertThat(archivedKeys()).doesNotContain(videoKey);
+		assertThat(throwHistoryRepository.findById(throwId).orElseThrow().getVideoArchived()).isFalse();
+	}
+
+	@Test
+	void backgroundReadsDoNotKeepVideoHot() throws IOException {
+		// e.g. a transcode or HLS packaging job
+		fileStorageService.fetchVideo(videoKey).close();
+
+		videoTieringService.archiveColdVideos();
+
+		assertThat(storageBackend.stat(videoKey)).isEmpty();
+		assertThat(throwHistoryRepository.findById(throwId).orElseThrow().getLastAccessedAt()).isNull();
+	}
+
+	@Test
+	void streamedVideoStaysHot() throws IOException {
+		mediaServingService.streamVideo(videoKey, new MockHttpServletRequest(), new MockHttpServletResponse());
+
+		videoTieringService.archiveColdVideos();
+
+		assertThat(storageBackend.stat(videoKey)).isPresent();
+		assertThat(throwHistoryRepository.findById(throwId).orElseThrow().getLastAccessedAt()).isNotNull();
+	}
+
+	@Test
+	void onlyOneNodeArchivesPerLease() throws IOException {
+		assertThat(videoTieringService.archiveColdVideos()).isPositive();
+		videoTieringService.ensureHot(videoKey);
+
+		// Another node firing within the lease skips
+		assertThat(videoTieringService.archiveColdVideos()).isEqualTo(-1);
+		assertThat(storageBackend.stat(videoKey)).isPresent();
+	}
+
+	private List<String> archivedKeys() throws IOException {
+		try (Stream<StorageObject> objects = videoTieringService.listArchived("videos/")) {
+			return objects.map(StorageObject::getKey).toList();
+		}
+	}
+}
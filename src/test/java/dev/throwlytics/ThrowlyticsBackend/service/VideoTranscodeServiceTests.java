@@ -0,0 +1,82 @@
+package dev.throwlytics.ThrowlyticsBackend.service;
+
+import dev.throwlytics.ThrowlyticsBackend.repository.JobLockRepository;
+import dev.throwlytics.ThrowlyticsBackend.repository.ThrowHistoryRepository;
+import dev.throwlytics.ThrowlyticsBackend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static dev.throwlytics.ThrowlyticsBackend.TestUsers.newUserId;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Transcode runs and the transcode lease against the H2 test database
+ * (FFmpeg is never reached: the candidate's video does not exist, so every attempt fails)
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class VideoTranscodeServiceTests {
+
+	@Autowired
+	private VideoTranscodeService videoTranscodeService;
+
+	@Autowired
+	private ThrowHistoryService throwHistoryService;
+
+	@Autowired
+	private ThrowHistoryRepository throwHistoryRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JobLockRepository jobLockRepository;
+
+	@Autowired
+	private JobLockService jobLockService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private Long throwId;
+
+	@BeforeEach
+	void setUp() {
+		jobLockRepository.deleteAll();
+		Long userId = newUserId(userRepository);
+		throwId = throwHistoryService.saveThrowHistory(userId, "videos/" + userId + "/ab/cd/missing.mp4", null)
+			.getThrowId();
+		jdbcTemplate.update("UPDATE throw_history SET upload_date = ? WHERE throw_id = ?",
+			Timestamp.valueOf(LocalDateTime.now().minusDays(1)), throwId);
+	}
+
+	@Test
+	void failedVideoIsBackedOff() {
+		videoTranscodeService.transcodeBatch();
+
+		assertThat(attempts()).isEqualTo(1);
+		assertThat(throwHistoryRepository.findById(throwId).orElseThrow().getTranscodeRetryAfter())
+			.isAfter(LocalDateTime.now());
+	}
+
+	@Test
+	void runIsSkippedWhileAnotherNodeHoldsTheLease() {
+		assertThat(jobLockService.tryLock("video-transcode", Duration.ofHours(1))).isTrue();
+
+		videoTranscodeService.transcodeBatch();
+
+		assertThat(attempts()).isNull();
+	}
+
+	private Integer attempts() {
+		return throwHistoryRepository.findById(throwId).orElseThrow().getTranscodeAttempts();
+	}
+}
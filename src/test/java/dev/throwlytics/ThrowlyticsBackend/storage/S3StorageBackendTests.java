@@ -0,0 +1,172 @@
+package dev.throwlytics.ThrowlyticsBackend.storage;
+
+import dev.throwlytics.ThrowlyticsBackend.exception.FileStorageException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.pagination.sync.SdkIterable;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+import software.amazon.awssdk.services.s3.paginators.ListObjectsV2Iterable;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * S3 backend against a mocked client
+ * End-to-end checks against MinIO are manual: docker compose --profile s3 up minio.
+ */
+class S3StorageBackendTests {
+
+	private static final int PART_SIZE = 4;
+
+	private S3Client s3;
+	private ExecutorService partUploadExecutor;
+	private S3StorageBackend backend;
+
+	@BeforeEach
+	void setUp() {
+		s3 = mock(S3Client.class);
+		partUploadExecutor = Executors.newFixedThreadPool(2);
+		backend = new S3StorageBackend();
+		ReflectionTestUtils.setField(backend, "s3", s3);
+		ReflectionTestUtils.setField(backend, "partUploadExecutor", partUploadExecutor);
+		ReflectionTestUtils.setField(backend, "bucket", "media");
+		ReflectionTestUtils.setField(backend, "multipartThreshold", 8L);
+		ReflectionTestUtils.setField(backend, "partSize", PART_SIZE);
+		ReflectionTestUtils.setField(backend, "uploadParallelism", 2);
+
+		when(s3.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+			.thenReturn(CreateMultipartUploadResponse.builder().uploadId("upload-1").build());
+	}
+
+	@AfterEach
+	void tearDown() {
+		partUploadExecutor.shutdownNow();
+	}
+
+	@Test
+	void multipartPutUploadsEveryPart() throws IOException {
+		when(s3.uploadPart(any(UploadPartRequest.class), any(RequestBody.class)))
+			.thenReturn(UploadPartResponse.builder().eTag("etag").build());
+
+		byte[] content = new byte[PART_SIZE * 3 + 1];
+		backend.put("videos/1/clip.mp4", new ByteArrayInputStream(content), content.length, "video/mp4");
+
+		verify(s3, times(4)).uploadPart(any(UploadPartRequest.class), any(RequestBody.class));
+		verify(s3).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+	}
+
+	@Test
+	void multipartPutBuffersAtMostParallelismParts() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		when(s3.uploadPart(any(UploadPartRequest.class), any(RequestBody.class))).thenAnswer(invocation -> {
+			release.await(5, TimeUnit.SECONDS);
+			return UploadPartResponse.builder().eTag("etag").build();
+		});
+
+		AtomicLong bytesRead = new AtomicLong();
+		InputStream content = new ByteArrayInputStream(new byte[PART_SIZE * 6]) {
+			@Override
+			public synchronized int read(byte[] b, int off, int len) {
+				int read = super.read(b, off, len);
+				if (read > 0) {
+					bytesRead.addAndGet(read);
+				}
+				return read;
+			}
+		};
+
+		ExecutorService caller = Executors.newSingleThreadExecutor();
+		try {
+			Future<?> upload = caller.submit(() -> {
+				backend.put("videos/1/clip.mp4", content, PART_SIZE * 6, "video/mp4");
+				return null;
+			});
+
+			// Both upload slots are blocked, so the reader must not buffer a third part
+			Thread.sleep(300);
+			assertThat(bytesRead.get()).isLessThanOrEqualTo(PART_SIZE * 2);
+
+			release.countDown();
+			upload.get(5, TimeUnit.SECONDS);
+			assertThat(bytesRead.get()).isEqualTo(PART_SIZE * 6);
+		} finally {
+			caller.shutdownNow();
+		}
+	}
+
+	@Test
+	void truncatedStreamAbortsMultipartUpload() {
+		when(s3.uploadPart(any(UploadPartRequest.class), any(RequestBody.class)))
+			.thenReturn(UploadPartResponse.builder().eTag("etag").build());
+
+		byte[] content = new byte[PART_SIZE * 2];
+		assertThatThrownBy(() -> backend.put("videos/1/clip.mp4", new ByteArrayInputStream(content),
+				PART_SIZE * 3, "video/mp4"))
+			.isInstanceOf(IOException.class);
+
+		verify(s3).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void listFailureMidStreamIsFileStorageException() throws IOException {
+		S3Object first = S3Object.builder().key("videos/1/a.mp4").size(10L).lastModified(Instant.EPOCH).build();
+		Iterator<S3Object> objects = mock(Iterator.class);
+		when(objects.hasNext()).thenReturn(true);
+		when(objects.next()).thenReturn(first).thenThrow(SdkClientException.create("connection reset"));
+
+		SdkIterable<S3Object> contents = mock(SdkIterable.class);
+		when(contents.iterator()).thenReturn(objects);
+		ListObjectsV2Iterable pages = mock(ListObjectsV2Iterable.class);
+		when(pages.contents()).thenReturn(contents);
+		when(s3.listObjectsV2Paginator(any(ListObjectsV2Request.class))).thenReturn(pages);
+
+		try (Stream<StorageObject> listed = backend.list("videos/")) {
+			Iterator<StorageObject> iterator = listed.iterator();
+			assertThat(iterator.next().getKey()).isEqualTo("videos/1/a.mp4");
+			assertThatThrownBy(iterator::next)
+				.isInstanceOf(FileStorageException.class)
+				.hasMessageContaining("videos/");
+		}
+	}
+
+	@Test
+	void smallObjectsUseSinglePut() throws IOException {
+		backend.put("thumbnails/1/a.jpg", new ByteArrayInputStream(new byte[3]), 3, "image/jpeg");
+
+		verify(s3).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+		verify(s3, times(0)).createMultipartUpload(any(CreateMultipartUploadRequest.class));
+	}
+
+}
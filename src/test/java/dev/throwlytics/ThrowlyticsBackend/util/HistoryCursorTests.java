@@ -0,0 +1,59 @@
+package dev.throwlytics.ThrowlyticsBackend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HistoryCursorTests {
+
+	@Test
+	void encodeDecodeRoundTrips() {
+		HistoryCursor cursor = new HistoryCursor(LocalDateTime.of(2025, 1, 7, 10, 30, 0), 42L);
+
+		assertThat(HistoryCursor.decode(cursor.encode())).isEqualTo(cursor);
+	}
+
+	@Test
+	void fractionalSecondsSurvive() {
+		HistoryCursor cursor = new HistoryCursor(LocalDateTime.of(2025, 1, 7, 10, 30, 5, 123_456_000), 7L);
+
+		assertThat(HistoryCursor.decode(cursor.encode())).isEqualTo(cursor);
+	}
+
+	@Test
+	void encodedCursorIsUrlSafe() {
+		// Enough varied bytes that standard base64 would need '+', '/' or padding
+		for (long throwId = 1; throwId < 200; throwId++) {
+			String encoded = new HistoryCursor(LocalDateTime.of(2025, 12, 31, 23, 59, 59), throwId).encode();
+
+			assertThat(encoded).matches("[A-Za-z0-9_-]+");
+		}
+	}
+
+	@Test
+	void malformedCursorsAreRejected() {
+		for (String cursor : new String[]{
+				"",
+				"not base64!",
+				encode("2025-01-07T10:30:00"),
+				encode("2025-01-07T10:30:00,"),
+				encode("2025-01-07T10:30:00,abc"),
+				encode("yesterday,42"),
+				encode(",42")}) {
+			assertThatThrownBy(() -> HistoryCursor.decode(cursor))
+				.as(cursor)
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Invalid history cursor");
+		}
+	}
+
+	private static String encode(String raw) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+}
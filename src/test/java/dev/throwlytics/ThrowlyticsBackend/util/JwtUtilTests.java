@@ -0,0 +1,143 @@
+package dev.throwlytics.ThrowlyticsBackend.util;
+
+import dev.throwlytics.ThrowlyticsBackend.model.PlanType;
+import dev.throwlytics.ThrowlyticsBackend.model.User;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtUtilTests {
+
+	private static final String SECRET = "jwt-util-tests-secret-0123456789abcdef";
+
+	private JwtUtil jwtUtil;
+
+	@BeforeEach
+	void setUp() {
+		jwtUtil = newJwtUtil(SECRET, 100);
+	}
+
+	@Test
+	void generatedTokenVerifies() {
+		JwtUtil.VerifiedToken verified = jwtUtil.verifyToken(jwtUtil.generateToken(user(7L, "a@example.com")));
+
+		assertThat(verified).isNotNull();
+		assertThat(verified.userId()).isEqualTo(7L);
+		assertThat(verified.email()).isEqualTo("a@example.com");
+		assertThat(verified.expiration()).isAfter(new Date());
+	}
+
+	@Test
+	void repeatVerificationIsServedFromCache() {
+		String token = jwtUtil.generateToken(user(7L, "a@example.com"));
+		JwtUtil.VerifiedToken first = jwtUtil.verifyToken(token);
+
+		// Without a parser only a cache hit can succeed
+		ReflectionTestUtils.setField(jwtUtil, "parser", null);
+
+		assertThat(jwtUtil.verifyToken(token)).isSameAs(first);
+		assertThat(jwtUtil.validateToken(token, "a@example.com")).isTrue();
+		assertThat(jwtUtil.validateToken(token, "b@example.com")).isFalse();
+	}
+
+	@Test
+	void expiredCacheEntryIsRejectedAndEvicted() {
+		String token = jwtUtil.generateToken(user(7L, "a@example.com"));
+		jwtUtil.verifyToken(token);
+		Map<String, JwtUtil.VerifiedToken> cache = cache();
+		cache.put(digest(token), new JwtUtil.VerifiedToken(7L, "a@example.com", new Date(System.currentTimeMillis() - 1000)));
+
+		assertThat(jwtUtil.verifyToken(token)).isNull();
+		assertThat(cache).doesNotContainKey(digest(token));
+	}
+
+	@Test
+	void invalidTokensAreRejectedAndNotCached() {
+		long inOneHour = System.currentTimeMillis() + 3_600_000;
+		String expired = token(SECRET, Map.of("userId", 7L), "a@example.com", new Date(System.currentTimeMillis() - 1000));
+		String otherKey = token("another-secret-of-at-least-32-bytes-0123", Map.of("userId", 7L), "a@example.com",
+			new Date(inOneHour));
+		String noUserId = token(SECRET, Map.of(), "a@example.com", new Date(inOneHour));
+		String noExpiry = token(SECRET, Map.of("userId", 7L), "a@example.com", null);
+		String valid = jwtUtil.generateToken(user(7L, "a@example.com"));
+		String tampered = valid.substring(0, valid.length() - 2) + (valid.endsWith("AA") ? "BB" : "AA");
+
+		for (String token : new String[]{expired, otherKey, noUserId, noExpiry, tampered, "not.a.jwt", ""}) {
+			assertThat(jwtUtil.verifyToken(token)).as(token).isNull();
+		}
+		assertThat(cache()).isEmpty();
+	}
+
+	@Test
+	void cacheEvictsLeastRecentlyUsed() {
+		JwtUtil small = newJwtUtil(SECRET, 2);
+		String first = small.generateToken(user(1L, "1@example.com"));
+		String second = small.generateToken(user(2L, "2@example.com"));
+		String third = small.generateToken(user(3L, "3@example.com"));
+
+		small.verifyToken(first);
+		small.verifyToken(second);
+		small.verifyToken(first);
+		small.verifyToken(third);
+
+		Map<String, JwtUtil.VerifiedToken> cache = cacheOf(small);
+		assertThat(cache).hasSize(2);
+		assertThat(cache).containsKeys(digest(first), digest(third));
+	}
+
+	private Map<String, JwtUtil.VerifiedToken> cache() {
+		return cacheOf(jwtUtil);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, JwtUtil.VerifiedToken> cacheOf(JwtUtil jwtUtil) {
+		return (Map<String, JwtUtil.VerifiedToken>) ReflectionTestUtils.getField(jwtUtil, "verifiedTokens");
+	}
+
+	private static JwtUtil newJwtUtil(String secret, int cacheMaxEntries) {
+		JwtUtil jwtUtil = new JwtUtil();
+		ReflectionTestUtils.setField(jwtUtil, "SECRET_KEY", secret);
+		ReflectionTestUtils.setField(jwtUtil, "cacheMaxEntries", cacheMaxEntries);
+		jwtUtil.init();
+		return jwtUtil;
+	}
+
+	private static String token(String secret, Map<String, Object> claims, String subject, Date expiration) {
+		return Jwts.builder()
+			.setClaims(claims)
+			.setSubject(subject)
+			.setExpiration(expiration)
+			.signWith(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)), SignatureAlgorithm.HS256)
+			.compact();
+	}
+
+	private static String digest(String token) {
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+			return Base64.getEncoder().encodeToString(hash);
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static User user(Long userId, String email) {
+		User user = new User();
+		user.setUserId(userId);
+		user.setEmail(email);
+		user.setName("Jwt Test");
+		user.setPlanType(PlanType.FREE);
+		return user;
+	}
+
+}
@@ -0,0 +1,101 @@
+package dev.throwlytics.ThrowlyticsBackend.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MediaUrlSignerTests {
+
+	private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+	private MediaUrlSigner signer;
+
+	@BeforeEach
+	void setUp() {
+		signer = newSigner(SECRET);
+	}
+
+	@Test
+	void signedUrlVerifies() {
+		long exp = signer.currentExpiry();
+		String url = signer.sign("/videos/7/clip.mp4", 7L, exp);
+
+		assertThat(url).startsWith("videos/7/clip.mp4?exp=" + exp + "&uid=7&sig=");
+		assertThat(signer.verify("/videos/7/clip.mp4", String.valueOf(exp), "7", sigOf(url))).isTrue();
+	}
+
+	@Test
+	void expiredUrlIsRejected() {
+		long exp = System.currentTimeMillis() / 1000 - 10;
+		String url = signer.sign("videos/7/clip.mp4", 7L, exp);
+
+		assertThat(signer.verify("videos/7/clip.mp4", String.valueOf(exp), "7", sigOf(url))).isFalse();
+	}
+
+	@Test
+	void urlForAnotherOwnersPathIsRejected() {
+		long exp = signer.currentExpiry();
+		// Signature is valid for user 8, but the path belongs to user 7
+		String url = signer.sign("videos/7/clip.mp4", 8L, exp);
+
+		assertThat(signer.verify("videos/7/clip.mp4", String.valueOf(exp), "8", sigOf(url))).isFalse();
+	}
+
+	@Test
+	void tamperedParametersAreRejected() {
+		long exp = signer.currentExpiry();
+		String sig = sigOf(signer.sign("videos/7/clip.mp4", 7L, exp));
+
+		assertThat(signer.verify("videos/7/other.mp4", String.valueOf(exp), "7", sig)).isFalse();
+		assertThat(signer.verify("videos/7/clip.mp4", String.valueOf(exp + 300), "7", sig)).isFalse();
+		assertThat(signer.verify("videos/7/clip.mp4", "soon", "7", sig)).isFalse();
+		assertThat(signer.verify("videos/7/clip.mp4", String.valueOf(exp), "7", null)).isFalse();
+	}
+
+	@Test
+	void differentSecretDoesNotVerify() {
+		long exp = signer.currentExpiry();
+		String sig = sigOf(newSigner("fedcba9876543210fedcba9876543210").sign("videos/7/clip.mp4", 7L, exp));
+
+		assertThat(signer.verify("videos/7/clip.mp4", String.valueOf(exp), "7", sig)).isFalse();
+	}
+
+	@Test
+	void hlsSignatureCoversWholePackage() {
+		long exp = signer.currentExpiry();
+		String sig = sigOf(signer.sign("hls/7/ab/cd/video-1/master.m3u8", 7L, exp));
+
+		assertThat(signer.scopeOf("hls/7/ab/cd/video-1/720p/seg_001.ts")).isEqualTo("hls/7/ab/cd/video-1/");
+		assertThat(signer.verify("hls/7/ab/cd/video-1/720p/seg_001.ts", String.valueOf(exp), "7", sig)).isTrue();
+		assertThat(signer.verify("hls/7/ab/cd/video-2/master.m3u8", String.valueOf(exp), "7", sig)).isFalse();
+	}
+
+	@Test
+	void expiryIsStableWithinStep() {
+		assertThat(signer.currentExpiry()).isEqualTo(signer.currentExpiry());
+		assertThat(signer.currentExpiry() % 300).isZero();
+	}
+
+	@Test
+	void missingOrShortSecretFailsStartup() {
+		assertThatThrownBy(() -> newSigner("")).isInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(() -> newSigner("too-short")).isInstanceOf(IllegalStateException.class);
+	}
+
+	private static MediaUrlSigner newSigner(String secret) {
+		MediaUrlSigner signer = new MediaUrlSigner();
+		ReflectionTestUtils.setField(signer, "signingSecret", secret);
+		ReflectionTestUtils.setField(signer, "ttlSeconds", 3600L);
+		ReflectionTestUtils.setField(signer, "expiryStepSeconds", 300L);
+		signer.init();
+		return signer;
+	}
+
+	private static String sigOf(String signedUrl) {
+		return signedUrl.substring(signedUrl.indexOf("&sig=") + 5);
+	}
+
+}